@@ -0,0 +1,33 @@
+package com.victor.transaction_analytic.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Temporary folders of generated day files for the benchmarks.
+ */
+final class BenchmarkFolders {
+
+    private BenchmarkFolders() {
+    }
+
+    static Path generate(int days, int rowsPerDay) throws IOException {
+        Path folder = Files.createTempDirectory("transaction-benchmark-");
+        SyntheticDataGenerator.generate(folder, days, rowsPerDay);
+        return folder;
+    }
+
+    static void delete(Path folder) throws IOException {
+        if (folder == null) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(folder)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.victor.transaction_analytic.benchmark;
+
+import com.victor.transaction_analytic.aggregation.DayProductVolumes;
+import com.victor.transaction_analytic.config.AnalyticProperties;
+import com.victor.transaction_analytic.helper.FileProcessor;
+import com.victor.transaction_analytic.metrics.PipelineMetrics;
+import com.victor.transaction_analytic.model.DaySegment;
+import com.victor.transaction_analytic.model.Transaction;
+import com.victor.transaction_analytic.service.SingleFileTransactionAnalyticService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing one generated day file and the single-day metrics over an already parsed segment.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgs = {"-Xms1g", "-Xmx1g"})
+public class FileParsingBenchmark {
+
+    @Param({"600", "20000"})
+    public int rowsPerDay;
+
+    private Path folder;
+    private Path file;
+    private DaySegment segment;
+    private SingleFileTransactionAnalyticService singleFileService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        folder = BenchmarkFolders.generate(1, rowsPerDay);
+        file = folder.resolve(SyntheticDataGenerator.DEFAULT_START + ".txt");
+        segment = FileProcessor.readDaySegment(file);
+        singleFileService = new SingleFileTransactionAnalyticService(new AnalyticProperties(),
+                new PipelineMetrics(new SimpleMeterRegistry()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkFolders.delete(folder);
+    }
+
+    @Benchmark
+    public List<Transaction> readTransactionsFromFile() throws IOException {
+        return FileProcessor.readTransactionsFromFile(file.toString());
+    }
+
+    @Benchmark
+    public DaySegment readDaySegment() throws IOException {
+        return FileProcessor.readDaySegment(file);
+    }
+
+    @Benchmark
+    public DayProductVolumes productVolumeInADay() {
+        return singleFileService.productVolumeInADay(segment);
+    }
+
+    @Benchmark
+    public BigDecimal highestSalesValueInADay() {
+        return singleFileService.highestSalesValueInADay(segment);
+    }
+
+    @Benchmark
+    public BigDecimal totalSalesVolumeInADay() {
+        return singleFileService.totalSalesVolumeInADay(segment);
+    }
+}
@@ -0,0 +1,109 @@
+package com.victor.transaction_analytic.benchmark;
+
+import com.victor.transaction_analytic.cache.DayAggregateCache;
+import com.victor.transaction_analytic.config.AnalyticExecutorConfig;
+import com.victor.transaction_analytic.config.AnalyticProperties;
+import com.victor.transaction_analytic.dto.TransactionAnalyticResponseDto;
+import com.victor.transaction_analytic.helper.DateRange;
+import com.victor.transaction_analytic.metrics.PipelineMetrics;
+import com.victor.transaction_analytic.rollup.DrillDownIndexStore;
+import com.victor.transaction_analytic.rollup.RollupStore;
+import com.victor.transaction_analytic.service.FolderTransactionAnalyticService;
+import com.victor.transaction_analytic.service.SingleFileTransactionAnalyticService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Every folder metric and the full analysis over a generated folder. The day cache is
+ * disabled so each invocation reads and aggregates every file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class FolderAnalyticBenchmark {
+
+    @Param({"365"})
+    public int days;
+
+    @Param({"600"})
+    public int rowsPerDay;
+
+    @Param({"SEQUENTIAL", "FORK_JOIN"})
+    public AnalyticProperties.ExecutorType executor;
+
+    private Path folder;
+    private String folderPath;
+    private Executor analyticExecutor;
+    private FolderTransactionAnalyticService folderService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        folder = BenchmarkFolders.generate(days, rowsPerDay);
+        folderPath = folder.toString();
+
+        AnalyticProperties properties = new AnalyticProperties();
+        properties.getExecutor().setType(executor);
+        properties.getCache().setEnabled(false);
+
+        analyticExecutor = new AnalyticExecutorConfig().analyticExecutor(properties);
+        PipelineMetrics pipelineMetrics = new PipelineMetrics(new SimpleMeterRegistry());
+        folderService = new FolderTransactionAnalyticService(
+                new SingleFileTransactionAnalyticService(properties, pipelineMetrics),
+                analyticExecutor,
+                new DayAggregateCache(properties),
+                pipelineMetrics,
+                new RollupStore(),
+                new DrillDownIndexStore());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (analyticExecutor instanceof ExecutorService executorService) {
+            executorService.shutdown();
+        }
+        BenchmarkFolders.delete(folder);
+    }
+
+    @Benchmark
+    public TransactionAnalyticResponseDto analyzeTransactions() throws IOException {
+        return folderService.analyzeTransactions(folderPath, DateRange.ALL);
+    }
+
+    @Benchmark
+    public BigDecimal highestSalesVolumeInADay() throws IOException {
+        return folderService.highestSalesVolumeInADay(folderPath, false, List.of(), DateRange.ALL);
+    }
+
+    @Benchmark
+    public BigDecimal highestSaleValueInADay() throws IOException {
+        return folderService.highestSaleValueInADay(folderPath, false, List.of(), DateRange.ALL);
+    }
+
+    @Benchmark
+    public String mostSoldProductByVolume() throws IOException {
+        return folderService.mostSoldProductByVolume(folderPath, false, List.of(), DateRange.ALL);
+    }
+
+    @Benchmark
+    public Map<YearMonth, String> highestSalesStaffByMonth() throws IOException {
+        return folderService.highestSalesStaffByMonth(folderPath, false, List.of(), DateRange.ALL);
+    }
+
+    @Benchmark
+    public int highestHourByAverageTransactionVolume() throws IOException {
+        return folderService.highestHourByAverageTransactionVolume(folderPath, false, List.of(), DateRange.ALL);
+    }
+}
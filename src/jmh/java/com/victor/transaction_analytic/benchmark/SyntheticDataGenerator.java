@@ -0,0 +1,96 @@
+package com.victor.transaction_analytic.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+
+/**
+ * Writes a folder of day files in the same format as {@code src/main/resources/transactions}:
+ * one {@code yyyy-MM-dd.txt} file per day, each line
+ * {@code staffId,yyyy-MM-ddTHH:mm:ss,[productId:quantity|...],saleAmount}.
+ * The value ranges follow the bundled data (staff 1-9, trading hours 08-16, 1-16 items of
+ * quantity 1-9, amounts with three decimals). Every day is generated from its own seed
+ * derived from the base seed, so the same arguments always produce identical files.
+ */
+public final class SyntheticDataGenerator {
+
+    public static final long DEFAULT_SEED = 20250101L;
+    public static final LocalDate DEFAULT_START = LocalDate.of(2025, 1, 1);
+
+    private static final int STAFF_COUNT = 9;
+    private static final int FIRST_HOUR = 8;
+    private static final int TRADING_HOURS = 9;
+    private static final int MAX_ITEMS = 16;
+    private static final int MAX_QUANTITY = 9;
+    private static final int PRODUCT_ID_BOUND = 1_000_000;
+    private static final long MAX_AMOUNT_THOUSANDTHS = 90_000_000L;
+
+    private SyntheticDataGenerator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Usage: SyntheticDataGenerator <target-folder> <days> <rows-per-day> [seed] [start-date]");
+            System.exit(1);
+        }
+        Path folder = Path.of(args[0]);
+        int days = Integer.parseInt(args[1]);
+        int rowsPerDay = Integer.parseInt(args[2]);
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : DEFAULT_SEED;
+        LocalDate start = args.length > 4 ? LocalDate.parse(args[4]) : DEFAULT_START;
+
+        generate(folder, days, rowsPerDay, seed, start);
+        System.out.println("Generated " + days + " days of " + rowsPerDay + " rows into " + folder);
+    }
+
+    public static void generate(Path folder, int days, int rowsPerDay) throws IOException {
+        generate(folder, days, rowsPerDay, DEFAULT_SEED, DEFAULT_START);
+    }
+
+    public static void generate(Path folder, int days, int rowsPerDay, long seed, LocalDate start) throws IOException {
+        Files.createDirectories(folder);
+        for (int day = 0; day < days; day++) {
+            LocalDate date = start.plusDays(day);
+            writeDay(folder.resolve(date + ".txt"), date, rowsPerDay, new SplittableRandom(seed + day));
+        }
+    }
+
+    private static void writeDay(Path file, LocalDate date, int rows, SplittableRandom random) throws IOException {
+        StringBuilder line = new StringBuilder(256);
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int row = 0; row < rows; row++) {
+                line.setLength(0);
+                line.append(1 + random.nextInt(STAFF_COUNT)).append(',').append(date).append('T');
+                appendTwoDigits(line, FIRST_HOUR + random.nextInt(TRADING_HOURS)).append(':');
+                appendTwoDigits(line, random.nextInt(60)).append(':');
+                appendTwoDigits(line, random.nextInt(60)).append(",[");
+
+                int items = 1 + random.nextInt(MAX_ITEMS);
+                for (int item = 0; item < items; item++) {
+                    if (item > 0) {
+                        line.append('|');
+                    }
+                    line.append(random.nextInt(PRODUCT_ID_BOUND)).append(':').append(1 + random.nextInt(MAX_QUANTITY));
+                }
+
+                long amount = 1 + random.nextLong(MAX_AMOUNT_THOUSANDTHS);
+                line.append("],").append(amount / 1000).append('.');
+                appendThreeDigits(line, (int) (amount % 1000));
+                writer.append(line).append('\n');
+            }
+        }
+    }
+
+    private static StringBuilder appendTwoDigits(StringBuilder line, int value) {
+        return line.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+
+    private static void appendThreeDigits(StringBuilder line, int value) {
+        line.append((char) ('0' + value / 100));
+        appendTwoDigits(line, value % 100);
+    }
+}
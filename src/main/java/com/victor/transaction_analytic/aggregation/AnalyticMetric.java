@@ -0,0 +1,46 @@
+package com.victor.transaction_analytic.aggregation;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * The metrics the aggregation engine can compute. Each metric owns one accumulator,
+ * so a request only pays for the metrics it asks for. Approximate metrics are sketches
+ * with fixed memory; they and the intraday profile are opt-in and never part of
+ * {@link #exact()}.
+ */
+public enum AnalyticMetric {
+    DAILY_VOLUME(false),
+    DAILY_MAX_VALUE(false),
+    PRODUCT_VOLUME(false),
+    MONTH_STAFF_SALES(false),
+    HOURLY_VOLUME(false),
+    APPROXIMATE_PRODUCT_VOLUME(true),
+    APPROXIMATE_DISTINCT_COUNTS(true),
+    INTRADAY_PROFILE(false);
+
+    private final boolean approximate;
+
+    AnalyticMetric(boolean approximate) {
+        this.approximate = approximate;
+    }
+
+    public boolean isApproximate() {
+        return approximate;
+    }
+
+    /**
+     * Whether the metric is only computed when asked for, and so missing from cached day
+     * partials and folder rollups built for the exact metrics.
+     */
+    public boolean isOptIn() {
+        return !exact().contains(this);
+    }
+
+    /**
+     * Every exact metric; what a full analysis and a cached day partial hold.
+     */
+    public static Set<AnalyticMetric> exact() {
+        return EnumSet.of(DAILY_VOLUME, DAILY_MAX_VALUE, PRODUCT_VOLUME, MONTH_STAFF_SALES, HOURLY_VOLUME);
+    }
+}
@@ -0,0 +1,330 @@
+package com.victor.transaction_analytic.aggregation;
+
+import com.victor.transaction_analytic.helper.Amounts;
+import com.victor.transaction_analytic.helper.TransactionLineParser;
+import com.victor.transaction_analytic.model.DaySegment;
+import com.victor.transaction_analytic.sketch.DistinctCountsByMonth;
+import com.victor.transaction_analytic.sketch.HeavyHitters;
+import com.victor.transaction_analytic.sketch.HyperLogLog;
+import com.victor.transaction_analytic.sketch.SketchSettings;
+
+import java.util.Set;
+
+/**
+ * Mutable, single-threaded builder for a {@link DayAggregate}. Only the accumulators of
+ * the requested metrics are updated. Rows arrive either as a whole columnar segment or one
+ * at a time straight from the parser, so a text file is aggregated without its rows ever
+ * being held. Product ids are encoded once per item into the folder's
+ * {@link ProductDictionary} and summed in an array indexed by code, which is compacted to
+ * the day's products when the partial is built. Sketches are sized from the settings, and
+ * the intraday profile from its bucket width, when rows are accepted, or copied from the
+ * first partial merged in.
+ */
+public class DayAccumulator {
+
+    private static final int DEFAULT_INTRADAY_BUCKET_MINUTES = 15;
+
+    private final boolean volume;
+    private final boolean value;
+    private final boolean products;
+    private final boolean staff;
+    private final boolean hours;
+    private final boolean approximateProducts;
+    private final boolean distinct;
+    private final boolean intraday;
+    private final SketchSettings sketchSettings;
+    private final int intradayBucketMinutes;
+
+    private long totalVolume;
+    private long maxValue;
+    private boolean hasValue;
+    private final ProductVolumes productQuantities;
+    private final MonthStaffSales monthStaffSales = new MonthStaffSales();
+    private final long[] hourTotals = new long[DayAggregate.HOURS_PER_DAY];
+    private final long[] hourCounts = new long[DayAggregate.HOURS_PER_DAY];
+    private HeavyHitters productSketch;
+    private DistinctCountsByMonth distinctCounts;
+    private IntradayHistogram intradayProfile;
+    private IngestionErrors errors = IngestionErrors.NONE;
+    private int currentDay = Integer.MIN_VALUE;
+    private LongLongHashMap currentStaffSales;
+    private HyperLogLog[] currentCounters;
+    private long[] currentBuckets;
+
+    public DayAccumulator(Set<AnalyticMetric> metrics) {
+        this(metrics, SketchSettings.DEFAULT, DEFAULT_INTRADAY_BUCKET_MINUTES);
+    }
+
+    public DayAccumulator(Set<AnalyticMetric> metrics, SketchSettings sketchSettings, int intradayBucketMinutes) {
+        this(metrics, new ProductVolumes(), sketchSettings, intradayBucketMinutes);
+    }
+
+    /**
+     * Accumulates the products of rows in the dictionary, normally the one of the folder
+     * the day file is in.
+     */
+    public DayAccumulator(Set<AnalyticMetric> metrics, ProductDictionary dictionary, SketchSettings sketchSettings,
+                          int intradayBucketMinutes) {
+        this(metrics, new ProductVolumes(dictionary), sketchSettings, intradayBucketMinutes);
+    }
+
+    private DayAccumulator(Set<AnalyticMetric> metrics, ProductVolumes productQuantities,
+                           SketchSettings sketchSettings, int intradayBucketMinutes) {
+        this.productQuantities = productQuantities;
+        this.volume = metrics.contains(AnalyticMetric.DAILY_VOLUME);
+        this.value = metrics.contains(AnalyticMetric.DAILY_MAX_VALUE);
+        this.products = metrics.contains(AnalyticMetric.PRODUCT_VOLUME);
+        this.staff = metrics.contains(AnalyticMetric.MONTH_STAFF_SALES);
+        this.hours = metrics.contains(AnalyticMetric.HOURLY_VOLUME);
+        this.approximateProducts = metrics.contains(AnalyticMetric.APPROXIMATE_PRODUCT_VOLUME);
+        this.distinct = metrics.contains(AnalyticMetric.APPROXIMATE_DISTINCT_COUNTS);
+        this.intraday = metrics.contains(AnalyticMetric.INTRADAY_PROFILE);
+        this.sketchSettings = sketchSettings;
+        this.intradayBucketMinutes = intradayBucketMinutes;
+    }
+
+    /**
+     * Folds a whole day segment in, one tight loop over the relevant columns per metric.
+     */
+    public void accept(DaySegment segment) {
+        int rowCount = segment.getRowCount();
+        long[] amounts = segment.getAmounts();
+
+        if (volume) {
+            long total = totalVolume;
+            for (int i = 0; i < rowCount; i++) {
+                total = Amounts.add(total, amounts[i]);
+            }
+            totalVolume = total;
+        }
+        if (value) {
+            for (int i = 0; i < rowCount; i++) {
+                acceptMaxValue(amounts[i]);
+            }
+        }
+        if (products) {
+            long[] productIds = segment.getProductIds();
+            int[] quantities = segment.getQuantities();
+            int itemCount = segment.getItemCount();
+            ProductVolumes volumes = productQuantities;
+            for (int i = 0; i < itemCount; i++) {
+                volumes.add(productIds[i], quantities[i]);
+            }
+        }
+        if (staff) {
+            long[] staffIds = segment.getStaffIds();
+            int[] epochDays = segment.getEpochDays();
+            int segmentDay = Integer.MIN_VALUE;
+            LongLongHashMap staffSales = null;
+            for (int i = 0; i < rowCount; i++) {
+                if (epochDays[i] != segmentDay) {
+                    // The month is resolved once per distinct day, not per row
+                    segmentDay = epochDays[i];
+                    staffSales = monthStaffSales.month(MonthStaffSales.epochMonthOfDay(segmentDay));
+                }
+                // Assuming transaction ID is the staff ID
+                staffSales.add(staffIds[i], amounts[i]);
+            }
+        }
+        if (hours) {
+            int[] secondsOfDay = segment.getSecondsOfDay();
+            for (int i = 0; i < rowCount; i++) {
+                int hour = secondsOfDay[i] / 3600;
+                hourTotals[hour] = Amounts.add(hourTotals[hour], amounts[i]);
+                hourCounts[hour]++;
+            }
+        }
+        if (approximateProducts) {
+            if (productSketch == null) {
+                productSketch = HeavyHitters.create(sketchSettings);
+            }
+            long[] productIds = segment.getProductIds();
+            int[] quantities = segment.getQuantities();
+            int itemCount = segment.getItemCount();
+            for (int i = 0; i < itemCount; i++) {
+                productSketch.add(productIds[i], quantities[i]);
+            }
+        }
+        if (distinct) {
+            if (distinctCounts == null) {
+                distinctCounts = DistinctCountsByMonth.create(sketchSettings);
+            }
+            long[] staffIds = segment.getStaffIds();
+            int[] epochDays = segment.getEpochDays();
+            int[] itemOffsets = segment.getItemOffsets();
+            long[] productIds = segment.getProductIds();
+            int segmentDay = Integer.MIN_VALUE;
+            HyperLogLog[] counters = null;
+            for (int i = 0; i < rowCount; i++) {
+                if (epochDays[i] != segmentDay) {
+                    segmentDay = epochDays[i];
+                    counters = distinctCounts.month(MonthStaffSales.epochMonthOfDay(segmentDay));
+                }
+                counters[1].add(staffIds[i]);
+                for (int item = itemOffsets[i]; item < itemOffsets[i + 1]; item++) {
+                    counters[0].add(productIds[item]);
+                }
+            }
+        }
+        if (intraday) {
+            IntradayHistogram histogram = intradayProfile();
+            int[] epochDays = segment.getEpochDays();
+            int[] secondsOfDay = segment.getSecondsOfDay();
+            int segmentDay = Integer.MIN_VALUE;
+            long[] buckets = null;
+            for (int i = 0; i < rowCount; i++) {
+                if (epochDays[i] != segmentDay) {
+                    segmentDay = epochDays[i];
+                    buckets = histogram.day(segmentDay);
+                }
+                histogram.add(buckets, secondsOfDay[i], amounts[i]);
+            }
+        }
+    }
+
+    /**
+     * Records lines or files of this day that could not be read.
+     */
+    public void addErrors(IngestionErrors moreErrors) {
+        errors = errors.plus(moreErrors);
+    }
+
+    /**
+     * Folds in the row the parser has just read. Nothing of the row is kept but its
+     * contribution to the requested metrics.
+     */
+    public void accept(TransactionLineParser row) {
+        long amount = row.amount();
+        if (volume) {
+            totalVolume = Amounts.add(totalVolume, amount);
+        }
+        if (value) {
+            acceptMaxValue(amount);
+        }
+        if (products) {
+            for (int i = 0; i < row.itemCount(); i++) {
+                productQuantities.add(row.productId(i), row.quantity(i));
+            }
+        }
+        if (staff || distinct || intraday) {
+            int epochDay = row.epochDay();
+            if (epochDay != currentDay) {
+                // Rows of a day file share their date, so the month is resolved once per day
+                currentDay = epochDay;
+                int epochMonth = MonthStaffSales.epochMonthOfDay(epochDay);
+                currentStaffSales = staff ? monthStaffSales.month(epochMonth) : null;
+                currentCounters = distinct ? distinctCounts().month(epochMonth) : null;
+                currentBuckets = intraday ? intradayProfile().day(epochDay) : null;
+            }
+            if (staff) {
+                // Assuming transaction ID is the staff ID
+                currentStaffSales.add(row.staffId(), amount);
+            }
+            if (distinct) {
+                currentCounters[1].add(row.staffId());
+                for (int i = 0; i < row.itemCount(); i++) {
+                    currentCounters[0].add(row.productId(i));
+                }
+            }
+            if (intraday) {
+                intradayProfile.add(currentBuckets, row.secondOfDay(), amount);
+            }
+        }
+        if (hours) {
+            int hour = row.secondOfDay() / 3600;
+            hourTotals[hour] = Amounts.add(hourTotals[hour], amount);
+            hourCounts[hour]++;
+        }
+        if (approximateProducts) {
+            if (productSketch == null) {
+                productSketch = HeavyHitters.create(sketchSettings);
+            }
+            for (int i = 0; i < row.itemCount(); i++) {
+                productSketch.add(row.productId(i), row.quantity(i));
+            }
+        }
+    }
+
+    private DistinctCountsByMonth distinctCounts() {
+        if (distinctCounts == null) {
+            distinctCounts = DistinctCountsByMonth.create(sketchSettings);
+        }
+        return distinctCounts;
+    }
+
+    private IntradayHistogram intradayProfile() {
+        if (intradayProfile == null) {
+            intradayProfile = new IntradayHistogram(intradayBucketMinutes);
+        }
+        return intradayProfile;
+    }
+
+    private void acceptMaxValue(long saleAmount) {
+        if (!hasValue || saleAmount > maxValue) {
+            maxValue = saleAmount;
+            hasValue = true;
+        }
+    }
+
+    /**
+     * Folds in a partial computed for another chunk of the same day file.
+     */
+    public void merge(DayAggregate partial) {
+        if (volume) {
+            totalVolume = Amounts.add(totalVolume, partial.totalVolume());
+        }
+        if (value) {
+            acceptMaxValue(partial.maxValue());
+        }
+        if (products) {
+            productQuantities.addAll(partial.productVolumes());
+        }
+        if (staff) {
+            monthStaffSales.addAll(partial.monthStaffSales());
+        }
+        if (hours) {
+            for (int hour = 0; hour < DayAggregate.HOURS_PER_DAY; hour++) {
+                hourTotals[hour] = Amounts.add(hourTotals[hour], partial.hourTotals()[hour]);
+                hourCounts[hour] += partial.hourCounts()[hour];
+            }
+        }
+        if (approximateProducts && partial.productSketch() != null) {
+            if (productSketch == null) {
+                productSketch = partial.productSketch().copy();
+            } else {
+                productSketch.merge(partial.productSketch());
+            }
+        }
+        if (distinct && partial.distinctCounts() != null) {
+            if (distinctCounts == null) {
+                distinctCounts = partial.distinctCounts().copy();
+            } else {
+                distinctCounts.merge(partial.distinctCounts());
+            }
+        }
+        if (intraday && partial.intradayProfile() != null) {
+            if (intradayProfile == null) {
+                intradayProfile = partial.intradayProfile().copy();
+            } else {
+                intradayProfile.merge(partial.intradayProfile());
+            }
+        }
+        errors = errors.plus(partial.errors());
+    }
+
+    public DayAggregate build(String fileName) {
+        return new DayAggregate(
+                fileName,
+                totalVolume,
+                maxValue,
+                productQuantities.compact(),
+                monthStaffSales,
+                hourTotals,
+                hourCounts,
+                productSketch,
+                distinctCounts,
+                intradayProfile,
+                errors
+        );
+    }
+}
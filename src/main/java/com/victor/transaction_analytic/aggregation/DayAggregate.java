@@ -0,0 +1,63 @@
+package com.victor.transaction_analytic.aggregation;
+
+import com.victor.transaction_analytic.sketch.DistinctCountsByMonth;
+import com.victor.transaction_analytic.sketch.HeavyHitters;
+
+import java.util.Set;
+
+/**
+ * Immutable partial result for a single day file. Partials from different files can be
+ * computed independently and merged in any order by {@link TransactionAggregator}.
+ * Amounts are in thousandths (see {@link com.victor.transaction_analytic.helper.Amounts});
+ * the hour arrays are indexed by hour of day. The sketches and the intraday profile are
+ * {@code null} unless their opt-in metrics were requested. {@code errors} summarizes the
+ * lines and files that could not be read, so a cached partial still reports them. None of
+ * the components may be modified.
+ */
+public record DayAggregate(
+        String fileName,
+        long totalVolume,
+        long maxValue,
+        DayProductVolumes productVolumes,
+        MonthStaffSales monthStaffSales,
+        long[] hourTotals,
+        long[] hourCounts,
+        HeavyHitters productSketch,
+        DistinctCountsByMonth distinctCounts,
+        IntradayHistogram intradayProfile,
+        IngestionErrors errors
+) {
+
+    public static final int HOURS_PER_DAY = 24;
+
+    /**
+     * Rough retained heap size in bytes, used for size-bounded caching.
+     */
+    public long estimatedSize() {
+        return 128 + 2L * HOURS_PER_DAY * Long.BYTES
+                + productVolumes.estimatedSize()
+                + monthStaffSales.estimatedSize()
+                + (productSketch == null ? 0 : productSketch.estimatedSize())
+                + (distinctCounts == null ? 0 : distinctCounts.estimatedSize())
+                + (intradayProfile == null ? 0 : intradayProfile.estimatedSize())
+                + errors.samples().size() * 256L;
+    }
+
+    /**
+     * Whether this partial carries what every opt-in metric requested needs.
+     */
+    public boolean hasOptInPartsFor(Set<AnalyticMetric> metrics) {
+        return (productSketch != null || !metrics.contains(AnalyticMetric.APPROXIMATE_PRODUCT_VOLUME))
+                && (distinctCounts != null || !metrics.contains(AnalyticMetric.APPROXIMATE_DISTINCT_COUNTS))
+                && (intradayProfile != null || !metrics.contains(AnalyticMetric.INTRADAY_PROFILE));
+    }
+
+    public static DayAggregate empty(String fileName) {
+        return empty(fileName, IngestionErrors.NONE);
+    }
+
+    public static DayAggregate empty(String fileName, IngestionErrors errors) {
+        return new DayAggregate(fileName, 0, 0, DayProductVolumes.empty(), new MonthStaffSales(),
+                new long[HOURS_PER_DAY], new long[HOURS_PER_DAY], null, null, null, errors);
+    }
+}
@@ -0,0 +1,124 @@
+package com.victor.transaction_analytic.aggregation;
+
+import java.util.Arrays;
+
+/**
+ * Total quantity per product of one day file or chunk: the codes of the products it sold
+ * in a {@link ProductDictionary}, in ascending order, and a parallel array of quantities.
+ * Both are sized to the products of the day, whatever the size of the catalog, so cached
+ * and snapshot days stay small, while {@link ProductVolumes#addAll(DayProductVolumes)}
+ * still merges a day coded with its own dictionary by code, without hashing.
+ *
+ * <p>Immutable.
+ */
+public final class DayProductVolumes {
+
+    private static final DayProductVolumes EMPTY = new DayProductVolumes(null, new int[0], new long[0]);
+
+    private final ProductDictionary dictionary;
+    private final int[] codes;
+    private final long[] quantities;
+
+    private DayProductVolumes(ProductDictionary dictionary, int[] codes, long[] quantities) {
+        this.dictionary = dictionary;
+        this.codes = codes;
+        this.quantities = quantities;
+    }
+
+    public static DayProductVolumes empty() {
+        return EMPTY;
+    }
+
+    /**
+     * The totals of a map from product id to quantity, each product encoded once in the
+     * dictionary.
+     */
+    public static DayProductVolumes of(LongLongHashMap quantitiesById, ProductDictionary dictionary) {
+        if (quantitiesById.isEmpty()) {
+            return EMPTY;
+        }
+        int size = quantitiesById.size();
+        int[] unsortedCodes = new int[size];
+        long[] unsortedQuantities = new long[size];
+        long[] order = new long[size];
+        int[] index = {0};
+        quantitiesById.forEach((productId, quantity) -> {
+            int i = index[0]++;
+            unsortedCodes[i] = dictionary.encode(productId);
+            unsortedQuantities[i] = quantity;
+            // Code in the high half, position in the low half: sorting orders by code
+            order[i] = (long) unsortedCodes[i] << 32 | i;
+        });
+        return sorted(dictionary, unsortedCodes, unsortedQuantities, order);
+    }
+
+    /**
+     * Rearranges parallel arrays into ascending code order, given each entry packed as
+     * code and position.
+     */
+    static DayProductVolumes sorted(ProductDictionary dictionary, int[] unsortedCodes, long[] unsortedQuantities,
+                                    long[] order) {
+        if (order.length == 0) {
+            return EMPTY;
+        }
+        Arrays.sort(order);
+        int[] codes = new int[order.length];
+        long[] quantities = new long[order.length];
+        for (int i = 0; i < order.length; i++) {
+            int position = (int) order[i];
+            codes[i] = unsortedCodes[position];
+            quantities[i] = unsortedQuantities[position];
+        }
+        return new DayProductVolumes(dictionary, codes, quantities);
+    }
+
+    public long get(long productId, long defaultValue) {
+        int code = isEmpty() ? -1 : dictionary.find(productId);
+        int index = code < 0 ? -1 : Arrays.binarySearch(codes, code);
+        return index >= 0 ? quantities[index] : defaultValue;
+    }
+
+    public int size() {
+        return codes.length;
+    }
+
+    public boolean isEmpty() {
+        return codes.length == 0;
+    }
+
+    /**
+     * Visits every product in code order.
+     */
+    public void forEach(LongLongHashMap.EntryConsumer consumer) {
+        for (int i = 0; i < codes.length; i++) {
+            consumer.accept(dictionary.decode(codes[i]), quantities[i]);
+        }
+    }
+
+    /**
+     * The dictionary the codes are from, or null when there are none.
+     */
+    ProductDictionary dictionary() {
+        return dictionary;
+    }
+
+    int[] codes() {
+        return codes;
+    }
+
+    long[] quantities() {
+        return quantities;
+    }
+
+    /**
+     * Rough retained heap size in bytes, for size-bounded caching.
+     */
+    public long estimatedSize() {
+        return 48 + codes.length * 12L;
+    }
+
+    @Override
+    public String toString() {
+        return "DayProductVolumes{size=" + codes.length + "}";
+    }
+}
@@ -0,0 +1,57 @@
+package com.victor.transaction_analytic.aggregation;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Malformed lines and unreadable files met while reading, with the first few offenders
+ * as samples. Immutable; partials combine with {@link #plus(IngestionErrors)}, which keeps
+ * at most {@link #SAMPLE_LIMIT} samples, so the summary stays small however bad the data.
+ */
+public record IngestionErrors(
+        long malformedLines,
+        long unreadableFiles,
+        List<Sample> samples
+) {
+
+    public static final int SAMPLE_LIMIT = 10;
+    public static final IngestionErrors NONE = new IngestionErrors(0, 0, List.of());
+
+    /**
+     * A malformed line, with its byte offset in the file, or an unreadable file, with
+     * neither offset nor line.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Sample(String file, Long offset, String reason, String line) {
+
+        @Override
+        public String toString() {
+            return offset == null ? file + ": " + reason : file + " at byte " + offset + ": " + reason + " [" + line + "]";
+        }
+    }
+
+    public static IngestionErrors unreadableFile(String file, String reason) {
+        return new IngestionErrors(0, 1, List.of(new Sample(file, null, reason, null)));
+    }
+
+    public boolean isEmpty() {
+        return malformedLines == 0 && unreadableFiles == 0;
+    }
+
+    public IngestionErrors plus(IngestionErrors other) {
+        if (other.isEmpty()) {
+            return this;
+        }
+        if (isEmpty()) {
+            return other;
+        }
+        List<Sample> merged = new ArrayList<>(samples);
+        for (int i = 0; i < other.samples.size() && merged.size() < SAMPLE_LIMIT; i++) {
+            merged.add(other.samples.get(i));
+        }
+        return new IngestionErrors(malformedLines + other.malformedLines, unreadableFiles + other.unreadableFiles,
+                List.copyOf(merged));
+    }
+}
@@ -0,0 +1,108 @@
+package com.victor.transaction_analytic.aggregation;
+
+import com.victor.transaction_analytic.helper.Amounts;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.IntFunction;
+
+/**
+ * Transaction count and amount per fixed-width bucket of the day, for each day seen. Each
+ * day is one primitive array holding the bucket sums (thousandths) followed by the bucket
+ * counts, so a row costs two array increments and merging is element-wise addition.
+ * Profiles of any coarser width that is a multiple of this one are folded from the days
+ * on demand, grouped however the caller likes.
+ */
+public class IntradayHistogram {
+
+    public static final int MINUTES_PER_DAY = 24 * 60;
+
+    private final int bucketMinutes;
+    private final int bucketSeconds;
+    private final int bucketCount;
+    private final TreeMap<Integer, long[]> days = new TreeMap<>();
+
+    public IntradayHistogram(int bucketMinutes) {
+        this.bucketMinutes = validBucketMinutes(bucketMinutes);
+        this.bucketSeconds = bucketMinutes * 60;
+        this.bucketCount = MINUTES_PER_DAY / bucketMinutes;
+    }
+
+    public static int validBucketMinutes(int bucketMinutes) {
+        if (bucketMinutes < 1 || MINUTES_PER_DAY % bucketMinutes != 0) {
+            throw new IllegalArgumentException("Bucket width must be a whole number of minutes dividing a day, was "
+                    + bucketMinutes);
+        }
+        return bucketMinutes;
+    }
+
+    public IntradayHistogram copy() {
+        IntradayHistogram copy = new IntradayHistogram(bucketMinutes);
+        days.forEach((day, buckets) -> copy.days.put(day, buckets.clone()));
+        return copy;
+    }
+
+    public int bucketMinutes() {
+        return bucketMinutes;
+    }
+
+    /**
+     * The buckets of a day, created on first use: sums at the bucket index, counts at
+     * {@code bucketCount} past it.
+     */
+    public long[] day(int epochDay) {
+        return days.computeIfAbsent(epochDay, day -> new long[2 * bucketCount]);
+    }
+
+    /**
+     * Adds a transaction to buckets obtained from {@link #day(int)}.
+     */
+    public void add(long[] buckets, int secondOfDay, long amount) {
+        int bucket = secondOfDay / bucketSeconds;
+        buckets[bucket] = Amounts.add(buckets[bucket], amount);
+        buckets[bucketCount + bucket]++;
+    }
+
+    public void merge(IntradayHistogram other) {
+        if (other.bucketMinutes != bucketMinutes) {
+            throw new IllegalArgumentException("Cannot merge " + other.bucketMinutes + "-minute buckets into "
+                    + bucketMinutes + "-minute buckets");
+        }
+        other.days.forEach((day, theirs) -> {
+            long[] mine = day(day);
+            for (int i = 0; i < bucketCount; i++) {
+                mine[i] = Amounts.add(mine[i], theirs[i]);
+                mine[bucketCount + i] += theirs[bucketCount + i];
+            }
+        });
+    }
+
+    /**
+     * Sums the days of each group into buckets of {@code foldedMinutes}, laid out like the
+     * buckets of a day. Groups are ordered by key.
+     *
+     * @throws IllegalArgumentException unless the width is a multiple of this histogram's
+     *         width that divides a day
+     */
+    public <K extends Comparable<? super K>> Map<K, long[]> fold(int foldedMinutes, IntFunction<K> groupOfDay) {
+        if (validBucketMinutes(foldedMinutes) % bucketMinutes != 0) {
+            throw new IllegalArgumentException("Bucket width must be a multiple of " + bucketMinutes
+                    + " minutes, was " + foldedMinutes);
+        }
+        int ratio = foldedMinutes / bucketMinutes;
+        int foldedCount = MINUTES_PER_DAY / foldedMinutes;
+        Map<K, long[]> groups = new TreeMap<>();
+        days.forEach((day, buckets) -> {
+            long[] folded = groups.computeIfAbsent(groupOfDay.apply(day), group -> new long[2 * foldedCount]);
+            for (int i = 0; i < bucketCount; i++) {
+                folded[i / ratio] = Amounts.add(folded[i / ratio], buckets[i]);
+                folded[foldedCount + i / ratio] += buckets[bucketCount + i];
+            }
+        });
+        return groups;
+    }
+
+    public long estimatedSize() {
+        return 48 + days.size() * (64 + 16L * bucketCount);
+    }
+}
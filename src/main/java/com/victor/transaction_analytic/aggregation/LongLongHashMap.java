@@ -0,0 +1,192 @@
+package com.victor.transaction_analytic.aggregation;
+
+/**
+ * Open-addressing {@code long -> long} hash map with linear probing over two parallel
+ * primitive arrays. Keys and values are never boxed, so summing into it allocates nothing
+ * except when the table grows. Key 0 marks an empty slot and is kept on the side.
+ *
+ * <p>Not thread-safe. Maps handed out inside a {@link DayAggregate} must not be modified.
+ */
+public class LongLongHashMap {
+
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(long key, long value);
+    }
+
+    private static final int MIN_CAPACITY = 16;
+    private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+
+    private long[] keys;
+    private long[] values;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    private boolean hasZeroKey;
+    private long zeroValue;
+
+    public LongLongHashMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public LongLongHashMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    private LongLongHashMap(LongLongHashMap other) {
+        keys = other.keys.clone();
+        values = other.values.clone();
+        mask = other.mask;
+        size = other.size;
+        resizeAt = other.resizeAt;
+        hasZeroKey = other.hasZeroKey;
+        zeroValue = other.zeroValue;
+    }
+
+    /**
+     * An independent copy with the same slot layout, so nothing is rehashed.
+     */
+    public LongLongHashMap copy() {
+        return new LongLongHashMap(this);
+    }
+
+    /**
+     * Adds {@code delta} to the value of {@code key}, inserting it with value
+     * {@code delta} if absent. Sums use exact arithmetic.
+     */
+    public void add(long key, long delta) {
+        if (key == 0) {
+            zeroValue = hasZeroKey ? Math.addExact(zeroValue, delta) : delta;
+            hasZeroKey = true;
+            return;
+        }
+        int slot = slot(key);
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                values[slot] = Math.addExact(values[slot], delta);
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = delta;
+        if (++size >= resizeAt) {
+            rehash(keys.length * 2);
+        }
+    }
+
+    /**
+     * Adds every entry of {@code other} into this map by walking its slot arrays directly.
+     */
+    public void addAll(LongLongHashMap other) {
+        if (other.hasZeroKey) {
+            add(0, other.zeroValue);
+        }
+        long[] otherKeys = other.keys;
+        long[] otherValues = other.values;
+        for (int i = 0; i < otherKeys.length; i++) {
+            if (otherKeys[i] != 0) {
+                add(otherKeys[i], otherValues[i]);
+            }
+        }
+    }
+
+    public long get(long key, long defaultValue) {
+        if (key == 0) {
+            return hasZeroKey ? zeroValue : defaultValue;
+        }
+        int slot = slot(key);
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return defaultValue;
+    }
+
+    public boolean containsKey(long key) {
+        if (key == 0) {
+            return hasZeroKey;
+        }
+        int slot = slot(key);
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size + (hasZeroKey ? 1 : 0);
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Visits every entry in slot order, which is unrelated to insertion order.
+     */
+    public void forEach(EntryConsumer consumer) {
+        if (hasZeroKey) {
+            consumer.accept(0, zeroValue);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                consumer.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    /**
+     * Slots allocated by the table, for size estimates.
+     */
+    public int capacity() {
+        return keys.length;
+    }
+
+    private int slot(long key) {
+        long hash = key * GOLDEN_RATIO;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key != 0) {
+                int slot = slot(key);
+                while (keys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                values[slot] = oldValues[i];
+                size++;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new long[capacity];
+        mask = capacity - 1;
+        size = 0;
+        // Load factor 0.5 keeps probe sequences short
+        resizeAt = capacity / 2;
+    }
+
+    private static int capacityFor(int expectedSize) {
+        return Integer.highestOneBit(Math.max(expectedSize * 2, MIN_CAPACITY) - 1) << 1;
+    }
+
+    @Override
+    public String toString() {
+        return "LongLongHashMap{size=" + size() + "}";
+    }
+}
@@ -0,0 +1,144 @@
+package com.victor.transaction_analytic.aggregation;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Arrays;
+
+/**
+ * Sales totals per month and staff id. Months are an int dimension, {@code year * 12 +
+ * month - 1}, indexing a dense array of {@link LongLongHashMap}s from staff id to amount
+ * in thousandths, so accumulating a row only probes one primitive map.
+ *
+ * <p>Not thread-safe. Tables handed out inside a {@link DayAggregate} must not be modified.
+ * A {@link #sharedCopy()} shares its month tables with the original and copies one only
+ * when it writes to it.
+ */
+public class MonthStaffSales {
+
+    @FunctionalInterface
+    public interface MonthConsumer {
+        void accept(YearMonth month, LongLongHashMap staffSales);
+    }
+
+    private int firstMonth;
+    private LongLongHashMap[] months = new LongLongHashMap[0];
+    // Months whose table still belongs to the instance this one was copied from; null when none
+    private boolean[] shared;
+
+    /**
+     * A copy that shares the month tables of this instance until it writes to one, so
+     * changing a few months of a long history copies only those. This instance must not
+     * be modified afterwards.
+     */
+    public MonthStaffSales sharedCopy() {
+        MonthStaffSales copy = new MonthStaffSales();
+        copy.firstMonth = firstMonth;
+        copy.months = months.clone();
+        copy.shared = new boolean[months.length];
+        Arrays.fill(copy.shared, true);
+        return copy;
+    }
+
+    /**
+     * The staff totals of a month, created on first use.
+     */
+    public LongLongHashMap month(int epochMonth) {
+        if (months.length == 0) {
+            firstMonth = epochMonth;
+            months = new LongLongHashMap[1];
+            shared = null;
+        } else if (epochMonth < firstMonth) {
+            LongLongHashMap[] grown = new LongLongHashMap[months.length + firstMonth - epochMonth];
+            System.arraycopy(months, 0, grown, firstMonth - epochMonth, months.length);
+            if (shared != null) {
+                boolean[] grownShared = new boolean[grown.length];
+                System.arraycopy(shared, 0, grownShared, firstMonth - epochMonth, shared.length);
+                shared = grownShared;
+            }
+            months = grown;
+            firstMonth = epochMonth;
+        } else if (epochMonth - firstMonth >= months.length) {
+            months = Arrays.copyOf(months, epochMonth - firstMonth + 1);
+            if (shared != null) {
+                shared = Arrays.copyOf(shared, months.length);
+            }
+        }
+
+        int index = epochMonth - firstMonth;
+        if (months[index] == null) {
+            months[index] = new LongLongHashMap();
+        } else if (shared != null && shared[index]) {
+            months[index] = months[index].copy();
+            shared[index] = false;
+        }
+        return months[index];
+    }
+
+    public void add(int epochMonth, long staffId, long amount) {
+        month(epochMonth).add(staffId, amount);
+    }
+
+    public void addAll(MonthStaffSales other) {
+        for (int i = 0; i < other.months.length; i++) {
+            if (other.months[i] != null) {
+                month(other.firstMonth + i).addAll(other.months[i]);
+            }
+        }
+    }
+
+    /**
+     * Takes back totals added before. A staff total that drops to zero is kept as a zero
+     * entry, which {@link TopK} does not rank.
+     */
+    public void subtractAll(MonthStaffSales other) {
+        for (int i = 0; i < other.months.length; i++) {
+            if (other.months[i] != null) {
+                LongLongHashMap staffSales = month(other.firstMonth + i);
+                other.months[i].forEach((staffId, amount) -> staffSales.add(staffId, Math.negateExact(amount)));
+            }
+        }
+    }
+
+    /**
+     * Visits the months that have sales, in chronological order.
+     */
+    public void forEach(MonthConsumer consumer) {
+        for (int i = 0; i < months.length; i++) {
+            if (months[i] != null && !months[i].isEmpty()) {
+                consumer.accept(toYearMonth(firstMonth + i), months[i]);
+            }
+        }
+    }
+
+    public int monthCount() {
+        int count = 0;
+        for (LongLongHashMap month : months) {
+            if (month != null && !month.isEmpty()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public long estimatedSize() {
+        long size = 32 + months.length * 8L;
+        for (LongLongHashMap month : months) {
+            if (month != null) {
+                size += 48 + month.capacity() * 16L;
+            }
+        }
+        return size;
+    }
+
+    public static int epochMonth(YearMonth month) {
+        return month.getYear() * 12 + month.getMonthValue() - 1;
+    }
+
+    public static int epochMonthOfDay(int epochDay) {
+        return epochMonth(YearMonth.from(LocalDate.ofEpochDay(epochDay)));
+    }
+
+    public static YearMonth toYearMonth(int epochMonth) {
+        return YearMonth.of(Math.floorDiv(epochMonth, 12), Math.floorMod(epochMonth, 12) + 1);
+    }
+}
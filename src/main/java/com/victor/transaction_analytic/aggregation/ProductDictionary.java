@@ -0,0 +1,196 @@
+package com.victor.transaction_analytic.aggregation;
+
+import java.lang.ref.WeakReference;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Dictionary from product id to a dense {@code int} code, handed out in order of first
+ * sight and never reused, so the product totals of the files, chunks and cached partials
+ * of one folder can live in plain arrays indexed by code and be merged by index.
+ *
+ * <p>Each folder has its own dictionary, so its totals are sized to the products of that
+ * folder rather than of everything the process has read. The dictionary is only held by
+ * the partials and totals coded with it: once the cache and the rollups drop the last day
+ * of a folder, the dictionary goes too. Partials and totals of different dictionaries
+ * still merge, by product id.
+ *
+ * <p>Thread-safe. Looking up a known id takes no lock: the open-addressing table publishes
+ * each key with release semantics after its code, and a grown table is published whole.
+ * Only the first sight of an id synchronizes. Codes are only meaningful inside this
+ * process; anything persisted or sent to a peer carries product ids.
+ */
+public final class ProductDictionary {
+
+    private static final Map<Path, WeakReference<ProductDictionary>> FOLDERS = new ConcurrentHashMap<>();
+    private static final int MIN_CAPACITY = 1024;
+    private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+
+    /**
+     * Key 0 marks an empty slot; product id 0 is kept on the side.
+     */
+    private record Table(AtomicLongArray keys, int[] codes, int mask) {
+
+        private Table(int capacity) {
+            this(new AtomicLongArray(capacity), new int[capacity], capacity - 1);
+        }
+
+        private int slot(long key) {
+            long hash = key * GOLDEN_RATIO;
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+    }
+
+    private volatile Table table = new Table(MIN_CAPACITY);
+    private volatile long[] ids = new long[MIN_CAPACITY / 2];
+    private volatile int size;
+    private volatile int zeroCode = -1;
+
+    /**
+     * The dictionary of the day files in a folder, created on first use and kept while
+     * anything coded with it is reachable.
+     */
+    public static ProductDictionary forFolder(Path folder) {
+        Path key = folder.toAbsolutePath().normalize();
+        ProductDictionary[] dictionary = new ProductDictionary[1];
+        FOLDERS.compute(key, (ignored, reference) -> {
+            dictionary[0] = reference == null ? null : reference.get();
+            if (dictionary[0] != null) {
+                return reference;
+            }
+            dictionary[0] = new ProductDictionary();
+            return new WeakReference<>(dictionary[0]);
+        });
+        if (dictionary[0].size == 0) {
+            FOLDERS.values().removeIf(reference -> reference.get() == null);
+        }
+        return dictionary[0];
+    }
+
+    /**
+     * The dictionary of the folder a day file is in.
+     */
+    public static ProductDictionary forFile(Path file) {
+        return forFolder(Objects.requireNonNull(file.toAbsolutePath().normalize().getParent(), "No folder"));
+    }
+
+    /**
+     * Codes handed out by the folder dictionaries still in use.
+     */
+    public static long folderCodes() {
+        return FOLDERS.values().stream()
+                .map(WeakReference::get)
+                .filter(Objects::nonNull)
+                .mapToLong(ProductDictionary::size)
+                .sum();
+    }
+
+    /**
+     * The code of a product id, assigning the next free one on first sight.
+     */
+    public int encode(long productId) {
+        int code = find(productId);
+        return code >= 0 ? code : insert(productId);
+    }
+
+    /**
+     * The code of a product id, or -1 when it has none yet.
+     */
+    public int find(long productId) {
+        if (productId == 0) {
+            return zeroCode;
+        }
+        Table current = table;
+        int slot = current.slot(productId);
+        long key;
+        while ((key = current.keys.getAcquire(slot)) != 0) {
+            if (key == productId) {
+                return current.codes[slot];
+            }
+            slot = (slot + 1) & current.mask;
+        }
+        return -1;
+    }
+
+    /**
+     * The product id of a code returned by {@link #encode(long)}.
+     */
+    public long decode(int code) {
+        return ids[code];
+    }
+
+    /**
+     * Number of codes handed out; every code is below it.
+     */
+    public int size() {
+        return size;
+    }
+
+    private synchronized int insert(long productId) {
+        if (productId == 0) {
+            if (zeroCode < 0) {
+                zeroCode = append(productId);
+            }
+            return zeroCode;
+        }
+        Table current = table;
+        int slot = current.slot(productId);
+        long key;
+        while ((key = current.keys.getPlain(slot)) != 0) {
+            if (key == productId) {
+                return current.codes[slot];
+            }
+            slot = (slot + 1) & current.mask;
+        }
+
+        int code = append(productId);
+        // Load factor 0.5 keeps probe sequences short
+        if (2 * size > current.codes.length) {
+            table = rebuilt(2 * current.codes.length);
+        } else {
+            current.codes[slot] = code;
+            current.keys.setRelease(slot, productId);
+        }
+        return code;
+    }
+
+    private int append(long productId) {
+        int code = size;
+        long[] current = ids;
+        if (code == current.length) {
+            current = Arrays.copyOf(current, 2 * code);
+            current[code] = productId;
+            ids = current;
+        } else {
+            current[code] = productId;
+        }
+        size = code + 1;
+        return code;
+    }
+
+    private Table rebuilt(int capacity) {
+        Table grown = new Table(capacity);
+        long[] known = ids;
+        for (int code = 0; code < size; code++) {
+            long productId = known[code];
+            if (productId != 0) {
+                int slot = grown.slot(productId);
+                while (grown.keys.getPlain(slot) != 0) {
+                    slot = (slot + 1) & grown.mask;
+                }
+                grown.codes[slot] = code;
+                grown.keys.setPlain(slot, productId);
+            }
+        }
+        return grown;
+    }
+
+    @Override
+    public String toString() {
+        return "ProductDictionary{size=" + size + "}";
+    }
+}
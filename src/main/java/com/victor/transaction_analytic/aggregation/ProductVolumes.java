@@ -0,0 +1,209 @@
+package com.victor.transaction_analytic.aggregation;
+
+import java.util.Arrays;
+
+/**
+ * Total quantity per product, in a {@code long} array indexed by the product's code in a
+ * {@link ProductDictionary}. Merging a day coded with the same dictionary adds its
+ * {@link DayProductVolumes} by index, with no hashing at all; a day of another dictionary
+ * is added by product id. The array spans the codes added so far, at most the products of
+ * the dictionary, so totals over one folder are sized to that folder's catalog. A total
+ * taken back to zero stays as a zero entry until {@link #compact()} drops it.
+ *
+ * <p>Not thread-safe.
+ */
+public class ProductVolumes {
+
+    private static final int[] NO_CODES = new int[0];
+    private static final long[] NO_QUANTITIES = new long[0];
+
+    private ProductDictionary dictionary;
+    private long[] quantities = NO_QUANTITIES;
+    private long[] seen = NO_QUANTITIES;
+    private int[] codes = NO_CODES;
+    private int size;
+
+    /**
+     * Totals coded with the dictionary of the first day added, or with their own when a
+     * product id comes first.
+     */
+    public ProductVolumes() {
+    }
+
+    public ProductVolumes(ProductDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * A copy of {@code other}: its arrays are copied as they are, with no per-product work.
+     */
+    public ProductVolumes(ProductVolumes other) {
+        this.dictionary = other.dictionary;
+        this.quantities = other.quantities.clone();
+        this.seen = other.seen.clone();
+        this.codes = other.codes.clone();
+        this.size = other.size;
+    }
+
+    /**
+     * Adds {@code quantity} to the total of {@code productId}. Sums use exact arithmetic.
+     */
+    public void add(long productId, long quantity) {
+        if (dictionary == null) {
+            dictionary = new ProductDictionary();
+        }
+        addCode(dictionary.encode(productId), quantity);
+    }
+
+    /**
+     * Adds every total of a day into this instance.
+     */
+    public void addAll(DayProductVolumes day) {
+        if (day.isEmpty()) {
+            return;
+        }
+        if (dictionary == null) {
+            dictionary = day.dictionary();
+        }
+        if (day.dictionary() != dictionary) {
+            day.forEach(this::add);
+            return;
+        }
+        int[] dayCodes = day.codes();
+        long[] dayQuantities = day.quantities();
+        if (dayCodes[dayCodes.length - 1] >= quantities.length) {
+            grow(dayCodes[dayCodes.length - 1]);
+        }
+        for (int i = 0; i < dayCodes.length; i++) {
+            addCode(dayCodes[i], dayQuantities[i]);
+        }
+    }
+
+    /**
+     * Takes back the totals of a day added before.
+     */
+    public void subtractAll(DayProductVolumes day) {
+        int[] dayCodes = day.codes();
+        long[] dayQuantities = day.quantities();
+        for (int i = 0; i < dayCodes.length; i++) {
+            int code = day.dictionary() == dictionary ? dayCodes[i] : codeOf(day.dictionary().decode(dayCodes[i]));
+            if (code < 0 || !isSeen(code)) {
+                throw new IllegalStateException("Product " + day.dictionary().decode(dayCodes[i]) + " was never added");
+            }
+            quantities[code] = Math.subtractExact(quantities[code], dayQuantities[i]);
+        }
+    }
+
+    /**
+     * Adds every total of {@code other} into this instance.
+     */
+    public void addAll(ProductVolumes other) {
+        if (dictionary == null) {
+            dictionary = other.dictionary;
+        }
+        if (other.dictionary != dictionary) {
+            other.forEach(this::add);
+            return;
+        }
+        if (other.quantities.length > quantities.length) {
+            grow(other.quantities.length - 1);
+        }
+        long[] otherQuantities = other.quantities;
+        int[] otherCodes = other.codes;
+        for (int i = 0; i < other.size; i++) {
+            int code = otherCodes[i];
+            addCode(code, otherQuantities[code]);
+        }
+    }
+
+    /**
+     * A sparse copy of the non-zero totals, sized to those products rather than their codes.
+     */
+    public DayProductVolumes compact() {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (quantities[codes[i]] != 0) {
+                kept++;
+            }
+        }
+        int[] keptCodes = new int[kept];
+        long[] keptQuantities = new long[kept];
+        long[] order = new long[kept];
+        int next = 0;
+        for (int i = 0; i < size; i++) {
+            int code = codes[i];
+            if (quantities[code] != 0) {
+                keptCodes[next] = code;
+                keptQuantities[next] = quantities[code];
+                order[next] = (long) code << 32 | next;
+                next++;
+            }
+        }
+        return DayProductVolumes.sorted(dictionary, keptCodes, keptQuantities, order);
+    }
+
+    public long get(long productId, long defaultValue) {
+        int code = codeOf(productId);
+        return code >= 0 && isSeen(code) ? quantities[code] : defaultValue;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Visits every product in the order it was first added.
+     */
+    public void forEach(LongLongHashMap.EntryConsumer consumer) {
+        for (int i = 0; i < size; i++) {
+            int code = codes[i];
+            consumer.accept(dictionary.decode(code), quantities[code]);
+        }
+    }
+
+    /**
+     * Rough retained heap size in bytes, for size-bounded caching.
+     */
+    public long estimatedSize() {
+        return 48 + quantities.length * 8L + seen.length * 8L + codes.length * 4L;
+    }
+
+    private void addCode(int code, long quantity) {
+        if (code >= quantities.length) {
+            grow(code);
+        }
+        long total = quantities[code];
+        // A zero total may still be a product seen with zero quantity
+        if (total == 0 && !isSeen(code)) {
+            seen[code >>> 6] |= 1L << code;
+            if (size == codes.length) {
+                codes = Arrays.copyOf(codes, Math.max(16, 2 * size));
+            }
+            codes[size++] = code;
+        }
+        quantities[code] = Math.addExact(total, quantity);
+    }
+
+    private int codeOf(long productId) {
+        return dictionary == null ? -1 : dictionary.find(productId);
+    }
+
+    private boolean isSeen(int code) {
+        return code < quantities.length && (seen[code >>> 6] & (1L << code)) != 0;
+    }
+
+    private void grow(int code) {
+        int capacity = Math.max(code + 1, 2 * quantities.length);
+        quantities = Arrays.copyOf(quantities, capacity);
+        seen = Arrays.copyOf(seen, (capacity + 63) >>> 6);
+    }
+
+    @Override
+    public String toString() {
+        return "ProductVolumes{size=" + size + "}";
+    }
+}
@@ -0,0 +1,129 @@
+package com.victor.transaction_analytic.aggregation;
+
+import com.victor.transaction_analytic.dto.ShardPartialDto;
+import com.victor.transaction_analytic.helper.Amounts;
+import com.victor.transaction_analytic.helper.DateRange;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+
+/**
+ * Mergeable, exact partial of one or more folders, for scatter-gather across stores. A
+ * folder answer cannot be merged: the highest daily volume of two stores is not the max
+ * of their highest days when both sold on the same day, and averages and leaders do not
+ * combine at all. So this keeps each day's total volume by day, plus the sums every
+ * other metric is ranked from, and only the final {@link #aggregator()} ranks them.
+ *
+ * <p>Days are keyed by the date in the file name, or the file name itself when it has
+ * none. Products are coded in a dictionary of the partial's own, as they come from
+ * several folders and peers. Mutable and not thread-safe.
+ */
+public class ShardPartial {
+
+    private final SortedMap<String, Long> dailyVolumes = new TreeMap<>();
+    private long highestDailyValue;
+    private final ProductVolumes productVolumes = new ProductVolumes(new ProductDictionary());
+    private final MonthStaffSales monthStaffSales = new MonthStaffSales();
+    private final long[] hourTotals = new long[DayAggregate.HOURS_PER_DAY];
+    private final long[] hourCounts = new long[DayAggregate.HOURS_PER_DAY];
+    private IngestionErrors errors = IngestionErrors.NONE;
+
+    /**
+     * Folds in the exact partial of one day file.
+     */
+    public void add(Path file, DayAggregate day) {
+        String key = DateRange.dateOf(file).map(LocalDate::toString).orElse(file.getFileName().toString());
+        addDay(key, day.totalVolume(), day.maxValue());
+        productVolumes.addAll(day.productVolumes());
+        monthStaffSales.addAll(day.monthStaffSales());
+        addHours(day.hourTotals(), day.hourCounts());
+        errors = errors.plus(day.errors());
+    }
+
+    public void merge(ShardPartial other) {
+        other.dailyVolumes.forEach((key, volume) -> addDay(key, volume, other.highestDailyValue));
+        productVolumes.addAll(other.productVolumes);
+        monthStaffSales.addAll(other.monthStaffSales);
+        addHours(other.hourTotals, other.hourCounts);
+        errors = errors.plus(other.errors);
+    }
+
+    private void addDay(String key, long volume, long maxValue) {
+        highestDailyValue = dailyVolumes.isEmpty() ? maxValue : Math.max(highestDailyValue, maxValue);
+        dailyVolumes.merge(key, volume, Amounts::add);
+    }
+
+    private void addHours(long[] totals, long[] counts) {
+        for (int hour = 0; hour < DayAggregate.HOURS_PER_DAY; hour++) {
+            hourTotals[hour] = Amounts.add(hourTotals[hour], totals[hour]);
+            hourCounts[hour] += counts[hour];
+        }
+    }
+
+    public boolean isEmpty() {
+        return dailyVolumes.isEmpty();
+    }
+
+    public IngestionErrors errors() {
+        return errors;
+    }
+
+    /**
+     * An aggregator holding the exact metrics of everything merged, as if every file of
+     * every shard had been merged into one with same-day files combined.
+     */
+    public TransactionAggregator aggregator() {
+        TransactionAggregator aggregator = new TransactionAggregator(AnalyticMetric.exact());
+        if (!dailyVolumes.isEmpty()) {
+            long highestDailyVolume = Collections.max(dailyVolumes.values());
+            // The highest daily figures stand in for the single "day" merged here
+            aggregator.merge(new DayAggregate(null, highestDailyVolume, highestDailyValue, productVolumes.compact(),
+                    monthStaffSales, hourTotals, hourCounts, null, null, null, errors));
+        }
+        return aggregator;
+    }
+
+    public ShardPartialDto toDto() {
+        Map<Long, Long> products = new HashMap<>(productVolumes.size() * 2);
+        productVolumes.forEach(products::put);
+        Map<YearMonth, Map<Long, Long>> staffByMonth = new TreeMap<>();
+        monthStaffSales.forEach((month, staffSales) -> {
+            Map<Long, Long> staff = new HashMap<>(staffSales.size() * 2);
+            staffSales.forEach(staff::put);
+            staffByMonth.put(month, staff);
+        });
+        return new ShardPartialDto(new TreeMap<>(dailyVolumes), isEmpty() ? null : highestDailyValue, products,
+                staffByMonth, hourTotals.clone(), hourCounts.clone(), errors.isEmpty() ? null : errors);
+    }
+
+    public static ShardPartial of(ShardPartialDto dto) {
+        ShardPartial partial = new ShardPartial();
+        if (dto.dailyVolumes() != null && !dto.dailyVolumes().isEmpty()) {
+            if (dto.highestDailyValue() == null) {
+                throw new IllegalArgumentException("A shard partial with days must have a highest daily value");
+            }
+            dto.dailyVolumes().forEach((key, volume) -> partial.addDay(key, volume, dto.highestDailyValue()));
+        }
+        if (dto.productVolumes() != null) {
+            dto.productVolumes().forEach(partial.productVolumes::add);
+        }
+        if (dto.monthStaffSales() != null) {
+            dto.monthStaffSales().forEach((month, staff) -> {
+                LongLongHashMap staffSales = partial.monthStaffSales.month(MonthStaffSales.epochMonth(month));
+                staff.forEach(staffSales::add);
+            });
+        }
+        if (dto.hourTotals() != null && dto.hourCounts() != null) {
+            if (dto.hourTotals().length != DayAggregate.HOURS_PER_DAY || dto.hourCounts().length != DayAggregate.HOURS_PER_DAY) {
+                throw new IllegalArgumentException("A shard partial must have " + DayAggregate.HOURS_PER_DAY + " hours");
+            }
+            partial.addHours(dto.hourTotals(), dto.hourCounts());
+        }
+        if (dto.errors() != null) {
+            partial.errors = dto.errors();
+        }
+        return partial;
+    }
+}
@@ -0,0 +1,128 @@
+package com.victor.transaction_analytic.aggregation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded selection of the {@code k} best {@code (key, value)} pairs: the highest value
+ * ranks first and, on equal values, the lowest key. Candidates are kept in a primitive
+ * min-heap of at most {@code k} entries whose root is the worst one kept, so offering
+ * {@code n} candidates costs O(n log k) time and O(k) memory.
+ */
+public class TopK {
+
+    private final int k;
+    private final long[] keys;
+    private final long[] values;
+    private int size;
+
+    public TopK(int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be at least 1, was " + k);
+        }
+        this.k = k;
+        this.keys = new long[k];
+        this.values = new long[k];
+    }
+
+    /**
+     * The {@code k} best entries of {@code map}, skipping zero totals: a key whose
+     * quantities cancel out, or whose days were taken back out of a rollup, is not ranked.
+     */
+    public static List<Map.Entry<Long, Long>> of(LongLongHashMap map, int k) {
+        TopK topK = new TopK(k);
+        map.forEach(topK::offerNonZero);
+        return topK.ranked();
+    }
+
+    /**
+     * Ranks like {@link #of(LongLongHashMap, int)}.
+     */
+    public static List<Map.Entry<Long, Long>> of(ProductVolumes volumes, int k) {
+        TopK topK = new TopK(k);
+        volumes.forEach(topK::offerNonZero);
+        return topK.ranked();
+    }
+
+    public void offer(long key, long value) {
+        if (size < k) {
+            keys[size] = key;
+            values[size] = value;
+            siftUp(size++);
+        } else if (ranksBefore(key, value, keys[0], values[0])) {
+            keys[0] = key;
+            values[0] = value;
+            siftDown(0);
+        }
+    }
+
+    private void offerNonZero(long key, long value) {
+        if (value != 0) {
+            offer(key, value);
+        }
+    }
+
+    /**
+     * The kept pairs, best first.
+     */
+    public List<Map.Entry<Long, Long>> ranked() {
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> ranksBefore(keys[a], values[a], keys[b], values[b]) ? -1
+                : ranksBefore(keys[b], values[b], keys[a], values[a]) ? 1 : 0);
+
+        List<Map.Entry<Long, Long>> ranked = new ArrayList<>(size);
+        for (int index : order) {
+            ranked.add(Map.entry(keys[index], values[index]));
+        }
+        return ranked;
+    }
+
+    private static boolean ranksBefore(long key, long value, long otherKey, long otherValue) {
+        return value > otherValue || (value == otherValue && key < otherKey);
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            // The heap keeps the worst pair at the root
+            if (!ranksBefore(keys[parent], values[parent], keys[index], values[index])) {
+                return;
+            }
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int worst = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < size && ranksBefore(keys[worst], values[worst], keys[left], values[left])) {
+                worst = left;
+            }
+            if (right < size && ranksBefore(keys[worst], values[worst], keys[right], values[right])) {
+                worst = right;
+            }
+            if (worst == index) {
+                return;
+            }
+            swap(index, worst);
+            index = worst;
+        }
+    }
+
+    private void swap(int i, int j) {
+        long key = keys[i];
+        keys[i] = keys[j];
+        keys[j] = key;
+        long value = values[i];
+        values[i] = values[j];
+        values[j] = value;
+    }
+}
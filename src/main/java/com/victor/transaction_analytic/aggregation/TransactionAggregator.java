@@ -0,0 +1,284 @@
+package com.victor.transaction_analytic.aggregation;
+
+import com.victor.transaction_analytic.dto.DistinctCountsDto;
+import com.victor.transaction_analytic.dto.IntradayBucketDto;
+import com.victor.transaction_analytic.dto.TransactionAnalyticResponseDto;
+import com.victor.transaction_analytic.helper.Amounts;
+import com.victor.transaction_analytic.sketch.DistinctCountsByMonth;
+import com.victor.transaction_analytic.sketch.HeavyHitters;
+import com.victor.transaction_analytic.sketch.SketchSettings;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.function.IntFunction;
+
+/**
+ * Folder-level accumulator for the analytic metrics. Each day file is reduced once to a
+ * {@link DayAggregate} and merged here; merging is order-independent, so partials may be
+ * produced on any thread. Instances themselves are not thread-safe.
+ */
+public class TransactionAggregator {
+
+    private final Set<AnalyticMetric> metrics;
+    private final SketchSettings sketchSettings;
+
+    private long highestDailyVolume;
+    private long highestDailyValue;
+    private boolean hasDays;
+    private final ProductVolumes productVolumeMap = new ProductVolumes();
+    private final MonthStaffSales monthStaffSalesMap = new MonthStaffSales();
+    private final long[] hourTotals = new long[DayAggregate.HOURS_PER_DAY];
+    private final long[] hourCounts = new long[DayAggregate.HOURS_PER_DAY];
+    private HeavyHitters productSketch;
+    private HeavyHitters exactDayCandidates;
+    private final List<DayProductVolumes> exactDayVolumes = new ArrayList<>();
+    private DistinctCountsByMonth distinctCounts;
+    private IntradayHistogram intradayProfile;
+    private IngestionErrors errors = IngestionErrors.NONE;
+
+    public TransactionAggregator(Set<AnalyticMetric> metrics) {
+        this(metrics, SketchSettings.DEFAULT);
+    }
+
+    public TransactionAggregator(Set<AnalyticMetric> metrics, SketchSettings sketchSettings) {
+        this.metrics = EnumSet.copyOf(metrics);
+        this.sketchSettings = sketchSettings;
+    }
+
+    public void merge(DayAggregate day) {
+        if (metrics.contains(AnalyticMetric.DAILY_VOLUME)) {
+            highestDailyVolume = hasDays ? Math.max(highestDailyVolume, day.totalVolume()) : day.totalVolume();
+        }
+        if (metrics.contains(AnalyticMetric.DAILY_MAX_VALUE)) {
+            highestDailyValue = hasDays ? Math.max(highestDailyValue, day.maxValue()) : day.maxValue();
+        }
+        hasDays = true;
+
+        if (metrics.contains(AnalyticMetric.PRODUCT_VOLUME)) {
+            productVolumeMap.addAll(day.productVolumes());
+        }
+        if (metrics.contains(AnalyticMetric.MONTH_STAFF_SALES)) {
+            monthStaffSalesMap.addAll(day.monthStaffSales());
+        }
+        if (metrics.contains(AnalyticMetric.HOURLY_VOLUME)) {
+            for (int hour = 0; hour < DayAggregate.HOURS_PER_DAY; hour++) {
+                hourTotals[hour] = Amounts.add(hourTotals[hour], day.hourTotals()[hour]);
+                hourCounts[hour] += day.hourCounts()[hour];
+            }
+        }
+        if (metrics.contains(AnalyticMetric.APPROXIMATE_PRODUCT_VOLUME) && !day.productVolumes().isEmpty()) {
+            // A day read for the exact metrics, such as a cached one, ranks by its exact sums
+            if (exactDayCandidates == null) {
+                exactDayCandidates = HeavyHitters.create(sketchSettings);
+            }
+            day.productVolumes().forEach(exactDayCandidates::add);
+            exactDayVolumes.add(day.productVolumes());
+        } else if (metrics.contains(AnalyticMetric.APPROXIMATE_PRODUCT_VOLUME) && day.productSketch() != null) {
+            if (productSketch == null) {
+                productSketch = day.productSketch().copy();
+            } else {
+                productSketch.merge(day.productSketch());
+            }
+        }
+        if (metrics.contains(AnalyticMetric.APPROXIMATE_DISTINCT_COUNTS) && day.distinctCounts() != null) {
+            if (distinctCounts == null) {
+                distinctCounts = day.distinctCounts().copy();
+            } else {
+                distinctCounts.merge(day.distinctCounts());
+            }
+        }
+        if (metrics.contains(AnalyticMetric.INTRADAY_PROFILE) && day.intradayProfile() != null) {
+            if (intradayProfile == null) {
+                intradayProfile = day.intradayProfile().copy();
+            } else {
+                intradayProfile.merge(day.intradayProfile());
+            }
+        }
+        errors = errors.plus(day.errors());
+    }
+
+    public BigDecimal highestSalesVolumeInADay() {
+        return Amounts.toBigDecimal(highestDailyVolume);
+    }
+
+    public BigDecimal highestSalesValueInADay() {
+        return Amounts.toBigDecimal(highestDailyValue);
+    }
+
+    /**
+     * On a tie the lowest product id wins.
+     */
+    public Optional<Map.Entry<Long, Long>> mostSoldProduct() {
+        return topProducts(1).stream().findFirst();
+    }
+
+    /**
+     * The {@code k} products with the highest total quantity, best first.
+     */
+    public List<Map.Entry<Long, Long>> topProducts(int k) {
+        return TopK.of(productVolumeMap, k);
+    }
+
+    /**
+     * On a tie within a month the lowest staff id wins.
+     */
+    public Map<YearMonth, Map.Entry<String, BigDecimal>> highestSalesStaffByMonth() {
+        Map<YearMonth, Map.Entry<String, BigDecimal>> highestSalesStaffMap = new HashMap<>();
+        topStaffByMonth(1).forEach((month, ranked) -> highestSalesStaffMap.put(month,
+                Map.entry(String.valueOf(ranked.get(0).getKey()), Amounts.toBigDecimal(ranked.get(0).getValue()))));
+        return highestSalesStaffMap;
+    }
+
+    /**
+     * The {@code k} staff with the highest sales of each month, best first; amounts are in
+     * thousandths. Months whose totals are all zero are left out.
+     */
+    public Map<YearMonth, List<Map.Entry<Long, Long>>> topStaffByMonth(int k) {
+        Map<YearMonth, List<Map.Entry<Long, Long>>> topStaff = new TreeMap<>();
+        monthStaffSalesMap.forEach((month, staffSales) -> {
+            List<Map.Entry<Long, Long>> ranked = TopK.of(staffSales, k);
+            if (!ranked.isEmpty()) {
+                topStaff.put(month, ranked);
+            }
+        });
+        return topStaff;
+    }
+
+    /**
+     * Averages are rounded to two decimal places before they are compared; on a tie the
+     * earliest hour wins.
+     */
+    public Optional<Map.Entry<Integer, BigDecimal>> highestHourByAverageVolume() {
+        return topHoursByAverageVolume(1).stream().findFirst();
+    }
+
+    /**
+     * The {@code k} hours with the highest average transaction volume, best first, ranked
+     * like {@link #highestHourByAverageVolume()}.
+     */
+    public List<Map.Entry<Integer, BigDecimal>> topHoursByAverageVolume(int k) {
+        TopK topK = new TopK(k);
+        for (int hour = 0; hour < DayAggregate.HOURS_PER_DAY; hour++) {
+            if (hourCounts[hour] > 0) {
+                topK.offer(hour, Amounts.roundedAverage(hourTotals[hour], hourCounts[hour]));
+            }
+        }
+        return topK.ranked().stream()
+                .map(entry -> Map.entry(entry.getKey().intValue(), BigDecimal.valueOf(entry.getValue(), 2)))
+                .toList();
+    }
+
+    /**
+     * The {@code k} products with the highest estimated quantity, best first; {@code k} is
+     * capped at the number of tracked heavy hitters. The candidates of every day are
+     * re-ranked by their exact sums over the days that carry exact volumes, plus their
+     * sketch estimate over the days read for the sketch alone, so an estimate never
+     * undercounts and overcounts by at most {@link #approximateErrorBound()}.
+     */
+    public List<Map.Entry<Long, Long>> approximateTopProducts(int k) {
+        if (productSketch == null && exactDayCandidates == null) {
+            return List.of();
+        }
+        LongLongHashMap estimates = new LongLongHashMap();
+        for (HeavyHitters hitters : new HeavyHitters[]{productSketch, exactDayCandidates}) {
+            if (hitters == null) {
+                continue;
+            }
+            for (long productId : hitters.candidates()) {
+                if (!estimates.containsKey(productId)) {
+                    estimates.add(productId, estimate(productId));
+                }
+            }
+        }
+        return TopK.of(estimates, Math.max(1, Math.min(k, sketchSettings.heavyHitters())));
+    }
+
+    private long estimate(long productId) {
+        long estimate = productSketch == null ? 0 : productSketch.estimate(productId);
+        for (DayProductVolumes day : exactDayVolumes) {
+            estimate += day.get(productId, 0);
+        }
+        return estimate;
+    }
+
+    /**
+     * The most an estimate of {@link #approximateTopProducts(int)} can exceed the true
+     * quantity by, with the configured confidence; zero when every day carried exact
+     * volumes.
+     */
+    public long approximateErrorBound() {
+        return productSketch == null ? 0 : productSketch.errorBound();
+    }
+
+    public Map<YearMonth, DistinctCountsDto> approximateDistinctCountsByMonth() {
+        Map<YearMonth, DistinctCountsDto> counts = new TreeMap<>();
+        if (distinctCounts != null) {
+            distinctCounts.forEach((month, products, staff) ->
+                    counts.put(month, new DistinctCountsDto(products.estimate(), staff.estimate())));
+        }
+        return counts;
+    }
+
+    /**
+     * Count, sum and average per bucket of {@code bucketMinutes} over every day, from
+     * midnight on; empty when nothing was merged.
+     */
+    public List<IntradayBucketDto> intradayProfile(int bucketMinutes) {
+        return intradayProfile(bucketMinutes, epochDay -> Boolean.TRUE).values().stream()
+                .findFirst()
+                .orElse(List.of());
+    }
+
+    public Map<DayOfWeek, List<IntradayBucketDto>> intradayProfileByDayOfWeek(int bucketMinutes) {
+        return intradayProfile(bucketMinutes, epochDay -> LocalDate.ofEpochDay(epochDay).getDayOfWeek());
+    }
+
+    public Map<YearMonth, List<IntradayBucketDto>> intradayProfileByMonth(int bucketMinutes) {
+        return intradayProfile(bucketMinutes,
+                epochDay -> MonthStaffSales.toYearMonth(MonthStaffSales.epochMonthOfDay(epochDay)));
+    }
+
+    private <K extends Comparable<? super K>> Map<K, List<IntradayBucketDto>> intradayProfile(
+            int bucketMinutes, IntFunction<K> groupOfDay) {
+        Map<K, List<IntradayBucketDto>> profiles = new TreeMap<>();
+        if (intradayProfile != null) {
+            intradayProfile.fold(bucketMinutes, groupOfDay).forEach((group, buckets) -> {
+                int bucketCount = buckets.length / 2;
+                List<IntradayBucketDto> profile = new ArrayList<>(bucketCount);
+                for (int i = 0; i < bucketCount; i++) {
+                    long count = buckets[bucketCount + i];
+                    profile.add(new IntradayBucketDto(LocalTime.ofSecondOfDay(i * bucketMinutes * 60L).toString(),
+                            count, Amounts.toBigDecimal(buckets[i]),
+                            count == 0 ? null : Amounts.averageToBigDecimal(buckets[i], count)));
+                }
+                profiles.put(group, profile);
+            });
+        }
+        return profiles;
+    }
+
+    /**
+     * Malformed lines and unreadable files met by the merged days.
+     */
+    public IngestionErrors errors() {
+        return errors;
+    }
+
+    public TransactionAnalyticResponseDto toResponseDto() {
+        Map<YearMonth, String> staffs = new HashMap<>();
+        highestSalesStaffByMonth().forEach((month, staff) -> staffs.put(month, staff.getKey()));
+
+        return new TransactionAnalyticResponseDto(
+                highestSalesVolumeInADay(),
+                highestSalesValueInADay(),
+                mostSoldProduct().map(product -> String.valueOf(product.getKey())).orElse(null),
+                staffs,
+                highestHourByAverageVolume().map(Map.Entry::getKey).orElse(-1),
+                errors.isEmpty() ? null : errors
+        );
+    }
+}
@@ -0,0 +1,128 @@
+package com.victor.transaction_analytic.cache;
+
+import com.victor.transaction_analytic.aggregation.DayAggregate;
+import com.victor.transaction_analytic.config.AnalyticProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Bounded cache of per-day partials. Entries are keyed by absolute path and only served
+ * while the file still has the size and last-modified time it had when it was parsed.
+ * Cached partials always hold every metric, so any request can be answered from them.
+ */
+@Component
+public class DayAggregateCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(DayAggregateCache.class);
+
+    private final AnalyticProperties.Cache config;
+    private final LinkedHashMap<Path, CacheEntry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long retainedSize;
+
+    private record CacheEntry(FileStamp stamp, DayAggregate aggregate, long size) {
+    }
+
+    public DayAggregateCache(AnalyticProperties properties) {
+        this.config = properties.getCache();
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    public synchronized Optional<DayAggregate> get(FileStamp stamp) {
+        CacheEntry entry = entries.get(stamp.path());
+        if (entry == null) {
+            return Optional.empty();
+        }
+        if (!entry.stamp().equals(stamp)) {
+            remove(stamp.path());
+            return Optional.empty();
+        }
+        return Optional.of(entry.aggregate());
+    }
+
+    public synchronized void put(FileStamp stamp, DayAggregate aggregate) {
+        remove(stamp.path());
+        CacheEntry entry = new CacheEntry(stamp, aggregate, aggregate.estimatedSize());
+        entries.put(stamp.path(), entry);
+        retainedSize += entry.size();
+        evict();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void remove(Path path) {
+        CacheEntry removed = entries.remove(path);
+        if (removed != null) {
+            retainedSize -= removed.size();
+        }
+    }
+
+    private void evict() {
+        Iterator<CacheEntry> eldest = entries.values().iterator();
+        while (eldest.hasNext() && isOverCapacity()) {
+            retainedSize -= eldest.next().size();
+            eldest.remove();
+        }
+    }
+
+    private boolean isOverCapacity() {
+        return switch (config.getEviction()) {
+            case LRU -> entries.size() > config.getMaxEntries();
+            case SIZE -> retainedSize > config.getMaxSize().toBytes();
+        };
+    }
+
+    @PostConstruct
+    void restoreSnapshot() {
+        Optional<Path> snapshot = snapshotPath();
+        if (snapshot.isEmpty() || !Files.exists(snapshot.get())) {
+            return;
+        }
+        try {
+            Map<FileStamp, DayAggregate> restored = DayAggregateSnapshot.read(snapshot.get());
+            synchronized (this) {
+                restored.forEach(this::put);
+            }
+            logger.info("Restored {} cached day aggregates from {}", restored.size(), snapshot.get());
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Ignoring unreadable cache snapshot {}", snapshot.get(), e);
+        }
+    }
+
+    @PreDestroy
+    void writeSnapshot() {
+        Optional<Path> snapshot = snapshotPath();
+        if (snapshot.isEmpty()) {
+            return;
+        }
+        Map<FileStamp, DayAggregate> current = new LinkedHashMap<>();
+        synchronized (this) {
+            entries.values().forEach(entry -> current.put(entry.stamp(), entry.aggregate()));
+        }
+        try {
+            DayAggregateSnapshot.write(snapshot.get(), current);
+            logger.info("Wrote {} cached day aggregates to {}", current.size(), snapshot.get());
+        } catch (IOException e) {
+            logger.error("Could not write cache snapshot {}", snapshot.get(), e);
+        }
+    }
+
+    private Optional<Path> snapshotPath() {
+        if (!config.isEnabled() || config.getSnapshotPath() == null || config.getSnapshotPath().isBlank()) {
+            return Optional.empty();
+        }
+        return Optional.of(Path.of(config.getSnapshotPath()));
+    }
+}
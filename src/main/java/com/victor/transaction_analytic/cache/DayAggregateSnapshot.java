@@ -0,0 +1,196 @@
+package com.victor.transaction_analytic.cache;
+
+import com.victor.transaction_analytic.aggregation.DayAggregate;
+import com.victor.transaction_analytic.aggregation.IngestionErrors;
+import com.victor.transaction_analytic.aggregation.LongLongHashMap;
+import com.victor.transaction_analytic.aggregation.MonthStaffSales;
+import com.victor.transaction_analytic.aggregation.DayProductVolumes;
+import com.victor.transaction_analytic.aggregation.ProductDictionary;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compact binary snapshot of cached day partials: a gzip stream of fixed-width fields with
+ * a magic number and a version, so a snapshot from an incompatible build is ignored.
+ * Sketches and intraday profiles are not persisted: their shape depends on the configured
+ * error bounds and bucket width, so they are rebuilt on the first request for them after
+ * a restart.
+ */
+public final class DayAggregateSnapshot {
+
+    private static final int MAGIC = 0x54584341; // "TXCA"
+    private static final int VERSION = 3;
+
+    private DayAggregateSnapshot() {
+    }
+
+    public static void write(Path target, Map<FileStamp, DayAggregate> entries) throws IOException {
+        Path parent = target.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new GZIPOutputStream(Files.newOutputStream(temp))))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(entries.size());
+            for (Map.Entry<FileStamp, DayAggregate> entry : entries.entrySet()) {
+                writeStamp(out, entry.getKey());
+                writeAggregate(out, entry.getValue());
+            }
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static Map<FileStamp, DayAggregate> read(Path source) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(source))))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Unsupported cache snapshot format: " + source);
+            }
+            int count = in.readInt();
+            Map<FileStamp, DayAggregate> entries = new LinkedHashMap<>();
+            for (int i = 0; i < count; i++) {
+                FileStamp stamp = readStamp(in);
+                entries.put(stamp, readAggregate(in, ProductDictionary.forFile(stamp.path())));
+            }
+            return entries;
+        }
+    }
+
+    private static void writeStamp(DataOutputStream out, FileStamp stamp) throws IOException {
+        out.writeUTF(stamp.path().toString());
+        out.writeLong(stamp.size());
+        out.writeLong(stamp.lastModified());
+    }
+
+    private static FileStamp readStamp(DataInputStream in) throws IOException {
+        return new FileStamp(Path.of(in.readUTF()), in.readLong(), in.readLong());
+    }
+
+    private static void writeAggregate(DataOutputStream out, DayAggregate day) throws IOException {
+        out.writeUTF(day.fileName());
+        out.writeLong(day.totalVolume());
+        out.writeLong(day.maxValue());
+
+        writeProducts(out, day.productVolumes());
+
+        List<Map.Entry<YearMonth, LongLongHashMap>> months = new ArrayList<>();
+        day.monthStaffSales().forEach((month, staffSales) -> months.add(Map.entry(month, staffSales)));
+        out.writeInt(months.size());
+        for (Map.Entry<YearMonth, LongLongHashMap> month : months) {
+            out.writeInt(MonthStaffSales.epochMonth(month.getKey()));
+            writeMap(out, month.getValue());
+        }
+
+        for (int hour = 0; hour < DayAggregate.HOURS_PER_DAY; hour++) {
+            out.writeLong(day.hourTotals()[hour]);
+            out.writeLong(day.hourCounts()[hour]);
+        }
+
+        writeErrors(out, day.errors());
+    }
+
+    private static DayAggregate readAggregate(DataInputStream in, ProductDictionary dictionary) throws IOException {
+        String fileName = in.readUTF();
+        long totalVolume = in.readLong();
+        long maxValue = in.readLong();
+
+        DayProductVolumes productVolumes = readProducts(in, dictionary);
+
+        int monthCount = in.readInt();
+        MonthStaffSales monthStaffSales = new MonthStaffSales();
+        for (int i = 0; i < monthCount; i++) {
+            int epochMonth = in.readInt();
+            monthStaffSales.month(epochMonth).addAll(readMap(in));
+        }
+
+        long[] hourTotals = new long[DayAggregate.HOURS_PER_DAY];
+        long[] hourCounts = new long[DayAggregate.HOURS_PER_DAY];
+        for (int hour = 0; hour < DayAggregate.HOURS_PER_DAY; hour++) {
+            hourTotals[hour] = in.readLong();
+            hourCounts[hour] = in.readLong();
+        }
+
+        return new DayAggregate(fileName, totalVolume, maxValue, productVolumes, monthStaffSales, hourTotals, hourCounts,
+                null, null, null, readErrors(in));
+    }
+
+    private static void writeErrors(DataOutputStream out, IngestionErrors errors) throws IOException {
+        out.writeLong(errors.malformedLines());
+        out.writeLong(errors.unreadableFiles());
+        out.writeInt(errors.samples().size());
+        for (IngestionErrors.Sample sample : errors.samples()) {
+            out.writeUTF(sample.file());
+            out.writeLong(sample.offset() == null ? -1 : sample.offset());
+            out.writeUTF(Objects.toString(sample.reason(), ""));
+            out.writeUTF(Objects.toString(sample.line(), ""));
+        }
+    }
+
+    private static IngestionErrors readErrors(DataInputStream in) throws IOException {
+        long malformedLines = in.readLong();
+        long unreadableFiles = in.readLong();
+        int sampleCount = in.readInt();
+        List<IngestionErrors.Sample> samples = new ArrayList<>(sampleCount);
+        for (int i = 0; i < sampleCount; i++) {
+            String file = in.readUTF();
+            long offset = in.readLong();
+            String reason = in.readUTF();
+            String line = in.readUTF();
+            samples.add(new IngestionErrors.Sample(file, offset < 0 ? null : offset,
+                    reason.isEmpty() ? null : reason, line.isEmpty() ? null : line));
+        }
+        return malformedLines == 0 && unreadableFiles == 0
+                ? IngestionErrors.NONE
+                : new IngestionErrors(malformedLines, unreadableFiles, List.copyOf(samples));
+    }
+
+    private static void writeProducts(DataOutputStream out, DayProductVolumes products) throws IOException {
+        long[] entries = new long[products.size() * 2];
+        int[] index = {0};
+        products.forEach((productId, quantity) -> {
+            entries[index[0]++] = productId;
+            entries[index[0]++] = quantity;
+        });
+        out.writeInt(products.size());
+        for (long entry : entries) {
+            out.writeLong(entry);
+        }
+    }
+
+    private static DayProductVolumes readProducts(DataInputStream in, ProductDictionary dictionary) throws IOException {
+        return DayProductVolumes.of(readMap(in), dictionary);
+    }
+
+    private static void writeMap(DataOutputStream out, LongLongHashMap map) throws IOException {
+        long[] entries = new long[map.size() * 2];
+        int[] index = {0};
+        map.forEach((key, value) -> {
+            entries[index[0]++] = key;
+            entries[index[0]++] = value;
+        });
+        out.writeInt(map.size());
+        for (long entry : entries) {
+            out.writeLong(entry);
+        }
+    }
+
+    private static LongLongHashMap readMap(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        LongLongHashMap map = new LongLongHashMap(size);
+        for (int i = 0; i < size; i++) {
+            map.add(in.readLong(), in.readLong());
+        }
+        return map;
+    }
+}
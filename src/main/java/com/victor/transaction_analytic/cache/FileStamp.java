@@ -0,0 +1,18 @@
+package com.victor.transaction_analytic.cache;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Identity of a file's content as far as the cache is concerned: a file whose size or
+ * last-modified time changed is treated as a new file.
+ */
+public record FileStamp(Path path, long size, long lastModified) {
+
+    public static FileStamp of(Path file) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        return new FileStamp(file.toAbsolutePath().normalize(), attributes.size(), attributes.lastModifiedTime().toMillis());
+    }
+}
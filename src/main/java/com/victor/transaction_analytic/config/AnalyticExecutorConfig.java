@@ -0,0 +1,46 @@
+package com.victor.transaction_analytic.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+@EnableConfigurationProperties(AnalyticProperties.class)
+public class AnalyticExecutorConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalyticExecutorConfig.class);
+
+    /**
+     * Bounded pool shared by every folder request for per-file work. In sequential mode
+     * tasks simply run on the calling thread. Pools are shut down with the context.
+     */
+    @Bean
+    public Executor analyticExecutor(AnalyticProperties properties) {
+        AnalyticProperties.Executor config = properties.getExecutor();
+        int parallelism = config.getParallelism() > 0
+                ? config.getParallelism()
+                : Runtime.getRuntime().availableProcessors();
+
+        logger.info("Analytic executor: {} with parallelism {}", config.getType(), parallelism);
+
+        return switch (config.getType()) {
+            case SEQUENTIAL -> Runnable::run;
+            case FORK_JOIN -> new ForkJoinPool(parallelism);
+            case FIXED -> {
+                AtomicInteger threadCount = new AtomicInteger();
+                yield Executors.newFixedThreadPool(parallelism, runnable -> {
+                    Thread thread = new Thread(runnable, "analytic-worker-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+        };
+    }
+}
@@ -0,0 +1,231 @@
+package com.victor.transaction_analytic.config;
+
+import com.victor.transaction_analytic.sketch.SketchSettings;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "transaction-analytic")
+public class AnalyticProperties {
+
+    private Executor executor = new Executor();
+    private Ingestion ingestion = new Ingestion();
+    private Cache cache = new Cache();
+    private Approximate approximate = new Approximate();
+    private Intraday intraday = new Intraday();
+    private Stream stream = new Stream();
+    private Jobs jobs = new Jobs();
+    private Errors errors = new Errors();
+    private ScatterGather scatterGather = new ScatterGather();
+    private Preload preload = new Preload();
+
+    @Getter
+    @Setter
+    public static class Executor {
+        /**
+         * How day files of a folder are processed: one after another on the request
+         * thread, on a work-stealing fork-join pool, or on a fixed thread pool.
+         */
+        private ExecutorType type = ExecutorType.FORK_JOIN;
+        /**
+         * Maximum number of files processed at once. Zero or less uses the number of
+         * available processors.
+         */
+        private int parallelism = 0;
+    }
+
+    @Getter
+    @Setter
+    public static class Ingestion {
+        /**
+         * How day files are read: streamed through a buffer of {@code readBufferSize}, or
+         * read-only memory mapping served from the page cache.
+         */
+        private IngestionMode mode = IngestionMode.READ;
+        /**
+         * In mmap mode, files larger than this are cut at line boundaries into chunks that
+         * different workers parse in parallel.
+         */
+        private DataSize chunkSize = DataSize.ofMegabytes(64);
+        /**
+         * In read mode, files are streamed through a buffer of this size instead of being
+         * read whole, so a day file of any size is aggregated in a small heap.
+         */
+        private DataSize readBufferSize = DataSize.ofMegabytes(1);
+    }
+
+    @Getter
+    @Setter
+    public static class Cache {
+        /**
+         * Keep the per-day partial of every file parsed, keyed by path, size and
+         * last-modified time, so unchanged files are never parsed twice.
+         */
+        private boolean enabled = true;
+        /**
+         * Evict the least recently used entry beyond max-entries, or beyond an estimated
+         * max-size of retained aggregates.
+         */
+        private CacheEviction eviction = CacheEviction.LRU;
+        private int maxEntries = 4096;
+        private DataSize maxSize = DataSize.ofMegabytes(256);
+        /**
+         * File the cache is restored from at startup and written to at shutdown. Empty
+         * disables persistence.
+         */
+        private String snapshotPath = "";
+    }
+
+    @Getter
+    @Setter
+    public static class Approximate {
+        /**
+         * Count-Min estimates of product quantities exceed the true quantity by at most
+         * this fraction of the total quantity, with the given confidence.
+         */
+        private double countMinEpsilon = 0.001;
+        private double countMinConfidence = 0.99;
+        /**
+         * Candidate top products tracked per day and per folder; bounds k for approximate
+         * leaderboards.
+         */
+        private int heavyHitters = 100;
+        /**
+         * Standard error of the HyperLogLog distinct product and staff counts.
+         */
+        private double distinctRelativeError = 0.01;
+
+        public SketchSettings toSketchSettings() {
+            return new SketchSettings(countMinEpsilon, countMinConfidence, heavyHitters, distinctRelativeError);
+        }
+    }
+
+    @Getter
+    @Setter
+    public static class Intraday {
+        /**
+         * Width of the buckets each day's transactions are counted and summed in for
+         * intraday profiles. Must divide a day into whole minutes; profiles can be asked
+         * for at any multiple of it.
+         */
+        private Duration bucketWidth = Duration.ofMinutes(15);
+    }
+
+    @Getter
+    @Setter
+    public static class Stream {
+        /**
+         * Streamed analyses running at once, each on its own thread; further requests are
+         * rejected until one finishes.
+         */
+        private int maxConcurrent = 4;
+        /**
+         * Minimum time between running results attached to progress events.
+         */
+        private Duration partialInterval = Duration.ofMillis(500);
+        /**
+         * Streams still open after this long are closed by the server.
+         */
+        private Duration timeout = Duration.ofMinutes(30);
+    }
+
+    @Getter
+    @Setter
+    public static class Jobs {
+        /**
+         * Analysis jobs running at once, and jobs allowed to wait for a worker; submissions
+         * beyond both are rejected.
+         */
+        private int workers = 2;
+        private int queueCapacity = 16;
+        /**
+         * How long a finished job and its result can still be fetched.
+         */
+        private Duration resultTtl = Duration.ofMinutes(10);
+    }
+
+    @Getter
+    @Setter
+    public static class Errors {
+        /**
+         * What a malformed line does to a request: skipped and reported with the result,
+         * or failing the request at once. Under skip, unreadable files are reported as
+         * well; under fail they fail the request.
+         */
+        private ErrorPolicy policy = ErrorPolicy.SKIP;
+        /**
+         * Under skip, a request is aborted once more lines than this were malformed.
+         */
+        private long maxMalformedLines = 10_000;
+    }
+
+    @Getter
+    @Setter
+    public static class ScatterGather {
+        /**
+         * Base URLs of the peer instances a coordinator may ask for partials. A shard
+         * naming any other peer is rejected, so requests cannot send this instance to
+         * arbitrary hosts. Empty allows local folders only.
+         */
+        private List<String> peers = new ArrayList<>();
+        /**
+         * Requests to peer instances in flight at once; further peer shards wait.
+         */
+        private int peerConcurrency = 8;
+        private Duration peerConnectTimeout = Duration.ofSeconds(5);
+        /**
+         * How long a peer may take to return its partial.
+         */
+        private Duration peerReadTimeout = Duration.ofMinutes(5);
+    }
+
+    @Getter
+    @Setter
+    public static class Preload {
+        /**
+         * Folders analysed at startup, before the instance reports ready, so their day
+         * partials are cached and their files are in the page cache.
+         */
+        private List<String> folders = new ArrayList<>();
+        /**
+         * Watch the preloaded folders instead of only analysing them, so queries without
+         * dates are answered from their rollups.
+         */
+        private boolean watch = false;
+        /**
+         * Before preloading, run generated day files through the parser and every
+         * aggregation path so the JIT has compiled them by the first request.
+         */
+        private boolean warmUp = true;
+        private int warmUpFiles = 20;
+        private int warmUpRowsPerFile = 5_000;
+    }
+
+    public enum ExecutorType {
+        SEQUENTIAL,
+        FORK_JOIN,
+        FIXED
+    }
+
+    public enum CacheEviction {
+        LRU,
+        SIZE
+    }
+
+    public enum ErrorPolicy {
+        SKIP,
+        FAIL
+    }
+
+    public enum IngestionMode {
+        READ,
+        MMAP
+    }
+}
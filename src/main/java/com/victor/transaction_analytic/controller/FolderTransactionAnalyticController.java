@@ -1,57 +1,299 @@
 package com.victor.transaction_analytic.controller;
 
+import com.victor.transaction_analytic.dto.AnalysisJobDto;
+import com.victor.transaction_analytic.dto.DistinctCountsDto;
+import com.victor.transaction_analytic.dto.DrillDownDto;
+import com.victor.transaction_analytic.dto.IntradayBucketDto;
+import com.victor.transaction_analytic.dto.RankedEntryDto;
 import com.victor.transaction_analytic.dto.TransactionAnalyticResponseDto;
+import com.victor.transaction_analytic.exception.InvalidRequestException;
+import com.victor.transaction_analytic.helper.DateRange;
+import com.victor.transaction_analytic.service.AnalysisJobService;
+import com.victor.transaction_analytic.service.AnalysisStreamService;
 import com.victor.transaction_analytic.service.FolderTransactionAnalyticService;
+import com.victor.transaction_analytic.service.FolderWatchService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.net.URI;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
 import java.time.YearMonth;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/transaction-analysis")
 public class FolderTransactionAnalyticController {
 
+    private static final int MAX_K = 1000;
+
     private final FolderTransactionAnalyticService folderAnalyticService;
+    private final FolderWatchService folderWatchService;
+    private final AnalysisStreamService analysisStreamService;
+    private final AnalysisJobService analysisJobService;
 
-    public FolderTransactionAnalyticController(FolderTransactionAnalyticService folderAnalyticService) {
+    public FolderTransactionAnalyticController(FolderTransactionAnalyticService folderAnalyticService,
+                                               FolderWatchService folderWatchService,
+                                               AnalysisStreamService analysisStreamService,
+                                               AnalysisJobService analysisJobService) {
         this.folderAnalyticService = folderAnalyticService;
+        this.folderWatchService = folderWatchService;
+        this.analysisStreamService = analysisStreamService;
+        this.analysisJobService = analysisJobService;
     }
 
     @PostMapping("analyze-transactions")
-    public ResponseEntity<TransactionAnalyticResponseDto> analyzeTransactions(@RequestParam String folderPath) {
-        return ResponseEntity.ok(folderAnalyticService.analyzeTransactions(folderPath));
+    public ResponseEntity<TransactionAnalyticResponseDto> analyzeTransactions(
+            @RequestParam String folderPath,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) YearMonth month) throws IOException {
+        DateRange range = DateRange.of(from, to, month);
+        // Watched folders are kept up to date in the background, for the whole folder only
+        Optional<TransactionAnalyticResponseDto> watched = range.isUnbounded()
+                ? folderWatchService.currentAnalysis(folderPath)
+                : Optional.empty();
+        return ResponseEntity.ok(watched.isPresent()
+                ? watched.get()
+                : folderAnalyticService.analyzeTransactions(folderPath, range));
+    }
+
+    @PostMapping(value = "analyze-transactions/stream", produces = "application/x-ndjson")
+    public ResponseEntity<ResponseBodyEmitter> streamAnalyzeTransactions(
+            @RequestParam String folderPath,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) YearMonth month) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(analysisStreamService.streamNdjson(folderPath, DateRange.of(from, to, month)));
+    }
+
+    @PostMapping(value = "analyze-transactions/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamAnalyzeTransactionEvents(
+            @RequestParam String folderPath,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) YearMonth month) {
+        return analysisStreamService.streamEvents(folderPath, DateRange.of(from, to, month));
+    }
+
+    @PostMapping("/jobs")
+    public ResponseEntity<AnalysisJobDto> submitAnalysisJob(
+            @RequestParam String folderPath,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) YearMonth month) {
+        AnalysisJobDto job = analysisJobService.submit(folderPath, DateRange.of(from, to, month));
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/transaction-analysis/jobs/" + job.id()))
+                .body(job);
+    }
+
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<AnalysisJobDto> analysisJob(@PathVariable String id) {
+        return ResponseEntity.of(analysisJobService.status(id));
+    }
+
+    /**
+     * The result once the job succeeded; otherwise the job itself, with 202 while it is
+     * unfinished and 500 if it failed.
+     */
+    @GetMapping("/jobs/{id}/result")
+    public ResponseEntity<?> analysisJobResult(@PathVariable String id) {
+        Optional<AnalysisJobDto> job = analysisJobService.status(id);
+        if (job.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return switch (job.get().status()) {
+            case SUCCEEDED -> ResponseEntity.of(analysisJobService.result(id));
+            case FAILED -> ResponseEntity.internalServerError().body(job.get());
+            case QUEUED, RUNNING -> ResponseEntity.accepted().body(job.get());
+        };
+    }
+
+    @PostMapping("/watch")
+    public ResponseEntity<TransactionAnalyticResponseDto> watchFolder(@RequestParam String folderPath) throws IOException {
+        return ResponseEntity.ok(folderWatchService.watch(folderPath));
+    }
+
+    @DeleteMapping("/watch")
+    public ResponseEntity<Void> unwatchFolder(@RequestParam String folderPath) {
+        return folderWatchService.unwatch(folderPath)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
     }
 
     @PostMapping("/highest-sales-volume")
-    public ResponseEntity<BigDecimal> highestSalesVolumeInADay(@RequestParam String folderPath) {
-        BigDecimal highestSalesVolume = folderAnalyticService.highestSalesVolumeInADay(folderPath, false, List.of());
+    public ResponseEntity<BigDecimal> highestSalesVolumeInADay(
+            @RequestParam String folderPath,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) YearMonth month) throws IOException {
+        BigDecimal highestSalesVolume = folderAnalyticService.highestSalesVolumeInADay(folderPath, false, List.of(),
+                DateRange.of(from, to, month));
         return ResponseEntity.ok(highestSalesVolume);
     }
 
     @PostMapping("/highest-sales-value")
-    public ResponseEntity<BigDecimal> highestSaleValueInADay(@RequestParam String folderPath) {
-        BigDecimal highestSales = folderAnalyticService.highestSaleValueInADay(folderPath, false, List.of());
+    public ResponseEntity<BigDecimal> highestSaleValueInADay(
+            @RequestParam String folderPath,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) YearMonth month) throws IOException {
+        BigDecimal highestSales = folderAnalyticService.highestSaleValueInADay(folderPath, false, List.of(),
+                DateRange.of(from, to, month));
         return ResponseEntity.ok(highestSales);
     }
 
     @PostMapping("/most-sold-product")
-    public ResponseEntity<String> mostSoldProductByVolume(@RequestParam String folderPath) {
-        String mostSoldProduct = folderAnalyticService.mostSoldProductByVolume(folderPath, false, List.of());
+    public ResponseEntity<String> mostSoldProductByVolume(
+            @RequestParam String folderPath,
+            @RequestParam(defaultValue = "false") boolean approximate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) YearMonth month) throws IOException {
+        DateRange range = DateRange.of(from, to, month);
+        String mostSoldProduct = approximate
+                ? folderAnalyticService.topProductsByVolume(folderPath, 1, true, range).stream()
+                        .findFirst().map(RankedEntryDto::key).orElse(null)
+                : folderAnalyticService.mostSoldProductByVolume(folderPath, false, List.of(), range);
         return ResponseEntity.ok(mostSoldProduct);
     }
 
     @PostMapping("/highest-sales-staff-by-month")
-    public ResponseEntity<Map<YearMonth, String>> highestSalesStaffByMonth(@RequestParam String folderPath) {
-        Map<YearMonth, String> highestSalesStaffMap = folderAnalyticService.highestSalesStaffByMonth(folderPath, false, List.of());
+    public ResponseEntity<Map<YearMonth, String>> highestSalesStaffByMonth(
+            @RequestParam String folderPath,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) YearMonth month) throws IOException {
+        Map<YearMonth, String> highestSalesStaffMap = folderAnalyticService.highestSalesStaffByMonth(folderPath, false, List.of(),
+                DateRange.of(from, to, month));
         return ResponseEntity.ok(highestSalesStaffMap);
     }
 
     @PostMapping("/highest-hour-by-average-volume")
-    public ResponseEntity<Integer> highestHourByAverageTransactionVolume(@RequestParam String folderPath) {
-        int highestHour = folderAnalyticService.highestHourByAverageTransactionVolume(folderPath, false, List.of());
+    public ResponseEntity<Integer> highestHourByAverageTransactionVolume(
+            @RequestParam String folderPath,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) YearMonth month) throws IOException {
+        int highestHour = folderAnalyticService.highestHourByAverageTransactionVolume(folderPath, false, List.of(),
+                DateRange.of(from, to, month));
         return ResponseEntity.ok(highestHour);
     }
+
+    @PostMapping("/top-products")
+    public ResponseEntity<List<RankedEntryDto>> topProductsByVolume(
+            @RequestParam String folderPath,
+            @RequestParam(defaultValue = "10") int k,
+            @RequestParam(defaultValue = "false") boolean approximate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) YearMonth month) throws IOException {
+        return ResponseEntity.ok(folderAnalyticService.topProductsByVolume(folderPath, validK(k), approximate,
+                DateRange.of(from, to, month)));
+    }
+
+    @PostMapping("/top-sales-staff-by-month")
+    public ResponseEntity<Map<YearMonth, List<RankedEntryDto>>> topSalesStaffByMonth(
+            @RequestParam String folderPath,
+            @RequestParam(defaultValue = "10") int k,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) YearMonth month) throws IOException {
+        return ResponseEntity.ok(folderAnalyticService.topSalesStaffByMonth(folderPath, validK(k),
+                DateRange.of(from, to, month)));
+    }
+
+    @PostMapping("/top-hours-by-average-volume")
+    public ResponseEntity<List<RankedEntryDto>> topHoursByAverageTransactionVolume(
+            @RequestParam String folderPath,
+            @RequestParam(defaultValue = "10") int k,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) YearMonth month) throws IOException {
+        return ResponseEntity.ok(folderAnalyticService.topHoursByAverageTransactionVolume(folderPath, validK(k),
+                DateRange.of(from, to, month)));
+    }
+
+    @PostMapping("/approximate/distinct-counts-by-month")
+    public ResponseEntity<Map<YearMonth, DistinctCountsDto>> approximateDistinctCountsByMonth(
+            @RequestParam String folderPath,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) YearMonth month) throws IOException {
+        return ResponseEntity.ok(folderAnalyticService.approximateDistinctCountsByMonth(folderPath,
+                DateRange.of(from, to, month)));
+    }
+
+    @PostMapping("/profiles/hourly")
+    public ResponseEntity<List<IntradayBucketDto>> intradayProfile(
+            @RequestParam String folderPath,
+            @RequestParam(defaultValue = "60") int bucketMinutes,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) YearMonth month) throws IOException {
+        return ResponseEntity.ok(folderAnalyticService.intradayProfile(folderPath, bucketMinutes,
+                DateRange.of(from, to, month)));
+    }
+
+    @PostMapping("/profiles/day-of-week-hourly")
+    public ResponseEntity<Map<DayOfWeek, List<IntradayBucketDto>>> intradayProfileByDayOfWeek(
+            @RequestParam String folderPath,
+            @RequestParam(defaultValue = "60") int bucketMinutes,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) YearMonth month) throws IOException {
+        return ResponseEntity.ok(folderAnalyticService.intradayProfileByDayOfWeek(folderPath, bucketMinutes,
+                DateRange.of(from, to, month)));
+    }
+
+    @PostMapping("/profiles/monthly-hourly")
+    public ResponseEntity<Map<YearMonth, List<IntradayBucketDto>>> intradayProfileByMonth(
+            @RequestParam String folderPath,
+            @RequestParam(defaultValue = "60") int bucketMinutes,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) YearMonth month) throws IOException {
+        return ResponseEntity.ok(folderAnalyticService.intradayProfileByMonth(folderPath, bucketMinutes,
+                DateRange.of(from, to, month)));
+    }
+
+    @PostMapping("/drill-down/staff/{staffId}")
+    public ResponseEntity<DrillDownDto> staffDrillDown(
+            @PathVariable long staffId,
+            @RequestParam String folderPath,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) YearMonth month) throws IOException {
+        return ResponseEntity.ok(folderAnalyticService.staffDrillDown(folderPath, staffId,
+                DateRange.of(from, to, month)));
+    }
+
+    @PostMapping("/drill-down/products/{productId}")
+    public ResponseEntity<DrillDownDto> productDrillDown(
+            @PathVariable long productId,
+            @RequestParam String folderPath,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) YearMonth month) throws IOException {
+        return ResponseEntity.ok(folderAnalyticService.productDrillDown(folderPath, productId,
+                DateRange.of(from, to, month)));
+    }
+
+    private static int validK(int k) {
+        if (k < 1 || k > MAX_K) {
+            throw new InvalidRequestException("'k' must be between 1 and " + MAX_K);
+        }
+        return k;
+    }
 }
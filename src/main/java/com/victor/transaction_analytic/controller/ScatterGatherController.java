@@ -0,0 +1,46 @@
+package com.victor.transaction_analytic.controller;
+
+import com.victor.transaction_analytic.dto.ScatterGatherRequestDto;
+import com.victor.transaction_analytic.dto.ShardPartialDto;
+import com.victor.transaction_analytic.dto.TransactionAnalyticResponseDto;
+import com.victor.transaction_analytic.helper.DateRange;
+import com.victor.transaction_analytic.service.ScatterGatherService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+@RestController
+@RequestMapping("/api/transaction-analysis")
+public class ScatterGatherController {
+
+    private final ScatterGatherService scatterGatherService;
+
+    public ScatterGatherController(ScatterGatherService scatterGatherService) {
+        this.scatterGatherService = scatterGatherService;
+    }
+
+    @PostMapping("/scatter-gather")
+    public ResponseEntity<TransactionAnalyticResponseDto> analyzeShards(
+            @RequestBody ScatterGatherRequestDto request,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) YearMonth month) throws IOException {
+        return ResponseEntity.ok(scatterGatherService.analyze(request.shards(), DateRange.of(from, to, month)));
+    }
+
+    /**
+     * Internal: the mergeable partial of a folder of this instance, for a coordinator.
+     */
+    @PostMapping("/internal/partial")
+    public ResponseEntity<ShardPartialDto> shardPartial(
+            @RequestParam String folderPath,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) YearMonth month) throws IOException {
+        return ResponseEntity.ok(scatterGatherService.partial(folderPath, DateRange.of(from, to, month)));
+    }
+}
@@ -0,0 +1,11 @@
+package com.victor.transaction_analytic.dto;
+
+/**
+ * One line of an NDJSON analysis stream: {@code progress}, then a final {@code result} or
+ * {@code error}. Server-sent events carry the same names as the event type.
+ */
+public record AnalysisEventDto(
+        String event,
+        Object data
+) {
+}
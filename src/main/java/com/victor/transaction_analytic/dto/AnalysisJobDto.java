@@ -0,0 +1,32 @@
+package com.victor.transaction_analytic.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * State of an analysis job. {@code requests} counts the submissions coalesced onto it.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record AnalysisJobDto(
+        String id,
+        Status status,
+        String folderPath,
+        LocalDate from,
+        LocalDate to,
+        int requests,
+        int filesProcessed,
+        int totalFiles,
+        Instant submittedAt,
+        Instant finishedAt,
+        String error
+) {
+
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        SUCCEEDED,
+        FAILED
+    }
+}
@@ -0,0 +1,16 @@
+package com.victor.transaction_analytic.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Progress of a streamed folder analysis after one more file. {@code partial} is the result
+ * over the files processed so far and is only attached now and then.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record AnalysisProgressDto(
+        String file,
+        int filesProcessed,
+        int totalFiles,
+        TransactionAnalyticResponseDto partial
+) {
+}
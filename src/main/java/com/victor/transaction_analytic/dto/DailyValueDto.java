@@ -0,0 +1,13 @@
+package com.victor.transaction_analytic.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * One day of a drill-down: the day, as the date of its file or the file name when it has
+ * none, and the value on that day.
+ */
+public record DailyValueDto(
+        String day,
+        BigDecimal value
+) {
+}
@@ -0,0 +1,10 @@
+package com.victor.transaction_analytic.dto;
+
+/**
+ * Estimated numbers of distinct products sold and distinct staff selling in a month.
+ */
+public record DistinctCountsDto(
+        long distinctProducts,
+        long distinctStaff
+) {
+}
@@ -0,0 +1,16 @@
+package com.victor.transaction_analytic.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Time series of one staff member or product: the total over the range, the number of
+ * days with activity and the value on each of them, in day order.
+ */
+public record DrillDownDto(
+        String key,
+        BigDecimal total,
+        int activeDays,
+        List<DailyValueDto> days
+) {
+}
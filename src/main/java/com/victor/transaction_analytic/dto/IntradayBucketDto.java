@@ -0,0 +1,19 @@
+package com.victor.transaction_analytic.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.math.BigDecimal;
+
+/**
+ * One bucket of an intraday profile: its start time of day, the number of transactions in
+ * it, their total amount and the average amount rounded to two decimal places. Buckets
+ * without transactions have no average.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record IntradayBucketDto(
+        String start,
+        long count,
+        BigDecimal sum,
+        BigDecimal average
+) {
+}
@@ -0,0 +1,22 @@
+package com.victor.transaction_analytic.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.math.BigDecimal;
+
+/**
+ * One row of a leaderboard: 1-based rank, the ranked id (product, staff or hour) and the
+ * value it was ranked by. Approximate rows also carry the most the value may exceed the
+ * true one by; exact rows leave it out.
+ */
+public record RankedEntryDto(
+        int rank,
+        String key,
+        BigDecimal value,
+        @JsonInclude(JsonInclude.Include.NON_NULL) BigDecimal errorBound
+) {
+
+    public RankedEntryDto(int rank, String key, BigDecimal value) {
+        this(rank, key, value, null);
+    }
+}
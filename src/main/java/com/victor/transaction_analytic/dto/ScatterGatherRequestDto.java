@@ -0,0 +1,16 @@
+package com.victor.transaction_analytic.dto;
+
+import java.util.List;
+
+/**
+ * The shards of a scatter-gather analysis. A shard without a peer is a folder of this
+ * instance; otherwise it is a folder of the instance at the peer's base URL, such as
+ * {@code http://10.0.0.2:8080}.
+ */
+public record ScatterGatherRequestDto(
+        List<Shard> shards
+) {
+
+    public record Shard(String peer, String folderPath) {
+    }
+}
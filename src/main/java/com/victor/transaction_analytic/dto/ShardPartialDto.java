@@ -0,0 +1,26 @@
+package com.victor.transaction_analytic.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.victor.transaction_analytic.aggregation.IngestionErrors;
+
+import java.time.YearMonth;
+import java.util.Map;
+
+/**
+ * Mergeable partial aggregates of one shard, as exchanged between instances. Amounts are
+ * in thousandths so that merging is exact. {@code dailyVolumes} is keyed by day, the date
+ * of a {@code yyyy-MM-dd} file or else the file name, so the same day in several shards
+ * is summed before the highest day is picked. {@code highestDailyValue} is null for a
+ * shard without days.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ShardPartialDto(
+        Map<String, Long> dailyVolumes,
+        Long highestDailyValue,
+        Map<Long, Long> productVolumes,
+        Map<YearMonth, Map<Long, Long>> monthStaffSales,
+        long[] hourTotals,
+        long[] hourCounts,
+        IngestionErrors errors
+) {
+}
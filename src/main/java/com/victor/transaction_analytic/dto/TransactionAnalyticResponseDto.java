@@ -1,14 +1,21 @@
 package com.victor.transaction_analytic.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.victor.transaction_analytic.aggregation.IngestionErrors;
+
 import java.math.BigDecimal;
 import java.time.YearMonth;
 import java.util.Map;
 
+/**
+ * {@code errors} is omitted when every line of every file was read.
+ */
 public record TransactionAnalyticResponseDto(
         BigDecimal highestSalesVolumeInADay,
         BigDecimal highestSalesValueInADay,
         String mostSoldProductByVolume,
         Map<YearMonth, String> highestSalesStaffByMonth,
-        Integer highestHourByAverageTransactionVolume
+        Integer highestHourByAverageTransactionVolume,
+        @JsonInclude(JsonInclude.Include.NON_NULL) IngestionErrors errors
 ) {
 }
@@ -6,6 +6,9 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestControllerAdvice
 public class GlobalExceptionHandler {
@@ -15,11 +18,75 @@ public class GlobalExceptionHandler {
             FileNotFoundException exp
     ) {
 
-        return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+        return ResponseEntity.status(HttpStatus.NOT_FOUND)
                 .body(ExceptionResponse.builder()
                         .error(exp.getMessage())
                         .build());
     }
 
+    @ExceptionHandler(NoSuchFileException.class)
+    public ResponseEntity<ExceptionResponse> handleException(
+            NoSuchFileException exp
+    ) {
+
+        return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .body(ExceptionResponse.builder()
+                        .error("Folder not found")
+                        .build());
+    }
+
+    @ExceptionHandler(MalformedDataException.class)
+    public ResponseEntity<ExceptionResponse> handleException(
+            MalformedDataException exp
+    ) {
+
+        return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
+                .body(ExceptionResponse.builder()
+                        .error(exp.getMessage())
+                        .build());
+    }
+
+    @ExceptionHandler(ShardFailedException.class)
+    public ResponseEntity<ExceptionResponse> handleException(
+            ShardFailedException exp
+    ) {
+
+        return ResponseEntity.status(HttpStatus.BAD_GATEWAY)
+                .body(ExceptionResponse.builder()
+                        .error(exp.getMessage())
+                        .build());
+    }
 
+    @ExceptionHandler(IOException.class)
+    public ResponseEntity<ExceptionResponse> handleException(
+            IOException exp
+    ) {
+
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(ExceptionResponse.builder()
+                        .error("Could not read transactions: " + exp.getMessage())
+                        .build());
+    }
+
+    @ExceptionHandler(InvalidRequestException.class)
+    public ResponseEntity<ExceptionResponse> handleException(
+            InvalidRequestException exp
+    ) {
+
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(ExceptionResponse.builder()
+                        .error(exp.getMessage())
+                        .build());
+    }
+
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<ExceptionResponse> handleException(
+            RejectedExecutionException exp
+    ) {
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(ExceptionResponse.builder()
+                        .error("Too many analyses in progress, try again later")
+                        .build());
+    }
 }
@@ -0,0 +1,15 @@
+package com.victor.transaction_analytic.exception;
+
+/**
+ * Thrown when the parameters of a request cannot be answered, such as a date range that
+ * ends before it starts. Answered with 400; an {@link IllegalArgumentException} raised
+ * anywhere else is a bug and stays a server error.
+ */
+public class InvalidRequestException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public InvalidRequestException(String message) {
+        super(message);
+    }
+}
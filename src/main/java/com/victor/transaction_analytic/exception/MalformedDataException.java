@@ -0,0 +1,14 @@
+package com.victor.transaction_analytic.exception;
+
+/**
+ * Thrown when malformed input ends an analysis: under the fail policy on the first bad
+ * line, under the skip policy once the request's error cap is exceeded.
+ */
+public class MalformedDataException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public MalformedDataException(String message) {
+        super(message);
+    }
+}
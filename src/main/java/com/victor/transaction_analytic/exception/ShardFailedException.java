@@ -0,0 +1,14 @@
+package com.victor.transaction_analytic.exception;
+
+/**
+ * Thrown when a peer shard of a scatter-gather analysis cannot return its partial. The
+ * analysis fails as a whole, since a result missing a shard would not be exact.
+ */
+public class ShardFailedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public ShardFailedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
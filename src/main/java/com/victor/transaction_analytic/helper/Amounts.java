@@ -0,0 +1,42 @@
+package com.victor.transaction_analytic.helper;
+
+import java.math.BigDecimal;
+
+/**
+ * Sale amounts travel through the pipeline as {@code long} thousandths (the day files carry
+ * at most three decimal places) and only become {@link BigDecimal} at the API boundary.
+ * Sums use exact arithmetic, so an overflow fails loudly instead of wrapping.
+ */
+public final class Amounts {
+
+    public static final int SCALE = 3;
+
+    private Amounts() {
+    }
+
+    public static long add(long total, long amount) {
+        return Math.addExact(total, amount);
+    }
+
+    public static BigDecimal toBigDecimal(long amount) {
+        return BigDecimal.valueOf(amount, SCALE);
+    }
+
+    /**
+     * Average of {@code total} over {@code count} rounded half-up to two decimal places,
+     * returned in hundredths.
+     */
+    public static long roundedAverage(long total, long count) {
+        long divisor = Math.multiplyExact(count, 10L);
+        long magnitude = Math.abs(total);
+        long quotient = magnitude / divisor;
+        if ((magnitude % divisor) * 2 >= divisor) {
+            quotient++;
+        }
+        return total < 0 ? -quotient : quotient;
+    }
+
+    public static BigDecimal averageToBigDecimal(long total, long count) {
+        return BigDecimal.valueOf(roundedAverage(total, count), 2);
+    }
+}
@@ -0,0 +1,86 @@
+package com.victor.transaction_analytic.helper;
+
+import com.victor.transaction_analytic.exception.InvalidRequestException;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.Optional;
+
+/**
+ * Inclusive range of transaction dates a query is restricted to; a {@code null} bound is
+ * open. Day files are named {@code yyyy-MM-dd.<ext>} and hold that day's transactions, so
+ * they are kept or pruned by name alone. Only files whose name carries no date need their
+ * rows checked against the range.
+ */
+public record DateRange(LocalDate from, LocalDate to) {
+
+    public static final DateRange ALL = new DateRange(null, null);
+
+    private static final int DATE_LENGTH = 10;
+
+    public DateRange {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new InvalidRequestException("'from' " + from + " is after 'to' " + to);
+        }
+    }
+
+    /**
+     * Builds the range from the optional request parameters: either a month, or
+     * {@code from} and/or {@code to}.
+     */
+    public static DateRange of(LocalDate from, LocalDate to, YearMonth month) {
+        if (month == null) {
+            return from == null && to == null ? ALL : new DateRange(from, to);
+        }
+        if (from != null || to != null) {
+            throw new InvalidRequestException("'month' cannot be combined with 'from' or 'to'");
+        }
+        return new DateRange(month.atDay(1), month.atEndOfMonth());
+    }
+
+    public boolean isUnbounded() {
+        return from == null && to == null;
+    }
+
+    public boolean contains(LocalDate date) {
+        return (from == null || !date.isBefore(from)) && (to == null || !date.isAfter(to));
+    }
+
+    public int fromEpochDay() {
+        return from == null ? Integer.MIN_VALUE : (int) from.toEpochDay();
+    }
+
+    public int toEpochDay() {
+        return to == null ? Integer.MAX_VALUE : (int) to.toEpochDay();
+    }
+
+    /**
+     * Whether the file can hold transactions in the range, judged from its name only.
+     */
+    public boolean mayContain(Path file) {
+        return isUnbounded() || dateOf(file).map(this::contains).orElse(true);
+    }
+
+    /**
+     * Whether the file's rows must be filtered by transaction date: its name does not tell
+     * its date. A dated file kept by {@link #mayContain(Path)} lies wholly inside the range,
+     * bounds included.
+     */
+    public boolean needsRowFilter(Path file) {
+        return !isUnbounded() && dateOf(file).isEmpty();
+    }
+
+    public static Optional<LocalDate> dateOf(Path file) {
+        String name = file.getFileName().toString();
+        if (name.length() < DATE_LENGTH) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(LocalDate.parse(name.substring(0, DATE_LENGTH)));
+        } catch (DateTimeParseException e) {
+            return Optional.empty();
+        }
+    }
+}
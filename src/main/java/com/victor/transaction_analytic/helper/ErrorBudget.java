@@ -0,0 +1,75 @@
+package com.victor.transaction_analytic.helper;
+
+import com.victor.transaction_analytic.aggregation.IngestionErrors;
+import com.victor.transaction_analytic.exception.MalformedDataException;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The bad-line policy of one request, shared by every file and chunk it reads. Malformed
+ * lines are either skipped, up to {@code maxMalformedLines} in total, or fail the request
+ * at once. Once the budget is spent, further chunks stop before reading anything, so a
+ * folder of garbage is abandoned early. Thread-safe.
+ */
+public class ErrorBudget {
+
+    private final boolean skipMalformedLines;
+    private final long maxMalformedLines;
+    private final AtomicLong malformedLines = new AtomicLong();
+
+    public ErrorBudget(boolean skipMalformedLines, long maxMalformedLines) {
+        this.skipMalformedLines = skipMalformedLines;
+        this.maxMalformedLines = maxMalformedLines;
+    }
+
+    public static ErrorBudget unlimited() {
+        return new ErrorBudget(true, Long.MAX_VALUE);
+    }
+
+    public boolean skipsMalformedLines() {
+        return skipMalformedLines;
+    }
+
+    /**
+     * Records {@code count} malformed lines found in {@code where}.
+     *
+     * @throws MalformedDataException under the fail policy, or when the cap is exceeded
+     */
+    public void charge(long count, String where) {
+        if (count == 0) {
+            return;
+        }
+        if (!skipMalformedLines) {
+            throw new MalformedDataException("Malformed line in " + where);
+        }
+        if (malformedLines.addAndGet(count) > maxMalformedLines) {
+            throw exhausted();
+        }
+    }
+
+    /**
+     * Charges the malformed lines of a partial read earlier, such as a cached day.
+     *
+     * @throws MalformedDataException under the fail policy, or when the cap is exceeded
+     */
+    public void charge(IngestionErrors errors) {
+        charge(errors.malformedLines(), errors.samples().stream()
+                .filter(sample -> sample.offset() != null)
+                .findFirst()
+                .map(IngestionErrors.Sample::toString)
+                .orElse("a previously read file"));
+    }
+
+    /**
+     * @throws MalformedDataException when the cap was already exceeded
+     */
+    public void checkNotExhausted() {
+        if (malformedLines.get() > maxMalformedLines) {
+            throw exhausted();
+        }
+    }
+
+    private MalformedDataException exhausted() {
+        return new MalformedDataException("More than " + maxMalformedLines + " malformed lines, analysis aborted");
+    }
+}
@@ -0,0 +1,10 @@
+package com.victor.transaction_analytic.helper;
+
+import java.nio.file.Path;
+
+/**
+ * A byte range of a day file that starts at the beginning of a line and ends just after a
+ * newline (or at the end of the file), so it can be parsed on its own.
+ */
+public record FileChunk(Path file, long offset, long length) {
+}
@@ -1,27 +1,237 @@
 package com.victor.transaction_analytic.helper;
 
+import com.victor.transaction_analytic.model.DaySegment;
 import com.victor.transaction_analytic.model.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 
 public class FileProcessor {
 
+    private static final Logger logger = LoggerFactory.getLogger(FileProcessor.class);
+
+    private static final int BOUNDARY_PROBE_SIZE = 8 * 1024;
+    private static final int ESTIMATED_LINE_LENGTH = 64;
+
     public static List<Transaction> readTransactionsFromFile(String filePath) throws IOException {
-        return Files.lines(Path.of(filePath))
-                .map(line -> {
-                    String[] parts = line.split(",");
-                    long transactionId = Long.parseLong(parts[0]);
-                    LocalDateTime transactionTime = LocalDateTime.parse(parts[1]);
-                    String items = parts[2];
-                    BigDecimal saleAmount = new BigDecimal(parts[3]);
-                    return new Transaction(transactionId, transactionTime, items, saleAmount);
-                })
-                .collect(Collectors.toList());
+        Path path = Path.of(filePath);
+        List<Transaction> transactions = new ArrayList<>();
+        parseLines(ByteBuffer.wrap(Files.readAllBytes(path)), path, 0, new ParseReport(),
+                parser -> transactions.add(toTransaction(parser)));
+        return transactions;
+    }
+
+    /**
+     * Loads a day file into a segment. Binary {@code .seg} files are copied column by
+     * column; text files are parsed.
+     */
+    public static DaySegment readDaySegment(Path path) throws IOException {
+        if (SegmentFile.isSegmentFile(path)) {
+            return SegmentFile.read(path);
+        }
+        return readDaySegment(ByteBuffer.wrap(Files.readAllBytes(path)), path, 0);
+    }
+
+    public static DaySegment readDaySegment(FileChunk chunk) throws IOException {
+        if (SegmentFile.isSegmentFile(chunk.file())) {
+            return SegmentFile.read(chunk.file());
+        }
+        return readDaySegment(map(chunk), chunk.file(), chunk.offset());
+    }
+
+    private static DaySegment readDaySegment(ByteBuffer buffer, Path path, long fileOffset) {
+        return parseDaySegment(buffer, path, fileOffset, new ParseReport());
+    }
+
+    /**
+     * Parses text lines already in memory into a segment, counting them into the report.
+     * {@code fileOffset} is where the buffer starts in the file, for error messages.
+     */
+    public static DaySegment parseDaySegment(ByteBuffer buffer, Path path, long fileOffset, ParseReport report) {
+        DaySegment.Builder builder = new DaySegment.Builder(buffer.limit() / ESTIMATED_LINE_LENGTH);
+        parseLines(buffer, path, fileOffset, report, builder::add);
+        return builder.build();
+    }
+
+    /**
+     * Pushes every well-formed line of a buffer already in memory, such as a mapped chunk,
+     * to the sink as it is parsed. The parser handed over is reused for the next line.
+     */
+    public static void parseLines(ByteBuffer buffer, Path path, long fileOffset, ParseReport report,
+                                  Consumer<TransactionLineParser> sink) {
+        parseLines(new TransactionLineParser(), buffer, buffer.limit(), true, path, fileOffset, report, sink);
+    }
+
+    /**
+     * Reads the chunk through a buffer of {@code bufferSize} bytes and pushes every
+     * well-formed line to the sink as it is parsed, so no more of the file than one buffer
+     * is ever held. A line longer than the buffer grows it. The parser handed over is
+     * reused for the next line.
+     */
+    public static void streamLines(FileChunk chunk, int bufferSize, ParseReport report,
+                                   Consumer<TransactionLineParser> sink) throws IOException {
+        TransactionLineParser parser = new TransactionLineParser();
+        long end = chunk.offset() + chunk.length();
+        try (FileChannel channel = FileChannel.open(chunk.file(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.max(1, Math.min(bufferSize, chunk.length())));
+            long position = chunk.offset();
+            long bufferOffset = chunk.offset();
+            while (true) {
+                boolean endOfInput = position >= end;
+                if (!endOfInput) {
+                    if (!buffer.hasRemaining()) {
+                        buffer = ByteBuffer.allocate(buffer.capacity() * 2).put(buffer.flip());
+                    }
+                    buffer.limit(buffer.position() + (int) Math.min(buffer.remaining(), end - position));
+                    long start = System.nanoTime();
+                    int read = channel.read(buffer, position);
+                    report.read(System.nanoTime() - start);
+                    buffer.limit(buffer.capacity());
+                    // A file that shrank since it was planned ends early
+                    position = read < 0 ? end : position + read;
+                    endOfInput = position >= end;
+                }
+
+                int filled = buffer.position();
+                int consumed = parseLines(parser, buffer, filled, endOfInput, chunk.file(), bufferOffset, report, sink);
+                if (endOfInput) {
+                    return;
+                }
+                // Keep the unfinished last line for the next read
+                buffer.limit(filled).position(consumed);
+                buffer.compact();
+                bufferOffset += consumed;
+            }
+        }
+    }
+
+    /**
+     * Reads the chunk into the heap; a chunk spanning the whole file is read in one call.
+     */
+    public static ByteBuffer read(FileChunk chunk) throws IOException {
+        if (chunk.offset() == 0 && chunk.length() == Files.size(chunk.file())) {
+            return ByteBuffer.wrap(Files.readAllBytes(chunk.file()));
+        }
+        if (chunk.length() > Integer.MAX_VALUE) {
+            throw new IOException("Chunk of " + chunk.length() + " bytes is too large to read: " + chunk.file());
+        }
+        try (FileChannel channel = FileChannel.open(chunk.file(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) chunk.length());
+            while (buffer.hasRemaining() && channel.read(buffer, chunk.offset() + buffer.position()) > 0) {
+                // Keep reading until the chunk is complete or the file ends
+            }
+            return buffer.flip();
+        }
+    }
+
+    /**
+     * Memory-maps the chunk read-only so it is parsed straight out of the page cache. The
+     * channel is closed right away; the mapping stays valid until it is garbage collected.
+     */
+    public static MappedByteBuffer map(FileChunk chunk) throws IOException {
+        if (chunk.length() > Integer.MAX_VALUE) {
+            throw new IOException("Chunk of " + chunk.length() + " bytes is too large to map: " + chunk.file());
+        }
+        try (FileChannel channel = FileChannel.open(chunk.file(), StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, chunk.offset(), chunk.length());
+        }
+    }
+
+    /**
+     * Cuts a file into chunks of roughly {@code chunkSize} bytes, moving every cut forward
+     * to the next line start so no line is split between two chunks.
+     */
+    public static List<FileChunk> splitAtLineBoundaries(Path file, long chunkSize) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            List<FileChunk> chunks = new ArrayList<>();
+            ByteBuffer probe = ByteBuffer.allocate(BOUNDARY_PROBE_SIZE);
+
+            long start = 0;
+            while (start < size) {
+                long end = start + chunkSize >= size ? size : nextLineStart(channel, start + chunkSize, size, probe);
+                chunks.add(new FileChunk(file, start, end - start));
+                start = end;
+            }
+            return chunks;
+        }
+    }
+
+    private static long nextLineStart(FileChannel channel, long from, long size, ByteBuffer probe) throws IOException {
+        long position = from - 1;
+        while (position < size) {
+            probe.clear();
+            int read = channel.read(probe, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    /**
+     * Parses the lines in {@code [0, limit)} and returns where the first one not parsed
+     * starts. Unless {@code endOfInput}, a last line without its newline is left for later.
+     */
+    private static int parseLines(TransactionLineParser parser, ByteBuffer buffer, int limit, boolean endOfInput,
+                                  Path path, long fileOffset, ParseReport report,
+                                  Consumer<TransactionLineParser> consumer) {
+        int lineStart = 0;
+        while (lineStart < limit) {
+            int lineEnd = lineStart;
+            while (lineEnd < limit && buffer.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            if (lineEnd == limit && !endOfInput) {
+                return lineStart;
+            }
+
+            report.line();
+            if (parser.parse(buffer, lineStart, lineEnd)) {
+                consumer.accept(parser);
+            } else {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Skipping malformed line at byte {} of {}: {} [{}]", fileOffset + lineStart,
+                            path.getFileName(), parser.error(), TransactionLineParser.describe(buffer, lineStart, lineEnd));
+                }
+                // Throws once the request's error policy gives up on the data
+                report.malformed(path, fileOffset + lineStart, parser.error(), buffer, lineStart, lineEnd);
+            }
+            lineStart = lineEnd + 1;
+        }
+        return limit;
+    }
+
+    private static Transaction toTransaction(TransactionLineParser parser) {
+        int itemCount = parser.itemCount();
+        long[] productIds = new long[itemCount];
+        int[] quantities = new int[itemCount];
+        for (int i = 0; i < itemCount; i++) {
+            productIds[i] = parser.productId(i);
+            quantities[i] = parser.quantity(i);
+        }
+
+        int secondOfDay = parser.secondOfDay();
+        LocalDateTime transactionTime = LocalDateTime.of(parser.year(), parser.month(), parser.dayOfMonth(),
+                secondOfDay / 3600, secondOfDay / 60 % 60, secondOfDay % 60);
+
+        return new Transaction(parser.staffId(), transactionTime, productIds, quantities, parser.amount());
     }
 }
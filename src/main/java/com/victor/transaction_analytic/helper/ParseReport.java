@@ -0,0 +1,71 @@
+package com.victor.transaction_analytic.helper;
+
+import com.victor.transaction_analytic.aggregation.IngestionErrors;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Line counts of one parsed chunk, with the first malformed lines as samples and, when
+ * the chunk is streamed, the time spent reading it. Each bad line is charged to the
+ * request's {@link ErrorBudget} as it is met. Not thread-safe: each chunk gets its own
+ * report.
+ */
+public class ParseReport {
+
+    private static final int MAX_SAMPLED_LINE_LENGTH = 200;
+
+    private final ErrorBudget budget;
+    private long lines;
+    private long malformedLines;
+    private long readNanos;
+    private final List<IngestionErrors.Sample> samples = new ArrayList<>();
+
+    public ParseReport() {
+        this(ErrorBudget.unlimited());
+    }
+
+    public ParseReport(ErrorBudget budget) {
+        this.budget = budget;
+    }
+
+    void read(long nanos) {
+        readNanos += nanos;
+    }
+
+    void line() {
+        lines++;
+    }
+
+    void malformed(Path path, long offset, String reason, ByteBuffer buffer, int start, int end) {
+        malformedLines++;
+        IngestionErrors.Sample sample = null;
+        if (samples.size() < IngestionErrors.SAMPLE_LIMIT || !budget.skipsMalformedLines()) {
+            String line = TransactionLineParser.describe(buffer, start, Math.min(end, start + MAX_SAMPLED_LINE_LENGTH));
+            sample = new IngestionErrors.Sample(path.getFileName().toString(), offset, reason, line);
+            samples.add(sample);
+        }
+        budget.charge(1, String.valueOf(sample));
+    }
+
+    public long lines() {
+        return lines;
+    }
+
+    public long malformedLines() {
+        return malformedLines;
+    }
+
+    /**
+     * Time spent waiting for reads while streaming; zero for a chunk parsed in memory.
+     */
+    public long readNanos() {
+        return readNanos;
+    }
+
+    public IngestionErrors errors() {
+        return malformedLines == 0 ? IngestionErrors.NONE : new IngestionErrors(malformedLines, 0, List.copyOf(samples));
+    }
+}
@@ -0,0 +1,72 @@
+package com.victor.transaction_analytic.helper;
+
+import com.victor.transaction_analytic.model.DaySegment;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Converts a folder of text day files ({@code yyyy-MM-dd.txt}) into binary segment files
+ * ({@code yyyy-MM-dd.seg}) in another folder. Malformed lines are left out of a segment
+ * and counted in its footer, so reading it reports them as reading the text would. The
+ * target must be another folder: one holding both the text and the segment of a day
+ * would count that day twice.
+ */
+public final class SegmentConverter {
+
+    private SegmentConverter() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: SegmentConverter <source-folder> <target-folder>");
+            System.exit(1);
+        }
+        int converted = convertFolder(Path.of(args[0]), Path.of(args[1]));
+        System.out.println("Converted " + converted + " files into " + args[1]);
+    }
+
+    public static int convertFolder(Path sourceFolder, Path targetFolder) throws IOException {
+        if (Files.exists(targetFolder) && Files.isSameFile(sourceFolder, targetFolder)) {
+            throw new IllegalArgumentException("Target folder must differ from the source folder: " + targetFolder);
+        }
+        Files.createDirectories(targetFolder);
+
+        List<Path> files;
+        try (Stream<Path> paths = Files.list(sourceFolder)) {
+            files = paths.filter(Files::isRegularFile)
+                    .filter(file -> !SegmentFile.isSegmentFile(file) && !SegmentFile.isTemporary(file))
+                    .toList();
+        }
+
+        for (Path file : files) {
+            convertFile(file, targetFolder.resolve(segmentName(file)));
+        }
+        return files.size();
+    }
+
+    /**
+     * @return the number of malformed lines left out
+     */
+    public static long convertFile(Path source, Path target) throws IOException {
+        ParseReport report = new ParseReport();
+        DaySegment segment = FileProcessor.parseDaySegment(ByteBuffer.wrap(Files.readAllBytes(source)), source, 0,
+                report);
+        if (report.malformedLines() > 0) {
+            System.err.println("Left out " + report.malformedLines() + " malformed lines of " + source
+                    + ", first: " + report.errors().samples().get(0));
+        }
+        SegmentFile.write(segment, report.malformedLines(), target);
+        return report.malformedLines();
+    }
+
+    private static String segmentName(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return (dot > 0 ? name.substring(0, dot) : name) + SegmentFile.EXTENSION;
+    }
+}
@@ -0,0 +1,327 @@
+package com.victor.transaction_analytic.helper;
+
+import com.victor.transaction_analytic.aggregation.IngestionErrors;
+import com.victor.transaction_analytic.model.DaySegment;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact binary, columnar encoding of a {@link DaySegment} ({@code .seg} files).
+ * <pre>
+ * header   magic "TXSG" | version u16 | reserved u16 | rowCount i32 | itemCount i32
+ * columns  staffIds[rows] | epochDays[rows] | secondsOfDay[rows] | amounts[rows]
+ *          itemOffsets[rows + 1] | productIds[items] | quantities[items]
+ * footer   rowCount i32 | minAmount i64 | maxAmount i64 | totalAmount i64
+ *          minEpochDay i32 | maxEpochDay i32 | malformedLines i64 | magic "TXSG"
+ * </pre>
+ * Each column block is {@code byteLength i32 | width u8 | base i64} followed by every value
+ * stored as an unsigned offset from {@code base} in {@code width} bytes (0, 1, 2, 4 or 8),
+ * the narrowest width that fits the column's range. A day's epoch days therefore take no
+ * space at all and staff ids and quantities one byte each.
+ *
+ * <p>All values are little-endian; amounts are in thousandths. The footer sits at a fixed
+ * offset from the end of the file, so its statistics can be read without touching the
+ * columns. {@code malformedLines} counts the lines of the source text that were left out,
+ * so a segment reports them like the text would.
+ *
+ * <p>A segment is written to a {@link #TEMP_SUFFIX} sibling first and moved into place, so
+ * readers never see it half written; folder listings skip the temporary files.
+ */
+public final class SegmentFile {
+
+    public static final String EXTENSION = ".seg";
+    public static final String TEMP_SUFFIX = EXTENSION + ".tmp";
+
+    private static final int MAGIC = 0x47535854; // "TXSG" little-endian
+    private static final short VERSION = 2;
+    private static final int HEADER_SIZE = 16;
+    private static final int FOOTER_SIZE = 48;
+    private static final int BLOCK_HEADER_SIZE = Integer.BYTES + 1 + Long.BYTES;
+
+    private record Column(long[] values, int count, long base, int width) {
+
+        static Column of(long[] values, int count) {
+            long min = 0;
+            long max = 0;
+            for (int i = 0; i < count; i++) {
+                if (i == 0 || values[i] < min) {
+                    min = values[i];
+                }
+                if (i == 0 || values[i] > max) {
+                    max = values[i];
+                }
+            }
+            long range = max - min;
+            if (range < 0) {
+                // The range itself overflows a long: store raw values
+                return new Column(values, count, 0, Long.BYTES);
+            }
+            int width = range == 0 ? 0 : range <= 0xFFL ? 1 : range <= 0xFFFFL ? 2 : range <= 0xFFFF_FFFFL ? 4 : 8;
+            return new Column(values, count, min, width);
+        }
+
+        static Column of(int[] values, int count) {
+            long[] widened = new long[count];
+            for (int i = 0; i < count; i++) {
+                widened[i] = values[i];
+            }
+            return of(widened, count);
+        }
+
+        long byteLength() {
+            return (long) count * width;
+        }
+    }
+
+    public record Footer(int rowCount, long minAmount, long maxAmount, long totalAmount,
+                         int minEpochDay, int maxEpochDay, long malformedLines) {
+
+        /**
+         * The malformed lines of the source text, as the errors of a day read from the segment.
+         */
+        public IngestionErrors errors() {
+            return malformedLines == 0 ? IngestionErrors.NONE : new IngestionErrors(malformedLines, 0, List.of());
+        }
+    }
+
+    private SegmentFile() {
+    }
+
+    public static boolean isSegmentFile(Path file) {
+        return file.getFileName().toString().endsWith(EXTENSION);
+    }
+
+    /**
+     * Whether the file is a segment still being written, which readers must skip.
+     */
+    public static boolean isTemporary(Path file) {
+        return file.getFileName().toString().endsWith(TEMP_SUFFIX);
+    }
+
+    /**
+     * Writes the segment to a {@code .seg} target, with the number of malformed lines its
+     * source had.
+     */
+    public static void write(DaySegment segment, long malformedLines, Path target) throws IOException {
+        int rows = segment.getRowCount();
+        int items = segment.getItemCount();
+        List<Column> columns = List.of(
+                Column.of(segment.getStaffIds(), rows),
+                Column.of(segment.getEpochDays(), rows),
+                Column.of(segment.getSecondsOfDay(), rows),
+                Column.of(segment.getAmounts(), rows),
+                Column.of(segment.getItemOffsets(), rows + 1),
+                Column.of(segment.getProductIds(), items),
+                Column.of(segment.getQuantities(), items)
+        );
+
+        long size = HEADER_SIZE + FOOTER_SIZE;
+        for (Column column : columns) {
+            size += BLOCK_HEADER_SIZE + column.byteLength();
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Segment of " + size + " bytes is too large: " + target);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putShort(VERSION).putShort((short) 0).putInt(rows).putInt(items);
+        for (Column column : columns) {
+            putColumn(buffer, column);
+        }
+
+        Footer footer = computeFooter(segment, malformedLines);
+        buffer.putInt(footer.rowCount())
+                .putLong(footer.minAmount())
+                .putLong(footer.maxAmount())
+                .putLong(footer.totalAmount())
+                .putInt(footer.minEpochDay())
+                .putInt(footer.maxEpochDay())
+                .putLong(footer.malformedLines())
+                .putInt(MAGIC);
+
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        Files.write(temp, buffer.array());
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Maps the file and decodes each column block straight into its array; no text is
+     * parsed.
+     */
+    public static DaySegment read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE + FOOTER_SIZE || size > Integer.MAX_VALUE) {
+                throw new IOException("Not a segment file: " + file);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            ByteBuffer buffer = mapped.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (buffer.getInt() != MAGIC || buffer.getShort() != VERSION) {
+                throw new IOException("Unsupported segment format: " + file);
+            }
+            buffer.getShort();
+            int rows = buffer.getInt();
+            int items = buffer.getInt();
+
+            long[] staffIds = getLongColumn(buffer, rows, file);
+            int[] epochDays = getIntColumn(buffer, rows, file);
+            int[] secondsOfDay = getIntColumn(buffer, rows, file);
+            long[] amounts = getLongColumn(buffer, rows, file);
+            int[] itemOffsets = getIntColumn(buffer, rows + 1, file);
+            long[] productIds = getLongColumn(buffer, items, file);
+            int[] quantities = getIntColumn(buffer, items, file);
+
+            return new DaySegment(rows, staffIds, epochDays, secondsOfDay, amounts, itemOffsets, productIds, quantities);
+        }
+    }
+
+    /**
+     * Reads only the header's format and the fixed-size footer at the end of the file.
+     */
+    public static Footer readFooter(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE + FOOTER_SIZE) {
+                throw new IOException("Not a segment file: " + file);
+            }
+            ByteBuffer header = readFully(channel, 0, Integer.BYTES + Short.BYTES, file);
+            if (header.getInt() != MAGIC || header.getShort() != VERSION) {
+                throw new IOException("Unsupported segment format: " + file);
+            }
+
+            ByteBuffer buffer = readFully(channel, size - FOOTER_SIZE, FOOTER_SIZE, file);
+            Footer footer = new Footer(buffer.getInt(), buffer.getLong(), buffer.getLong(), buffer.getLong(),
+                    buffer.getInt(), buffer.getInt(), buffer.getLong());
+            if (buffer.getInt() != MAGIC || footer.malformedLines() < 0) {
+                throw new IOException("Corrupt segment footer: " + file);
+            }
+            return footer;
+        }
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length, Path file)
+            throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Truncated segment file: " + file);
+            }
+        }
+        return buffer.flip();
+    }
+
+    public static Footer computeFooter(DaySegment segment, long malformedLines) {
+        int rows = segment.getRowCount();
+        long[] amounts = segment.getAmounts();
+        int[] epochDays = segment.getEpochDays();
+
+        long min = 0;
+        long max = 0;
+        long total = 0;
+        int minDay = 0;
+        int maxDay = 0;
+        for (int i = 0; i < rows; i++) {
+            if (i == 0 || amounts[i] < min) {
+                min = amounts[i];
+            }
+            if (i == 0 || amounts[i] > max) {
+                max = amounts[i];
+            }
+            if (i == 0 || epochDays[i] < minDay) {
+                minDay = epochDays[i];
+            }
+            if (i == 0 || epochDays[i] > maxDay) {
+                maxDay = epochDays[i];
+            }
+            total = Amounts.add(total, amounts[i]);
+        }
+        return new Footer(rows, min, max, total, minDay, maxDay, malformedLines);
+    }
+
+    private static void putColumn(ByteBuffer buffer, Column column) {
+        buffer.putInt((int) column.byteLength()).put((byte) column.width()).putLong(column.base());
+        long[] values = column.values();
+        long base = column.base();
+        switch (column.width()) {
+            case 1 -> {
+                for (int i = 0; i < column.count(); i++) {
+                    buffer.put((byte) (values[i] - base));
+                }
+            }
+            case 2 -> {
+                for (int i = 0; i < column.count(); i++) {
+                    buffer.putShort((short) (values[i] - base));
+                }
+            }
+            case 4 -> {
+                for (int i = 0; i < column.count(); i++) {
+                    buffer.putInt((int) (values[i] - base));
+                }
+            }
+            case 8 -> {
+                for (int i = 0; i < column.count(); i++) {
+                    buffer.putLong(values[i] - base);
+                }
+            }
+            default -> {
+                // Width 0: every value equals the base
+            }
+        }
+    }
+
+    private static long[] getLongColumn(ByteBuffer buffer, int count, Path file) throws IOException {
+        int length = buffer.getInt();
+        int width = buffer.get();
+        long base = buffer.getLong();
+        if (length != (long) count * width || buffer.remaining() < length + FOOTER_SIZE) {
+            throw new IOException("Corrupt segment column block in " + file);
+        }
+
+        long[] values = new long[count];
+        switch (width) {
+            case 0 -> Arrays.fill(values, base);
+            case 1 -> {
+                for (int i = 0; i < count; i++) {
+                    values[i] = base + (buffer.get() & 0xFFL);
+                }
+            }
+            case 2 -> {
+                for (int i = 0; i < count; i++) {
+                    values[i] = base + (buffer.getShort() & 0xFFFFL);
+                }
+            }
+            case 4 -> {
+                for (int i = 0; i < count; i++) {
+                    values[i] = base + (buffer.getInt() & 0xFFFF_FFFFL);
+                }
+            }
+            case 8 -> {
+                for (int i = 0; i < count; i++) {
+                    values[i] = base + buffer.getLong();
+                }
+            }
+            default -> throw new IOException("Unsupported column width " + width + " in " + file);
+        }
+        return values;
+    }
+
+    private static int[] getIntColumn(ByteBuffer buffer, int count, Path file) throws IOException {
+        long[] wide = getLongColumn(buffer, count, file);
+        int[] values = new int[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = (int) wide[i];
+        }
+        return values;
+    }
+}
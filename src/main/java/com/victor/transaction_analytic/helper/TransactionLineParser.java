@@ -0,0 +1,341 @@
+package com.victor.transaction_analytic.helper;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Hand-written parser for one transaction line in the day file format
+ * <pre>
+ * &lt;staffId&gt;,&lt;yyyy-MM-ddTHH:mm[:ss]&gt;,[&lt;productId&gt;:&lt;quantity&gt;|...],&lt;saleAmount&gt;
+ * </pre>
+ * The line is scanned straight from the bytes and every field is decoded into a primitive;
+ * no Strings are created on the happy path. An instance holds the fields of the last line it
+ * parsed and is reused for every line of a file, so it must not be shared between threads.
+ *
+ * <p>Malformed input never throws: {@link #parse} returns {@code false} and {@link #error()}
+ * describes the first problem found.
+ */
+public class TransactionLineParser {
+
+    private static final int MINUTE_TIMESTAMP_LENGTH = 16;
+    private static final int MAX_AMOUNT_DIGITS = 18;
+    private static final long[] POWERS_OF_TEN = {1, 10, 100, 1_000};
+    private static final int[] DAYS_IN_MONTH = {31, 29, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+
+    private long staffId;
+    private int year;
+    private int month;
+    private int dayOfMonth;
+    private int secondOfDay;
+    private long amount;
+    private int itemCount;
+    private long[] productIds = new long[16];
+    private int[] quantities = new int[16];
+    private String error;
+
+    private ByteBuffer buffer;
+    private int pos;
+    private int end;
+
+    public boolean parse(byte[] line) {
+        return parse(ByteBuffer.wrap(line), 0, line.length);
+    }
+
+    /**
+     * Parses the bytes in {@code [start, end)} of the buffer. A trailing carriage return is
+     * ignored. The buffer's position and limit are not touched.
+     */
+    public boolean parse(ByteBuffer buffer, int start, int end) {
+        this.buffer = buffer;
+        this.pos = start;
+        this.end = end > start && buffer.get(end - 1) == '\r' ? end - 1 : end;
+        this.error = null;
+        this.itemCount = 0;
+
+        try {
+            return parseStaffId() && expect(',', "missing ',' after staff id")
+                    && parseTimestamp() && expect(',', "missing ',' after timestamp")
+                    && parseItems() && expect(',', "missing ',' after items")
+                    && parseAmount() && (pos == this.end || fail("unexpected trailing characters"));
+        } finally {
+            this.buffer = null;
+        }
+    }
+
+    private boolean parseStaffId() {
+        int start = pos;
+        long value = 0;
+        while (pos < end && isDigit(buffer.get(pos))) {
+            if (value > (Long.MAX_VALUE - 9) / 10) {
+                return fail("staff id overflows a long");
+            }
+            value = value * 10 + (buffer.get(pos++) - '0');
+        }
+        if (pos == start) {
+            return fail("staff id is not a number");
+        }
+        staffId = value;
+        return true;
+    }
+
+    /**
+     * ISO local date-time: {@code yyyy-MM-ddTHH:mm} with optional {@code :ss} and an optional
+     * fraction of up to nine digits, which is skipped.
+     */
+    private boolean parseTimestamp() {
+        if (end - pos < MINUTE_TIMESTAMP_LENGTH) {
+            return fail("timestamp is too short");
+        }
+        int p = pos;
+        if (buffer.get(p + 4) != '-' || buffer.get(p + 7) != '-' || buffer.get(p + 10) != 'T'
+                || buffer.get(p + 13) != ':') {
+            return fail("timestamp is not yyyy-MM-ddTHH:mm[:ss]");
+        }
+        int y = digits(p, 4);
+        int mo = digits(p + 5, 2);
+        int d = digits(p + 8, 2);
+        int h = digits(p + 11, 2);
+        int mi = digits(p + 14, 2);
+        int s = 0;
+        pos = p + MINUTE_TIMESTAMP_LENGTH;
+
+        if (pos < end && buffer.get(pos) == ':') {
+            if (end - pos < 3) {
+                return fail("timestamp seconds are truncated");
+            }
+            s = digits(pos + 1, 2);
+            pos += 3;
+            if (pos < end && buffer.get(pos) == '.') {
+                int fractionStart = ++pos;
+                while (pos < end && isDigit(buffer.get(pos))) {
+                    pos++;
+                }
+                if (pos == fractionStart || pos - fractionStart > 9) {
+                    return fail("timestamp fraction is not 1 to 9 digits");
+                }
+            }
+        }
+        if ((y | mo | d | h | mi | s) < 0) {
+            return fail("timestamp contains a non-digit");
+        }
+        if (mo < 1 || mo > 12 || d < 1 || d > DAYS_IN_MONTH[mo - 1]
+                || (mo == 2 && d == 29 && !isLeapYear(y))
+                || h > 23 || mi > 59 || s > 59) {
+            return fail("timestamp is out of range");
+        }
+        year = y;
+        month = mo;
+        dayOfMonth = d;
+        secondOfDay = h * 3600 + mi * 60 + s;
+        return true;
+    }
+
+    private boolean parseItems() {
+        if (!expect('[', "items do not start with '['")) {
+            return false;
+        }
+        if (pos < end && buffer.get(pos) == ']') {
+            pos++;
+            return true;
+        }
+        while (true) {
+            int start = pos;
+            long productId = 0;
+            while (pos < end && isDigit(buffer.get(pos))) {
+                if (productId > (Long.MAX_VALUE - 9) / 10) {
+                    return fail("product id overflows a long");
+                }
+                productId = productId * 10 + (buffer.get(pos++) - '0');
+            }
+            if (pos == start) {
+                return fail("product id is not a number");
+            }
+            if (!expect(':', "missing ':' in item")) {
+                return false;
+            }
+
+            boolean negative = pos < end && buffer.get(pos) == '-';
+            if (negative) {
+                pos++;
+            }
+            start = pos;
+            long quantity = 0;
+            while (pos < end && isDigit(buffer.get(pos))) {
+                quantity = quantity * 10 + (buffer.get(pos++) - '0');
+                if (quantity > Integer.MAX_VALUE) {
+                    return fail("quantity overflows an int");
+                }
+            }
+            if (pos == start) {
+                return fail("quantity is not a number");
+            }
+            addItem(productId, (int) (negative ? -quantity : quantity));
+
+            if (pos < end && buffer.get(pos) == '|') {
+                pos++;
+            } else {
+                return expect(']', "items do not end with ']'");
+            }
+        }
+    }
+
+    private boolean parseAmount() {
+        boolean negative = pos < end && buffer.get(pos) == '-';
+        if (negative) {
+            pos++;
+        }
+        long value = 0;
+        int scale = -1;
+        int digitCount = 0;
+        while (pos < end) {
+            byte b = buffer.get(pos);
+            if (b == '.' && scale < 0) {
+                scale = 0;
+            } else if (isDigit(b)) {
+                if (++digitCount > MAX_AMOUNT_DIGITS) {
+                    return fail("sale amount has too many digits");
+                }
+                value = value * 10 + (b - '0');
+                if (scale >= 0) {
+                    scale++;
+                }
+            } else {
+                break;
+            }
+            pos++;
+        }
+        if (digitCount == 0) {
+            return fail("sale amount is not a number");
+        }
+        scale = Math.max(scale, 0);
+        if (scale > Amounts.SCALE) {
+            // Extra decimal places are fine as long as they are zeros
+            for (; scale > Amounts.SCALE; scale--) {
+                if (value % 10 != 0) {
+                    return fail("sale amount has more than " + Amounts.SCALE + " decimal places");
+                }
+                value /= 10;
+            }
+        }
+        long factor = POWERS_OF_TEN[Amounts.SCALE - scale];
+        if (value > Long.MAX_VALUE / factor) {
+            return fail("sale amount overflows a long");
+        }
+        value *= factor;
+        amount = negative ? -value : value;
+        return true;
+    }
+
+    private void addItem(long productId, int quantity) {
+        if (itemCount == productIds.length) {
+            productIds = Arrays.copyOf(productIds, itemCount * 2);
+            quantities = Arrays.copyOf(quantities, itemCount * 2);
+        }
+        productIds[itemCount] = productId;
+        quantities[itemCount] = quantity;
+        itemCount++;
+    }
+
+    private int digits(int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            byte b = buffer.get(i);
+            if (!isDigit(b)) {
+                return -1;
+            }
+            value = value * 10 + (b - '0');
+        }
+        return value;
+    }
+
+    private boolean expect(char expected, String message) {
+        if (pos < end && buffer.get(pos) == expected) {
+            pos++;
+            return true;
+        }
+        return fail(message);
+    }
+
+    private boolean fail(String message) {
+        error = message;
+        return false;
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static boolean isLeapYear(int year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    /**
+     * Decodes a raw line for error reporting; only called on the failure path.
+     */
+    public static String describe(ByteBuffer buffer, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        buffer.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public long staffId() {
+        return staffId;
+    }
+
+    public int year() {
+        return year;
+    }
+
+    public int month() {
+        return month;
+    }
+
+    public int dayOfMonth() {
+        return dayOfMonth;
+    }
+
+    /**
+     * Days since 1970-01-01, the same value as {@code LocalDate.toEpochDay()}, computed
+     * without creating a {@code LocalDate}.
+     */
+    public int epochDay() {
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + dayOfMonth - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    public int secondOfDay() {
+        return secondOfDay;
+    }
+
+    public int hour() {
+        return secondOfDay / 3600;
+    }
+
+    /**
+     * The sale amount in thousandths, whatever number of decimal places the line used.
+     */
+    public long amount() {
+        return amount;
+    }
+
+    public int itemCount() {
+        return itemCount;
+    }
+
+    public long productId(int index) {
+        return productIds[index];
+    }
+
+    public int quantity(int index) {
+        return quantities[index];
+    }
+
+    public String error() {
+        return error;
+    }
+}
@@ -0,0 +1,98 @@
+package com.victor.transaction_analytic.metrics;
+
+import com.victor.transaction_analytic.aggregation.ProductDictionary;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counters and per-stage timers of the file pipeline, published through the Actuator
+ * {@code metrics} endpoint under {@code transaction.analytic.*}. Recording is a few atomic
+ * adds per file or chunk, never per line, so it stays off the parsing hot path.
+ */
+@Component
+public class PipelineMetrics {
+
+    public enum Stage {
+        /**
+         * Reading or mapping a chunk. With mmap ingestion pages are faulted in while
+         * parsing, so most of the disk time shows up under {@link #PARSE}.
+         */
+        IO,
+        PARSE,
+        AGGREGATE,
+        /**
+         * Folding chunk partials into day partials and day partials into the folder result.
+         */
+        MERGE
+    }
+
+    private final Counter filesOpened;
+    private final Counter bytesRead;
+    private final Counter linesParsed;
+    private final Counter parseErrors;
+    private final Counter cacheHits;
+    private final Counter cacheMisses;
+    private final Map<Stage, Timer> stageTimers = new EnumMap<>(Stage.class);
+
+    public PipelineMetrics(MeterRegistry registry) {
+        this.filesOpened = Counter.builder("transaction.analytic.files.opened")
+                .description("Day files or file chunks opened for reading")
+                .register(registry);
+        this.bytesRead = Counter.builder("transaction.analytic.bytes.read")
+                .description("Bytes of day files read or mapped")
+                .baseUnit("bytes")
+                .register(registry);
+        this.linesParsed = Counter.builder("transaction.analytic.lines.parsed")
+                .description("Transaction lines parsed, malformed ones included")
+                .register(registry);
+        this.parseErrors = Counter.builder("transaction.analytic.parse.errors")
+                .description("Malformed transaction lines")
+                .register(registry);
+        this.cacheHits = cacheCounter(registry, "hit");
+        this.cacheMisses = cacheCounter(registry, "miss");
+        for (Stage stage : Stage.values()) {
+            stageTimers.put(stage, Timer.builder("transaction.analytic.stage")
+                    .description("Time spent per pipeline stage")
+                    .tag("stage", stage.name().toLowerCase(Locale.ROOT))
+                    .register(registry));
+        }
+        Gauge.builder("transaction.analytic.products.encoded", ProductDictionary::folderCodes)
+                .description("Product codes held by the dictionaries of folders still in use")
+                .register(registry);
+    }
+
+    private static Counter cacheCounter(MeterRegistry registry, String result) {
+        return Counter.builder("transaction.analytic.cache.requests")
+                .description("Day aggregate cache lookups")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    public void fileOpened(long bytes) {
+        filesOpened.increment();
+        bytesRead.increment(bytes);
+    }
+
+    public void linesParsed(long lines, long malformedLines) {
+        linesParsed.increment(lines);
+        if (malformedLines > 0) {
+            parseErrors.increment(malformedLines);
+        }
+    }
+
+    public void cacheLookup(boolean hit) {
+        (hit ? cacheHits : cacheMisses).increment();
+    }
+
+    public void record(Stage stage, long nanos) {
+        stageTimers.get(stage).record(nanos, TimeUnit.NANOSECONDS);
+    }
+}
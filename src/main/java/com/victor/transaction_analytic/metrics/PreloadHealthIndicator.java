@@ -0,0 +1,34 @@
+package com.victor.transaction_analytic.metrics;
+
+import com.victor.transaction_analytic.service.StartupPreloadService;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Down until the startup warm-up and folder preload are over, so a readiness group that
+ * includes {@code preload} keeps traffic away until the first request will be fast.
+ * Folders that failed to load are listed but do not keep the instance down.
+ */
+@Component
+public class PreloadHealthIndicator implements HealthIndicator {
+
+    private final StartupPreloadService preloadService;
+
+    public PreloadHealthIndicator(StartupPreloadService preloadService) {
+        this.preloadService = preloadService;
+    }
+
+    @Override
+    public Health health() {
+        StartupPreloadService.Phase phase = preloadService.phase();
+        Health.Builder health = phase == StartupPreloadService.Phase.DONE ? Health.up() : Health.down();
+        health.withDetail("phase", phase)
+                .withDetail("folders", preloadService.folderCount())
+                .withDetail("loaded", preloadService.foldersLoaded());
+        if (!preloadService.failures().isEmpty()) {
+            health.withDetail("failed", preloadService.failures());
+        }
+        return health.build();
+    }
+}
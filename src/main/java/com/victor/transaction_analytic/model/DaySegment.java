@@ -0,0 +1,187 @@
+package com.victor.transaction_analytic.model;
+
+import com.victor.transaction_analytic.helper.TransactionLineParser;
+
+import java.util.Arrays;
+
+/**
+ * Columnar, primitive-array representation of the transactions of one day file. Row
+ * {@code i} has its items at {@code [itemOffsets[i], itemOffsets[i + 1])} of the flattened
+ * product and quantity columns. Amounts are in thousandths. Segments are built once by a
+ * {@link Builder} and never modified afterwards.
+ */
+public class DaySegment {
+
+    private final int rowCount;
+    private final long[] staffIds;
+    private final int[] epochDays;
+    private final int[] secondsOfDay;
+    private final long[] amounts;
+    private final int[] itemOffsets;
+    private final long[] productIds;
+    private final int[] quantities;
+
+    public DaySegment(int rowCount, long[] staffIds, int[] epochDays, int[] secondsOfDay, long[] amounts,
+                      int[] itemOffsets, long[] productIds, int[] quantities) {
+        this.rowCount = rowCount;
+        this.staffIds = staffIds;
+        this.epochDays = epochDays;
+        this.secondsOfDay = secondsOfDay;
+        this.amounts = amounts;
+        this.itemOffsets = itemOffsets;
+        this.productIds = productIds;
+        this.quantities = quantities;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getItemCount() {
+        return itemOffsets[rowCount];
+    }
+
+    public long[] getStaffIds() {
+        return staffIds;
+    }
+
+    public int[] getEpochDays() {
+        return epochDays;
+    }
+
+    public int[] getSecondsOfDay() {
+        return secondsOfDay;
+    }
+
+    public long[] getAmounts() {
+        return amounts;
+    }
+
+    public int[] getItemOffsets() {
+        return itemOffsets;
+    }
+
+    public long[] getProductIds() {
+        return productIds;
+    }
+
+    public int[] getQuantities() {
+        return quantities;
+    }
+
+    /**
+     * The rows whose epoch day lies in {@code [fromEpochDay, toEpochDay]}; returns this
+     * segment itself when every row does.
+     */
+    public DaySegment restrictTo(int fromEpochDay, int toEpochDay) {
+        int kept = 0;
+        for (int i = 0; i < rowCount; i++) {
+            if (epochDays[i] >= fromEpochDay && epochDays[i] <= toEpochDay) {
+                kept++;
+            }
+        }
+        if (kept == rowCount) {
+            return this;
+        }
+
+        long[] keptStaffIds = new long[kept];
+        int[] keptEpochDays = new int[kept];
+        int[] keptSecondsOfDay = new int[kept];
+        long[] keptAmounts = new long[kept];
+        int[] keptItemOffsets = new int[kept + 1];
+        long[] keptProductIds = new long[getItemCount()];
+        int[] keptQuantities = new int[getItemCount()];
+
+        int row = 0;
+        int item = 0;
+        for (int i = 0; i < rowCount; i++) {
+            if (epochDays[i] < fromEpochDay || epochDays[i] > toEpochDay) {
+                continue;
+            }
+            keptStaffIds[row] = staffIds[i];
+            keptEpochDays[row] = epochDays[i];
+            keptSecondsOfDay[row] = secondsOfDay[i];
+            keptAmounts[row] = amounts[i];
+            int items = itemOffsets[i + 1] - itemOffsets[i];
+            System.arraycopy(productIds, itemOffsets[i], keptProductIds, item, items);
+            System.arraycopy(quantities, itemOffsets[i], keptQuantities, item, items);
+            item += items;
+            keptItemOffsets[++row] = item;
+        }
+        return new DaySegment(kept, keptStaffIds, keptEpochDays, keptSecondsOfDay, keptAmounts, keptItemOffsets,
+                Arrays.copyOf(keptProductIds, item), Arrays.copyOf(keptQuantities, item));
+    }
+
+    /**
+     * Appends rows straight from the parser's primitive fields, growing the columns
+     * geometrically, and trims them to size in {@link #build()}.
+     */
+    public static class Builder {
+
+        private int rowCount;
+        private long[] staffIds;
+        private int[] epochDays;
+        private int[] secondsOfDay;
+        private long[] amounts;
+        private int[] itemOffsets;
+        private int itemCount;
+        private long[] productIds;
+        private int[] quantities;
+
+        public Builder() {
+            this(256);
+        }
+
+        public Builder(int expectedRows) {
+            int rows = Math.max(expectedRows, 16);
+            staffIds = new long[rows];
+            epochDays = new int[rows];
+            secondsOfDay = new int[rows];
+            amounts = new long[rows];
+            itemOffsets = new int[rows + 1];
+            productIds = new long[rows * 4];
+            quantities = new int[rows * 4];
+        }
+
+        public void add(TransactionLineParser parser) {
+            if (rowCount == staffIds.length) {
+                int capacity = rowCount * 2;
+                staffIds = Arrays.copyOf(staffIds, capacity);
+                epochDays = Arrays.copyOf(epochDays, capacity);
+                secondsOfDay = Arrays.copyOf(secondsOfDay, capacity);
+                amounts = Arrays.copyOf(amounts, capacity);
+                itemOffsets = Arrays.copyOf(itemOffsets, capacity + 1);
+            }
+            int items = parser.itemCount();
+            if (itemCount + items > productIds.length) {
+                int capacity = Math.max(productIds.length * 2, itemCount + items);
+                productIds = Arrays.copyOf(productIds, capacity);
+                quantities = Arrays.copyOf(quantities, capacity);
+            }
+
+            staffIds[rowCount] = parser.staffId();
+            epochDays[rowCount] = parser.epochDay();
+            secondsOfDay[rowCount] = parser.secondOfDay();
+            amounts[rowCount] = parser.amount();
+            for (int i = 0; i < items; i++) {
+                productIds[itemCount] = parser.productId(i);
+                quantities[itemCount] = parser.quantity(i);
+                itemCount++;
+            }
+            itemOffsets[++rowCount] = itemCount;
+        }
+
+        public DaySegment build() {
+            return new DaySegment(
+                    rowCount,
+                    Arrays.copyOf(staffIds, rowCount),
+                    Arrays.copyOf(epochDays, rowCount),
+                    Arrays.copyOf(secondsOfDay, rowCount),
+                    Arrays.copyOf(amounts, rowCount),
+                    Arrays.copyOf(itemOffsets, rowCount + 1),
+                    Arrays.copyOf(productIds, itemCount),
+                    Arrays.copyOf(quantities, itemCount)
+            );
+        }
+    }
+}
@@ -1,19 +1,23 @@
 package com.victor.transaction_analytic.model;
 
+import com.victor.transaction_analytic.helper.Amounts;
+
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 public class Transaction {
     private long transactionId;
     private LocalDateTime transactionTime;
-    private String items;
-    private BigDecimal saleAmount;
+    private long[] productIds;
+    private int[] quantities;
+    private long saleAmount; // in thousandths, see Amounts
 
     // Constructor, getters, and setters
-    public Transaction(long transactionId, LocalDateTime transactionTime, String items, BigDecimal saleAmount) {
+    public Transaction(long transactionId, LocalDateTime transactionTime, long[] productIds, int[] quantities, long saleAmount) {
         this.transactionId = transactionId;
         this.transactionTime = transactionTime;
-        this.items = items;
+        this.productIds = productIds;
+        this.quantities = quantities;
         this.saleAmount = saleAmount;
     }
 
@@ -25,11 +29,23 @@ public class Transaction {
         return transactionTime;
     }
 
-    public String getItems() {
-        return items;
+    public int getItemCount() {
+        return productIds.length;
+    }
+
+    public long getProductId(int index) {
+        return productIds[index];
     }
 
-    public BigDecimal getSaleAmount() {
+    public int getQuantity(int index) {
+        return quantities[index];
+    }
+
+    public long getSaleAmount() {
         return saleAmount;
     }
+
+    public BigDecimal getSaleAmountAsBigDecimal() {
+        return Amounts.toBigDecimal(saleAmount);
+    }
 }
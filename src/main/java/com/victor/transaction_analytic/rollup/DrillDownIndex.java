@@ -0,0 +1,177 @@
+package com.victor.transaction_analytic.rollup;
+
+import com.victor.transaction_analytic.aggregation.DayAggregate;
+import com.victor.transaction_analytic.aggregation.IngestionErrors;
+import com.victor.transaction_analytic.aggregation.LongLongHashMap;
+import com.victor.transaction_analytic.helper.Amounts;
+import com.victor.transaction_analytic.helper.DateRange;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Secondary indexes over the day partials of a folder: for every staff id and every
+ * product id, a posting list of the days it appears on with its sales or quantity that
+ * day. A drill-down walks one posting list, from the first day in range, instead of every
+ * day of the folder.
+ *
+ * <p>Days are keyed and ordered like {@link com.victor.transaction_analytic.aggregation.ShardPartial}:
+ * by the date in the file name, or the file name when it has none; files of the same day
+ * are summed. Undated days only take part in queries without dates. Immutable.
+ */
+public final class DrillDownIndex {
+
+    private final String[] days;
+    private final LocalDate[] dates;
+    private final Postings staff;
+    private final Postings products;
+    private final IngestionErrors errors;
+
+    private DrillDownIndex(String[] days, LocalDate[] dates, Postings staff, Postings products,
+                           IngestionErrors errors) {
+        this.days = days;
+        this.dates = dates;
+        this.staff = staff;
+        this.products = products;
+        this.errors = errors;
+    }
+
+    public static DrillDownIndex of(Map<Path, DayAggregate> dayFiles) {
+        SortedMap<String, List<DayAggregate>> byDay = new TreeMap<>();
+        Map<String, LocalDate> datesByDay = new HashMap<>();
+        dayFiles.forEach((file, day) -> {
+            Optional<LocalDate> date = DateRange.dateOf(file);
+            String key = date.map(LocalDate::toString).orElse(file.getFileName().toString());
+            byDay.computeIfAbsent(key, ignored -> new ArrayList<>()).add(day);
+            date.ifPresent(dated -> datesByDay.put(key, dated));
+        });
+
+        String[] days = byDay.keySet().toArray(String[]::new);
+        LocalDate[] dates = new LocalDate[days.length];
+        Postings staff = new Postings();
+        Postings products = new Postings();
+        IngestionErrors errors = IngestionErrors.NONE;
+        int ordinal = 0;
+        for (Map.Entry<String, List<DayAggregate>> day : byDay.entrySet()) {
+            int dayOrdinal = ordinal++;
+            dates[dayOrdinal] = datesByDay.get(day.getKey());
+            for (DayAggregate partial : day.getValue()) {
+                partial.monthStaffSales().forEach((month, staffSales) ->
+                        staffSales.forEach((staffId, sales) -> staff.add(staffId, dayOrdinal, sales)));
+                partial.productVolumes().forEach((productId, quantity) -> products.add(productId, dayOrdinal, quantity));
+                errors = errors.plus(partial.errors());
+            }
+        }
+        return new DrillDownIndex(days, dates, staff, products, errors);
+    }
+
+    /**
+     * Sales of a staff member per day in range, in thousandths, in day order.
+     */
+    public SortedMap<String, Long> staffSales(long staffId, DateRange range) {
+        return staff.select(staffId, range, this);
+    }
+
+    /**
+     * Quantity sold of a product per day in range, in day order.
+     */
+    public SortedMap<String, Long> productQuantities(long productId, DateRange range) {
+        return products.select(productId, range, this);
+    }
+
+    /**
+     * Ingestion errors of the indexed days, charged to every query as if it had read them.
+     */
+    public IngestionErrors errors() {
+        return errors;
+    }
+
+    public int dayCount() {
+        return days.length;
+    }
+
+    /**
+     * First day ordinal on or after {@code from}. Dates sort like their ISO text, so this
+     * is a binary search over the day keys.
+     */
+    private int firstDayFrom(LocalDate from) {
+        int index = Arrays.binarySearch(days, from.toString());
+        return index >= 0 ? index : -index - 1;
+    }
+
+    private boolean inRange(int day, DateRange range) {
+        return range.isUnbounded() || (dates[day] != null && range.contains(dates[day]));
+    }
+
+    /**
+     * Posting lists by key: ascending day ordinals with the value on each, on primitive
+     * arrays that grow by doubling.
+     */
+    private static final class Postings {
+
+        private final LongLongHashMap slots = new LongLongHashMap();
+        private int[][] days = new int[16][];
+        private long[][] values = new long[16][];
+        private int[] sizes = new int[16];
+        private int keyCount;
+
+        private void add(long key, int day, long value) {
+            int slot = (int) slots.get(key, -1);
+            if (slot < 0) {
+                slot = newSlot(key);
+            }
+            int size = sizes[slot];
+            if (size > 0 && days[slot][size - 1] == day) {
+                values[slot][size - 1] = Amounts.add(values[slot][size - 1], value);
+                return;
+            }
+            if (size == days[slot].length) {
+                days[slot] = Arrays.copyOf(days[slot], 2 * size);
+                values[slot] = Arrays.copyOf(values[slot], 2 * size);
+            }
+            days[slot][size] = day;
+            values[slot][size] = value;
+            sizes[slot] = size + 1;
+        }
+
+        private int newSlot(long key) {
+            if (keyCount == sizes.length) {
+                days = Arrays.copyOf(days, 2 * keyCount);
+                values = Arrays.copyOf(values, 2 * keyCount);
+                sizes = Arrays.copyOf(sizes, 2 * keyCount);
+            }
+            int slot = keyCount++;
+            slots.add(key, slot);
+            days[slot] = new int[4];
+            values[slot] = new long[4];
+            return slot;
+        }
+
+        private SortedMap<String, Long> select(long key, DateRange range, DrillDownIndex index) {
+            SortedMap<String, Long> selected = new TreeMap<>();
+            int slot = (int) slots.get(key, -1);
+            if (slot < 0) {
+                return selected;
+            }
+            int[] postingDays = days[slot];
+            int size = sizes[slot];
+            int start = 0;
+            if (range.from() != null) {
+                int firstDay = index.firstDayFrom(range.from());
+                start = Arrays.binarySearch(postingDays, 0, size, firstDay);
+                start = start >= 0 ? start : -start - 1;
+            }
+            for (int i = start; i < size; i++) {
+                int day = postingDays[i];
+                if (range.to() != null && index.dates[day] != null && index.dates[day].isAfter(range.to())) {
+                    break;
+                }
+                if (index.inRange(day, range)) {
+                    selected.put(index.days[day], values[slot][i]);
+                }
+            }
+            return selected;
+        }
+    }
+}
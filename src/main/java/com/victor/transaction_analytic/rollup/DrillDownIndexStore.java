@@ -0,0 +1,53 @@
+package com.victor.transaction_analytic.rollup;
+
+import com.victor.transaction_analytic.cache.FileStamp;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Drill-down indexes of the folders that have no rollup, keyed by folder and only served
+ * while the folder still holds exactly the files, sizes and last-modified times it held
+ * when the index was built. The most recently used folders are kept.
+ */
+@Component
+public class DrillDownIndexStore {
+
+    private static final int MAX_FOLDERS = 32;
+
+    private final LinkedHashMap<Path, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private record Entry(Set<FileStamp> stamps, DrillDownIndex index) {
+    }
+
+    public synchronized Optional<DrillDownIndex> get(Path folder, Set<FileStamp> stamps) {
+        Path key = normalize(folder);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        if (!entry.stamps().equals(stamps)) {
+            entries.remove(key);
+            return Optional.empty();
+        }
+        return Optional.of(entry.index());
+    }
+
+    public synchronized void put(Path folder, Set<FileStamp> stamps, DrillDownIndex index) {
+        entries.put(normalize(folder), new Entry(Set.copyOf(stamps), index));
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (entries.size() > MAX_FOLDERS) {
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private static Path normalize(Path folder) {
+        return folder.toAbsolutePath().normalize();
+    }
+}
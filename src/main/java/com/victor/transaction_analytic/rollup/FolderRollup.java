@@ -0,0 +1,238 @@
+package com.victor.transaction_analytic.rollup;
+
+import com.victor.transaction_analytic.aggregation.AnalyticMetric;
+import com.victor.transaction_analytic.aggregation.DayAggregate;
+import com.victor.transaction_analytic.aggregation.DayProductVolumes;
+import com.victor.transaction_analytic.aggregation.IngestionErrors;
+import com.victor.transaction_analytic.aggregation.MonthStaffSales;
+import com.victor.transaction_analytic.aggregation.ProductVolumes;
+import com.victor.transaction_analytic.aggregation.TransactionAggregator;
+import com.victor.transaction_analytic.helper.Amounts;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Materialized rollups of one folder: the exact partial of every day file, which holds
+ * that day's totals and maximum, plus folder totals per product, per month and staff and
+ * per hour, and the highest daily volume and value. Queries read the totals instead of
+ * the days, so answering one costs a copy of the totals rather than a merge per file.
+ *
+ * <p>Immutable, so a rollup can be read by any thread while its successor is built. An
+ * update subtracts the days replaced or removed and adds the new ones: product totals are
+ * copied as plain arrays, month tables only when a changed day touches them, and a total
+ * taken back to zero stays as a zero entry that rankings skip. Error counts are subtracted
+ * too; the samples are collected again only when a changed day had errors, and the daily
+ * maxima only when a dropped day held one.
+ */
+public final class FolderRollup {
+
+    private static final FolderRollup EMPTY = of(Map.of());
+
+    private final Map<Path, DayAggregate> days;
+    private final long highestDailyVolume;
+    private final long highestDailyValue;
+    private final ProductVolumes productTotals;
+    private final MonthStaffSales monthStaffSales;
+    private final long[] hourTotals;
+    private final long[] hourCounts;
+    private final long malformedLines;
+    private final long unreadableFiles;
+    private final IngestionErrors errors;
+    private volatile DayProductVolumes productVolumes;
+    private volatile DrillDownIndex drillDownIndex;
+
+    private FolderRollup(Map<Path, DayAggregate> days, long highestDailyVolume, long highestDailyValue,
+                         Totals totals, List<IngestionErrors.Sample> samples) {
+        this.days = Collections.unmodifiableMap(days);
+        this.highestDailyVolume = highestDailyVolume;
+        this.highestDailyValue = highestDailyValue;
+        this.productTotals = totals.products;
+        this.monthStaffSales = totals.monthStaffSales;
+        this.hourTotals = totals.hourTotals;
+        this.hourCounts = totals.hourCounts;
+        this.malformedLines = totals.malformedLines;
+        this.unreadableFiles = totals.unreadableFiles;
+        this.errors = malformedLines == 0 && unreadableFiles == 0 ? IngestionErrors.NONE
+                : new IngestionErrors(malformedLines, unreadableFiles, samples);
+    }
+
+    /**
+     * Folder totals while a rollup is built, products in their dense form.
+     */
+    private static final class Totals {
+        private final ProductVolumes products;
+        private final MonthStaffSales monthStaffSales;
+        private final long[] hourTotals;
+        private final long[] hourCounts;
+        private long malformedLines;
+        private long unreadableFiles;
+
+        private Totals() {
+            products = new ProductVolumes();
+            monthStaffSales = new MonthStaffSales();
+            hourTotals = new long[DayAggregate.HOURS_PER_DAY];
+            hourCounts = new long[DayAggregate.HOURS_PER_DAY];
+        }
+
+        private Totals(FolderRollup rollup) {
+            products = new ProductVolumes(rollup.productTotals);
+            monthStaffSales = rollup.monthStaffSales.sharedCopy();
+            hourTotals = rollup.hourTotals.clone();
+            hourCounts = rollup.hourCounts.clone();
+            malformedLines = rollup.malformedLines;
+            unreadableFiles = rollup.unreadableFiles;
+        }
+
+        private void add(DayAggregate day) {
+            products.addAll(day.productVolumes());
+            monthStaffSales.addAll(day.monthStaffSales());
+            for (int hour = 0; hour < DayAggregate.HOURS_PER_DAY; hour++) {
+                hourTotals[hour] = Amounts.add(hourTotals[hour], day.hourTotals()[hour]);
+                hourCounts[hour] += day.hourCounts()[hour];
+            }
+            malformedLines += day.errors().malformedLines();
+            unreadableFiles += day.errors().unreadableFiles();
+        }
+
+        private void subtract(DayAggregate day) {
+            products.subtractAll(day.productVolumes());
+            monthStaffSales.subtractAll(day.monthStaffSales());
+            for (int hour = 0; hour < DayAggregate.HOURS_PER_DAY; hour++) {
+                hourTotals[hour] = Math.subtractExact(hourTotals[hour], day.hourTotals()[hour]);
+                hourCounts[hour] -= day.hourCounts()[hour];
+            }
+            malformedLines -= day.errors().malformedLines();
+            unreadableFiles -= day.errors().unreadableFiles();
+        }
+    }
+
+    public static FolderRollup empty() {
+        return EMPTY;
+    }
+
+    public static FolderRollup of(Map<Path, DayAggregate> days) {
+        Map<Path, DayAggregate> sorted = new TreeMap<>(days);
+        Totals totals = new Totals();
+        sorted.values().forEach(totals::add);
+        return new FolderRollup(sorted, highestVolume(sorted.values()), highestValue(sorted.values()), totals,
+                samples(sorted.values()));
+    }
+
+    /**
+     * This rollup with {@code changed} days added or replaced and {@code removed} days
+     * dropped.
+     */
+    public FolderRollup update(Map<Path, DayAggregate> changed, Set<Path> removed) {
+        List<DayAggregate> dropped = new ArrayList<>();
+        changed.keySet().stream().map(days::get).filter(Objects::nonNull).forEach(dropped::add);
+        removed.stream().map(days::get).filter(Objects::nonNull).forEach(dropped::add);
+        if (changed.isEmpty() && dropped.isEmpty()) {
+            return this;
+        }
+
+        Map<Path, DayAggregate> remaining = new TreeMap<>(days);
+        remaining.keySet().removeAll(removed);
+        remaining.putAll(changed);
+
+        Totals totals = new Totals(this);
+        dropped.forEach(totals::subtract);
+        changed.values().forEach(totals::add);
+
+        boolean droppedMaximum = dropped.stream().anyMatch(day ->
+                day.totalVolume() == highestDailyVolume || day.maxValue() == highestDailyValue);
+        long volume = droppedMaximum ? highestVolume(remaining.values())
+                : Math.max(highestDailyVolume, highestVolume(changed.values()));
+        long value = droppedMaximum ? highestValue(remaining.values())
+                : Math.max(highestDailyValue, highestValue(changed.values()));
+        boolean errorsChanged = Stream.concat(dropped.stream(), changed.values().stream())
+                .anyMatch(day -> !day.errors().isEmpty());
+        return new FolderRollup(remaining, volume, value, totals,
+                errorsChanged ? samples(remaining.values()) : errors.samples());
+    }
+
+    private static long highestVolume(Collection<DayAggregate> days) {
+        return days.stream().mapToLong(DayAggregate::totalVolume).max().orElse(Long.MIN_VALUE);
+    }
+
+    private static long highestValue(Collection<DayAggregate> days) {
+        return days.stream().mapToLong(DayAggregate::maxValue).max().orElse(Long.MIN_VALUE);
+    }
+
+    /**
+     * The first error samples of the days in path order, as many as a fresh scan keeps.
+     */
+    private static List<IngestionErrors.Sample> samples(Collection<DayAggregate> days) {
+        List<IngestionErrors.Sample> samples = new ArrayList<>();
+        for (DayAggregate day : days) {
+            for (IngestionErrors.Sample sample : day.errors().samples()) {
+                if (samples.size() == IngestionErrors.SAMPLE_LIMIT) {
+                    return List.copyOf(samples);
+                }
+                samples.add(sample);
+            }
+        }
+        return List.copyOf(samples);
+    }
+
+    /**
+     * The exact partial of every day file, by path. The partials must not be modified.
+     */
+    public Map<Path, DayAggregate> days() {
+        return days;
+    }
+
+    public boolean isEmpty() {
+        return days.isEmpty();
+    }
+
+    /**
+     * Secondary indexes over the days, built on first use and kept for the life of this
+     * rollup. Concurrent first callers may each build one; they are equal.
+     */
+    public DrillDownIndex drillDownIndex() {
+        DrillDownIndex index = drillDownIndex;
+        if (index == null) {
+            index = DrillDownIndex.of(days);
+            drillDownIndex = index;
+        }
+        return index;
+    }
+
+    /**
+     * An aggregator holding the folder totals of the requested metrics, as if every day
+     * had been merged into it. Opt-in metrics are not rolled up.
+     */
+    public TransactionAggregator aggregator(Set<AnalyticMetric> metrics) {
+        if (metrics.stream().anyMatch(AnalyticMetric::isOptIn)) {
+            throw new IllegalArgumentException("Rollups only hold exact metrics: " + metrics);
+        }
+        TransactionAggregator aggregator = new TransactionAggregator(metrics);
+        if (!days.isEmpty()) {
+            // The highest daily figures stand in for the single "day" merged here
+            aggregator.merge(new DayAggregate(null, highestDailyVolume, highestDailyValue, productVolumes(),
+                    monthStaffSales, hourTotals, hourCounts, null, null, null, errors));
+        }
+        return aggregator;
+    }
+
+    /**
+     * The non-zero product totals, compacted on first use and kept for the life of this
+     * rollup, so an update that no query reads never sorts them.
+     */
+    private DayProductVolumes productVolumes() {
+        DayProductVolumes volumes = productVolumes;
+        if (volumes == null) {
+            volumes = productTotals.compact();
+            productVolumes = volumes;
+        }
+        return volumes;
+    }
+
+    @Override
+    public String toString() {
+        return "FolderRollup{days=" + days.size() + ", products=" + productTotals.size()
+                + ", months=" + monthStaffSales.monthCount() + "}";
+    }
+}
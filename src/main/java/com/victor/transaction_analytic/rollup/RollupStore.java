@@ -0,0 +1,52 @@
+package com.victor.transaction_analytic.rollup;
+
+import com.victor.transaction_analytic.aggregation.AnalyticMetric;
+import com.victor.transaction_analytic.aggregation.TransactionAggregator;
+import com.victor.transaction_analytic.helper.DateRange;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Current {@link FolderRollup} of every folder whose rollup is maintained, which are the
+ * watched folders. Queries they can answer skip listing and reading the folder entirely.
+ */
+@Component
+public class RollupStore {
+
+    private final Map<Path, FolderRollup> rollups = new ConcurrentHashMap<>();
+
+    public void put(Path folder, FolderRollup rollup) {
+        rollups.put(normalize(folder), rollup);
+    }
+
+    public void remove(Path folder) {
+        rollups.remove(normalize(folder));
+    }
+
+    public Optional<FolderRollup> get(String folderPath) {
+        return Optional.ofNullable(rollups.get(normalize(Path.of(folderPath))));
+    }
+
+    /**
+     * The folder totals, when the folder has a non-empty rollup and the query covers the
+     * whole folder with exact metrics only. A date range would need the rows of the days
+     * on its bounds, which rollups do not keep.
+     */
+    public Optional<TransactionAggregator> query(String folderPath, Set<AnalyticMetric> metrics, DateRange range) {
+        if (!range.isUnbounded() || metrics.stream().anyMatch(AnalyticMetric::isOptIn)) {
+            return Optional.empty();
+        }
+        return get(folderPath)
+                .filter(rollup -> !rollup.isEmpty())
+                .map(rollup -> rollup.aggregator(metrics));
+    }
+
+    private static Path normalize(Path folder) {
+        return folder.toAbsolutePath().normalize();
+    }
+}
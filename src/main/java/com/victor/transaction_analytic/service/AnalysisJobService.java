@@ -0,0 +1,183 @@
+package com.victor.transaction_analytic.service;
+
+import com.victor.transaction_analytic.config.AnalyticProperties;
+import com.victor.transaction_analytic.dto.AnalysisJobDto;
+import com.victor.transaction_analytic.dto.AnalysisJobDto.Status;
+import com.victor.transaction_analytic.dto.TransactionAnalyticResponseDto;
+import com.victor.transaction_analytic.helper.DateRange;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs folder analyses as background jobs on a bounded pool with a bounded queue, so a
+ * heavy scan holds no servlet thread. A submission identical to a queued or running job,
+ * same folder and date range, joins that job instead of starting another scan. Finished
+ * jobs are kept for {@code result-ttl} and purged lazily on later calls. A rejected job
+ * is dropped, unless a submission joined it meanwhile: then it is kept as failed, so
+ * every id handed out can be fetched.
+ */
+@Service
+public class AnalysisJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalysisJobService.class);
+
+    private final FolderTransactionAnalyticService folderAnalyticService;
+    private final Duration resultTtl;
+    private final ThreadPoolExecutor jobExecutor;
+    private final Map<String, AnalysisJob> jobs = new ConcurrentHashMap<>();
+    private final Map<JobKey, AnalysisJob> inFlight = new ConcurrentHashMap<>();
+
+    private record JobKey(Path folder, DateRange range) {
+    }
+
+    private static class AnalysisJob {
+        private final String id = UUID.randomUUID().toString();
+        private final JobKey key;
+        private final String folderPath;
+        private final Instant submittedAt = Instant.now();
+        private final AtomicInteger requests = new AtomicInteger(1);
+        private volatile Status status = Status.QUEUED;
+        private volatile int filesProcessed;
+        private volatile int totalFiles;
+        private volatile TransactionAnalyticResponseDto result;
+        private volatile String error;
+        private volatile Instant finishedAt;
+
+        private AnalysisJob(JobKey key, String folderPath) {
+            this.key = key;
+            this.folderPath = folderPath;
+        }
+
+        private void finish(Status finalStatus) {
+            finishedAt = Instant.now();
+            status = finalStatus;
+        }
+
+        private AnalysisJobDto toDto() {
+            return new AnalysisJobDto(id, status, folderPath, key.range().from(), key.range().to(), requests.get(),
+                    filesProcessed, totalFiles, submittedAt, finishedAt, error);
+        }
+    }
+
+    public AnalysisJobService(FolderTransactionAnalyticService folderAnalyticService,
+                              AnalyticProperties properties) {
+        AnalyticProperties.Jobs config = properties.getJobs();
+        this.folderAnalyticService = folderAnalyticService;
+        this.resultTtl = config.getResultTtl();
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.jobExecutor = new ThreadPoolExecutor(config.getWorkers(), config.getWorkers(), 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(config.getQueueCapacity()), runnable -> {
+                    Thread thread = new Thread(runnable, "analysis-job-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Throws {@link RejectedExecutionException} when every worker is busy and the queue is
+     * full.
+     */
+    public AnalysisJobDto submit(String folderPath, DateRange range) {
+        purgeExpired();
+        JobKey key = new JobKey(Path.of(folderPath).toAbsolutePath().normalize(), range);
+
+        AnalysisJob[] created = new AnalysisJob[1];
+        AnalysisJob job = inFlight.compute(key, (ignored, existing) -> {
+            if (existing != null) {
+                existing.requests.incrementAndGet();
+                return existing;
+            }
+            created[0] = new AnalysisJob(key, folderPath);
+            // Fetchable before any other submission can join it and learn its id
+            jobs.put(created[0].id, created[0]);
+            return created[0];
+        });
+
+        if (created[0] == null) {
+            logger.debug("Coalesced analysis of {} onto job {}", folderPath, job.id);
+            return job.toDto();
+        }
+
+        try {
+            jobExecutor.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(key, job);
+            // No one joins once it has left the in-flight set, so the count is final
+            if (job.requests.get() == 1) {
+                jobs.remove(job.id, job);
+            } else {
+                job.error = "Rejected: the job queue is full";
+                job.finish(Status.FAILED);
+            }
+            throw e;
+        }
+        logger.info("Submitted analysis job {} for {}", job.id, folderPath);
+        return job.toDto();
+    }
+
+    public Optional<AnalysisJobDto> status(String id) {
+        purgeExpired();
+        return Optional.ofNullable(jobs.get(id)).map(AnalysisJob::toDto);
+    }
+
+    /**
+     * The result of a job that succeeded; empty while it is unfinished or when it failed.
+     */
+    public Optional<TransactionAnalyticResponseDto> result(String id) {
+        return Optional.ofNullable(jobs.get(id)).map(job -> job.result);
+    }
+
+    /**
+     * Jobs that can still be fetched, finished or not.
+     */
+    int retainedJobCount() {
+        return jobs.size();
+    }
+
+    private void run(AnalysisJob job) {
+        job.status = Status.RUNNING;
+        Status finalStatus;
+        try {
+            job.result = folderAnalyticService.analyzeTransactions(job.folderPath, job.key.range(), progress -> {
+                job.filesProcessed = progress.filesProcessed();
+                job.totalFiles = progress.totalFiles();
+            });
+            finalStatus = Status.SUCCEEDED;
+            logger.info("Analysis job {} for {} succeeded", job.id, job.folderPath);
+        } catch (Exception e) {
+            job.error = e instanceof NoSuchFileException ? "Folder not found" : String.valueOf(e.getMessage());
+            finalStatus = Status.FAILED;
+            logger.error("Analysis job {} for {} failed", job.id, job.folderPath, e);
+        }
+        // Leave the in-flight set first, so no later submission joins a finished job
+        inFlight.remove(job.key, job);
+        job.finish(finalStatus);
+    }
+
+    private void purgeExpired() {
+        Instant expiry = Instant.now().minus(resultTtl);
+        jobs.values().removeIf(job -> job.finishedAt != null && job.finishedAt.isBefore(expiry));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobExecutor.shutdownNow();
+    }
+}
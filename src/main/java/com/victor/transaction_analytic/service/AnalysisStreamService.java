@@ -0,0 +1,131 @@
+package com.victor.transaction_analytic.service;
+
+import com.victor.transaction_analytic.config.AnalyticProperties;
+import com.victor.transaction_analytic.dto.AnalysisEventDto;
+import com.victor.transaction_analytic.dto.TransactionAnalyticResponseDto;
+import com.victor.transaction_analytic.helper.DateRange;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.util.Map;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs streamed folder analyses and writes their events to the client as NDJSON or
+ * server-sent events. Each stream is driven by its own thread, which blocks on the
+ * analytic executor like a regular request would; the request thread returns at once.
+ * Once the client disconnects, the next write fails and the analysis stops.
+ */
+@Service
+public class AnalysisStreamService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalysisStreamService.class);
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final FolderTransactionAnalyticService folderAnalyticService;
+    private final AnalyticProperties.Stream config;
+    private final ThreadPoolExecutor streamExecutor;
+
+    @FunctionalInterface
+    private interface EventWriter {
+        void write(String event, Object data) throws IOException;
+    }
+
+    public AnalysisStreamService(FolderTransactionAnalyticService folderAnalyticService,
+                                 AnalyticProperties properties) {
+        this.folderAnalyticService = folderAnalyticService;
+        this.config = properties.getStream();
+
+        // No queue: a stream either gets a thread now or the request is rejected
+        AtomicInteger threadCount = new AtomicInteger();
+        this.streamExecutor = new ThreadPoolExecutor(0, config.getMaxConcurrent(), 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "analysis-stream-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    public ResponseBodyEmitter streamNdjson(String folderPath, DateRange range) {
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(config.getTimeout().toMillis());
+        start(folderPath, range, emitter, (event, data) -> {
+            emitter.send(new AnalysisEventDto(event, data), MediaType.APPLICATION_JSON);
+            emitter.send("\n", NDJSON);
+        });
+        return emitter;
+    }
+
+    public SseEmitter streamEvents(String folderPath, DateRange range) {
+        SseEmitter emitter = new SseEmitter(config.getTimeout().toMillis());
+        start(folderPath, range, emitter, (event, data) -> emitter.send(SseEmitter.event().name(event).data(data)));
+        return emitter;
+    }
+
+    /**
+     * Throws {@link java.util.concurrent.RejectedExecutionException} when
+     * {@code max-concurrent} streams are already running.
+     */
+    private void start(String folderPath, DateRange range, ResponseBodyEmitter emitter, EventWriter writer) {
+        AtomicBoolean closed = new AtomicBoolean();
+        emitter.onCompletion(() -> closed.set(true));
+        emitter.onTimeout(() -> closed.set(true));
+        emitter.onError(e -> closed.set(true));
+
+        EventWriter checked = (event, data) -> {
+            if (closed.get()) {
+                throw new IOException("Stream closed");
+            }
+            try {
+                writer.write(event, data);
+            } catch (IOException | IllegalStateException e) {
+                closed.set(true);
+                throw new IOException("Stream closed", e);
+            }
+        };
+
+        streamExecutor.execute(() -> {
+            try {
+                TransactionAnalyticResponseDto result = folderAnalyticService.analyzeTransactions(folderPath, range,
+                        config.getPartialInterval(), progress -> checked.write("progress", progress));
+                checked.write("result", result);
+                emitter.complete();
+            } catch (IOException e) {
+                if (closed.get()) {
+                    logger.info("Stopped streaming the analysis of {}: client disconnected", folderPath);
+                    return;
+                }
+                writeError(folderPath, emitter, checked, e);
+            } catch (RuntimeException e) {
+                logger.error("Streamed analysis of {} failed", folderPath, e);
+                writeError(folderPath, emitter, checked, e);
+            }
+        });
+    }
+
+    private static void writeError(String folderPath, ResponseBodyEmitter emitter, EventWriter writer, Exception e) {
+        try {
+            String message = e instanceof NoSuchFileException ? "Folder not found" : String.valueOf(e.getMessage());
+            writer.write("error", Map.of("error", message));
+            emitter.complete();
+        } catch (IOException | IllegalStateException writeFailure) {
+            logger.debug("Could not report the failed analysis of {}", folderPath, writeFailure);
+            emitter.completeWithError(e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        streamExecutor.shutdownNow();
+    }
+}
@@ -1,342 +1,694 @@
 package com.victor.transaction_analytic.service;
 
+import com.victor.transaction_analytic.aggregation.AnalyticMetric;
+import com.victor.transaction_analytic.aggregation.DayAccumulator;
+import com.victor.transaction_analytic.aggregation.DayAggregate;
+import com.victor.transaction_analytic.aggregation.IngestionErrors;
+import com.victor.transaction_analytic.aggregation.IntradayHistogram;
+import com.victor.transaction_analytic.aggregation.ShardPartial;
+import com.victor.transaction_analytic.aggregation.TransactionAggregator;
+import com.victor.transaction_analytic.cache.DayAggregateCache;
+import com.victor.transaction_analytic.cache.FileStamp;
+import com.victor.transaction_analytic.dto.AnalysisProgressDto;
+import com.victor.transaction_analytic.dto.DailyValueDto;
+import com.victor.transaction_analytic.dto.DistinctCountsDto;
+import com.victor.transaction_analytic.dto.DrillDownDto;
+import com.victor.transaction_analytic.dto.IntradayBucketDto;
+import com.victor.transaction_analytic.dto.RankedEntryDto;
 import com.victor.transaction_analytic.dto.TransactionAnalyticResponseDto;
-import com.victor.transaction_analytic.model.Transaction;
+import com.victor.transaction_analytic.exception.InvalidRequestException;
+import com.victor.transaction_analytic.helper.Amounts;
+import com.victor.transaction_analytic.helper.DateRange;
+import com.victor.transaction_analytic.helper.ErrorBudget;
+import com.victor.transaction_analytic.helper.FileChunk;
+import com.victor.transaction_analytic.helper.SegmentFile;
+import com.victor.transaction_analytic.metrics.PipelineMetrics;
+import com.victor.transaction_analytic.rollup.DrillDownIndex;
+import com.victor.transaction_analytic.rollup.DrillDownIndexStore;
+import com.victor.transaction_analytic.rollup.FolderRollup;
+import com.victor.transaction_analytic.rollup.RollupStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.DayOfWeek;
+import java.time.Duration;
 import java.time.YearMonth;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+import java.util.stream.Stream;
 
 @Service
 public class FolderTransactionAnalyticService {
 
     private static final Logger logger = LoggerFactory.getLogger(FolderTransactionAnalyticService.class);
+    private static final int STREAM_WINDOW = 2 * Runtime.getRuntime().availableProcessors();
 
-    private final SingleFileTransactionAnalyticService singleFileService;
+    @FunctionalInterface
+    public interface ProgressListener {
+        void onFileProcessed(AnalysisProgressDto progress) throws IOException;
+    }
 
-    public FolderTransactionAnalyticService(SingleFileTransactionAnalyticService singleFileService) {
+    private final SingleFileTransactionAnalyticService singleFileService;
+    private final Executor analyticExecutor;
+    private final DayAggregateCache dayAggregateCache;
+    private final PipelineMetrics pipelineMetrics;
+    private final RollupStore rollupStore;
+    private final DrillDownIndexStore drillDownIndexStore;
+
+    public FolderTransactionAnalyticService(SingleFileTransactionAnalyticService singleFileService,
+                                            Executor analyticExecutor,
+                                            DayAggregateCache dayAggregateCache,
+                                            PipelineMetrics pipelineMetrics,
+                                            RollupStore rollupStore,
+                                            DrillDownIndexStore drillDownIndexStore) {
         this.singleFileService = singleFileService;
+        this.analyticExecutor = analyticExecutor;
+        this.dayAggregateCache = dayAggregateCache;
+        this.pipelineMetrics = pipelineMetrics;
+        this.rollupStore = rollupStore;
+        this.drillDownIndexStore = drillDownIndexStore;
+    }
+
+    /**
+     * Malformed lines and unreadable files are handled by the configured error policy and
+     * reported with the result; a folder that cannot be listed, or holds no files, throws.
+     * A range that matches none of its files gets the empty result, like the per-metric
+     * queries.
+     */
+    public TransactionAnalyticResponseDto analyzeTransactions(String folderPath, DateRange range) throws IOException {
+        Optional<TransactionAggregator> aggregator =
+                aggregateFolder(folderPath, false, List.of(), AnalyticMetric.exact(), range);
+        if (aggregator.isEmpty()) {
+            requireFiles(folderPath, listFiles(folderPath));
+            return new TransactionAggregator(AnalyticMetric.exact()).toResponseDto();
+        }
+        return aggregator.get().toResponseDto();
+    }
+
+    public TransactionAnalyticResponseDto analyzeTransactions(String folderPath, DateRange range,
+                                                              ProgressListener listener) throws IOException {
+        return analyzeTransactions(folderPath, range, null, listener);
     }
 
-    public TransactionAnalyticResponseDto analyzeTransactions(String folderPath) {
+    /**
+     * Streaming variant of {@link #analyzeTransactions(String, DateRange)}. Files are merged
+     * in listing order with at most {@code STREAM_WINDOW} of them in flight, and the listener
+     * hears about each one, with the running result attached at most once per
+     * {@code partialInterval}, or never when it is null. An exception from the listener,
+     * such as a write to a client that went away, stops submitting files, cancels those not
+     * started yet and propagates.
+     */
+    public TransactionAnalyticResponseDto analyzeTransactions(String folderPath, DateRange range,
+                                                              Duration partialInterval,
+                                                              ProgressListener listener) throws IOException {
+        List<Path> files = prune(requireFiles(folderPath, listFiles(folderPath)), range);
+
+        Set<AnalyticMetric> metrics = AnalyticMetric.exact();
+        ErrorBudget budget = singleFileService.newErrorBudget();
+        TransactionAggregator aggregator = new TransactionAggregator(metrics);
+        Deque<CompletableFuture<DayAggregate>> inFlight = new ArrayDeque<>();
+        int submitted = 0;
+        long lastPartial = System.nanoTime();
         try {
-            List<Path> files = Files.list(Paths.get(folderPath))
-                    .filter(Files::isRegularFile)
-                    .toList();
+            for (int processed = 0; processed < files.size(); processed++) {
+                while (submitted < files.size() && inFlight.size() < STREAM_WINDOW) {
+                    inFlight.add(analyzeFile(files.get(submitted++), metrics, range, budget));
+                }
+                merge(aggregator, join(inFlight.poll()));
 
-            if (files.isEmpty()) {
-                logger.warn("No files found in the folder: {}", folderPath);
-                throw new FileNotFoundException("Folder not found");
+                TransactionAnalyticResponseDto partial = null;
+                long now = System.nanoTime();
+                if (partialInterval != null && now - lastPartial >= partialInterval.toNanos()) {
+                    partial = aggregator.toResponseDto();
+                    lastPartial = now;
+                }
+                listener.onFileProcessed(new AnalysisProgressDto(files.get(processed).getFileName().toString(),
+                        processed + 1, files.size(), partial));
             }
+        } finally {
+            inFlight.forEach(day -> day.cancel(false));
+        }
 
-            BigDecimal volume = highestSalesVolumeInADay(folderPath, true, files);
-            BigDecimal value = highestSaleValueInADay(folderPath, true, files);
-            Map<YearMonth, String> staffs = highestSalesStaffByMonth(folderPath, true, files);
-            int hour = highestHourByAverageTransactionVolume(folderPath, true, files);
-            String product = mostSoldProductByVolume(folderPath, true, files);
+        return aggregator.toResponseDto();
+    }
 
-            return new TransactionAnalyticResponseDto(volume, value, product, staffs, hour);
+    public BigDecimal highestSaleValueInADay(String folderPath, boolean isAll, List<Path> passedFiles,
+                                             DateRange range) throws IOException {
+        Optional<TransactionAggregator> aggregator =
+                aggregateFolder(folderPath, isAll, passedFiles, EnumSet.of(AnalyticMetric.DAILY_MAX_VALUE), range);
+        if (aggregator.isEmpty()) {
+            return BigDecimal.ZERO;
+        }
 
+        BigDecimal result = aggregator.get().highestSalesValueInADay();
+        logger.debug("Highest sales value across all days: {}", result);
+        return result;
+    }
 
-        } catch (IOException e) {
-            logger.error("Error reading folder: {}", folderPath, e);
+    public BigDecimal highestSalesVolumeInADay(String folderPath, boolean isAll, List<Path> passedFiles,
+                                               DateRange range) throws IOException {
+        Optional<TransactionAggregator> aggregator =
+                aggregateFolder(folderPath, isAll, passedFiles, EnumSet.of(AnalyticMetric.DAILY_VOLUME), range);
+        if (aggregator.isEmpty()) {
+            return BigDecimal.ZERO;
+        }
+
+        BigDecimal result = aggregator.get().highestSalesVolumeInADay();
+        logger.debug("Highest sales volume in a day: {}", result);
+        return result;
+    }
+
+    public String mostSoldProductByVolume(String folderPath, boolean isAll, List<Path> passedFiles,
+                                          DateRange range) throws IOException {
+        Optional<Map.Entry<Long, Long>> mostSoldProduct =
+                aggregateFolder(folderPath, isAll, passedFiles, EnumSet.of(AnalyticMetric.PRODUCT_VOLUME), range)
+                        .flatMap(TransactionAggregator::mostSoldProduct);
+
+        if (mostSoldProduct.isPresent()) {
+            String productId = String.valueOf(mostSoldProduct.get().getKey());
+            long totalQuantity = mostSoldProduct.get().getValue();
+            logger.debug("Most sold product ID: {}, Total quantity sold: {}", productId, totalQuantity);
+            return productId;
         }
 
         return null;
     }
 
-    public BigDecimal highestSaleValueInADay(String folderPath, boolean isAll, List<Path> passedFiles) {
-        try {
-            BigDecimal zero = getSalesValue(folderPath, isAll, passedFiles);
-            if (zero != null) return zero;
+    public Map<YearMonth, String> highestSalesStaffByMonth(String folderPath, boolean isAll, List<Path> passedFiles,
+                                                           DateRange range) throws IOException {
+        Optional<TransactionAggregator> aggregator =
+                aggregateFolder(folderPath, isAll, passedFiles, EnumSet.of(AnalyticMetric.MONTH_STAFF_SALES), range);
+        if (aggregator.isEmpty()) {
+            return Collections.emptyMap();
+        }
 
-        } catch (IOException e) {
-            logger.error("Error reading folder: {}", folderPath, e);
+        Map<YearMonth, Map.Entry<String, BigDecimal>> maxStaffByMonth = aggregator.get().highestSalesStaffByMonth();
+
+        // Find the highest sales staff ID for each month
+        Map<YearMonth, String> highestSalesStaffMap = new HashMap<>();
+        maxStaffByMonth.forEach((month, staff) -> {
+            highestSalesStaffMap.put(month, staff.getKey());
+            logger.debug("Highest sales staff for {}: {}, Total sales: {}", month, staff.getKey(), staff.getValue());
+        });
+
+        return highestSalesStaffMap;
+    }
+
+    public int highestHourByAverageTransactionVolume(String folderPath, boolean isAll, List<Path> passedFiles,
+                                                     DateRange range) throws IOException {
+        Optional<Map.Entry<Integer, BigDecimal>> maxHourEntry =
+                aggregateFolder(folderPath, isAll, passedFiles, EnumSet.of(AnalyticMetric.HOURLY_VOLUME), range)
+                        .flatMap(TransactionAggregator::highestHourByAverageVolume);
+
+        if (maxHourEntry.isPresent()) {
+            int hour = maxHourEntry.get().getKey();
+            BigDecimal averageVolume = maxHourEntry.get().getValue();
+            logger.debug("Highest hour by average transaction volume: {}:00, Average volume: {}", hour, averageVolume);
+            return hour;
         }
 
-        return BigDecimal.ZERO;
+        return -1;
     }
 
-    private BigDecimal getSalesValue(String folderPath, boolean isAll, List<Path> passedFiles) throws IOException {
-        List<Path> files;
-        if (!isAll) {
-            files = Files.list(Paths.get(folderPath))
-                    .filter(Files::isRegularFile)
-                    .toList();
-        } else {
-            files = passedFiles;
+    /**
+     * In approximate mode the quantities are estimates that may exceed the true totals by
+     * the entries' error bound: exact sums over the days already cached, Count-Min
+     * estimates over a fixed-size sketch for the others.
+     */
+    public List<RankedEntryDto> topProductsByVolume(String folderPath, int k, boolean approximate,
+                                                    DateRange range) throws IOException {
+        Set<AnalyticMetric> metrics = EnumSet.of(approximate
+                ? AnalyticMetric.APPROXIMATE_PRODUCT_VOLUME
+                : AnalyticMetric.PRODUCT_VOLUME);
+        Optional<TransactionAggregator> aggregator = aggregateFolder(folderPath, false, List.of(), metrics, range);
+        if (aggregator.isEmpty()) {
+            return List.of();
         }
 
-        if (files.isEmpty()) {
-            logger.warn("No files found in the folder: {}", folderPath);
-            return BigDecimal.ZERO;
+        if (approximate) {
+            BigDecimal errorBound = BigDecimal.valueOf(aggregator.get().approximateErrorBound());
+            return rank(aggregator.get().approximateTopProducts(k), product -> String.valueOf(product.getKey()),
+                    product -> BigDecimal.valueOf(product.getValue())).stream()
+                    .map(entry -> new RankedEntryDto(entry.rank(), entry.key(), entry.value(), errorBound))
+                    .toList();
         }
+        return rank(aggregator.get().topProducts(k), product -> String.valueOf(product.getKey()),
+                product -> BigDecimal.valueOf(product.getValue()));
+    }
 
-        Optional<BigDecimal> maxSales = files.stream()
-                .map(file -> {
-                    try {
-                        singleFileService.loadTransactions(file.toString());
-                        return singleFileService.highestSalesValueInADay();
-                    } catch (IOException e) {
-                        logger.error("Error processing file: {}", file, e);
-                        return BigDecimal.ZERO;
-                    }
-                })
-                .max(Comparator.naturalOrder());
-
-        if (maxSales.isPresent()) {
-            BigDecimal result = maxSales.get();
-            logger.info("Highest sales value across all days: {}", result);
-            return result;
+    public Map<YearMonth, List<RankedEntryDto>> topSalesStaffByMonth(String folderPath, int k,
+                                                                     DateRange range) throws IOException {
+        Optional<TransactionAggregator> aggregator =
+                aggregateFolder(folderPath, false, List.of(), EnumSet.of(AnalyticMetric.MONTH_STAFF_SALES), range);
+        if (aggregator.isEmpty()) {
+            return Collections.emptyMap();
         }
-        return null;
+
+        Map<YearMonth, List<RankedEntryDto>> topStaffByMonth = new TreeMap<>();
+        aggregator.get().topStaffByMonth(k)
+                .forEach((month, topStaff) -> topStaffByMonth.put(month, rank(topStaff,
+                        staff -> String.valueOf(staff.getKey()),
+                        staff -> Amounts.toBigDecimal(staff.getValue()))));
+        return topStaffByMonth;
     }
 
-    public BigDecimal highestSalesVolumeInADay(String folderPath, boolean isAll, List<Path> passedFiles) {
-        try {
-            List<Path> files;
-
-            if (!isAll) {
-                files = Files.list(Paths.get(folderPath))
-                        .filter(Files::isRegularFile)
-                        .toList();
-            } else {
-                files = passedFiles;
-            }
+    public List<RankedEntryDto> topHoursByAverageTransactionVolume(String folderPath, int k,
+                                                                   DateRange range) throws IOException {
+        Optional<TransactionAggregator> aggregator =
+                aggregateFolder(folderPath, false, List.of(), EnumSet.of(AnalyticMetric.HOURLY_VOLUME), range);
+        if (aggregator.isEmpty()) {
+            return List.of();
+        }
 
-            if (files.isEmpty()) {
-                logger.warn("No files found in the folder: {}", folderPath);
-                return BigDecimal.ZERO;
-            }
+        List<Map.Entry<Integer, BigDecimal>> topHours = aggregator.get().topHoursByAverageVolume(k);
+        return rank(topHours, hour -> String.valueOf(hour.getKey()), Map.Entry::getValue);
+    }
 
-            Optional<BigDecimal> maxSalesVolume = files.stream()
-                    .map(file -> {
-                        try {
-                            singleFileService.loadTransactions(file.toString());
-                            return singleFileService.totalSalesVolumeInADay();
-                        } catch (IOException e) {
-                            logger.error("Error processing file: {}", file, e);
-                            return BigDecimal.ZERO;
-                        }
-                    })
-                    .max(Comparator.naturalOrder());
-
-            if (maxSalesVolume.isPresent()) {
-                BigDecimal result = maxSalesVolume.get();
-                logger.info("Highest sales volume in a day: {}", result);
-                return result;
-            }
+    public Map<YearMonth, DistinctCountsDto> approximateDistinctCountsByMonth(String folderPath,
+                                                                              DateRange range) throws IOException {
+        return aggregateFolder(folderPath, false, List.of(),
+                EnumSet.of(AnalyticMetric.APPROXIMATE_DISTINCT_COUNTS), range)
+                .map(TransactionAggregator::approximateDistinctCountsByMonth)
+                .orElse(Collections.emptyMap());
+    }
 
-        } catch (IOException e) {
-            logger.error("Error reading folder: {}", folderPath, e);
-        }
+    /**
+     * Transaction count, sum and average per bucket of the day, over every day in range.
+     * The three profiles are folded from the same per-day histograms, so whichever comes
+     * first parses the folder and the others are served from the cached days.
+     */
+    public List<IntradayBucketDto> intradayProfile(String folderPath, int bucketMinutes,
+                                                   DateRange range) throws IOException {
+        validBucketMinutes(bucketMinutes);
+        return aggregateFolder(folderPath, false, List.of(), EnumSet.of(AnalyticMetric.INTRADAY_PROFILE), range)
+                .map(aggregator -> aggregator.intradayProfile(bucketMinutes))
+                .orElse(List.of());
+    }
 
-        return BigDecimal.ZERO;
+    public Map<DayOfWeek, List<IntradayBucketDto>> intradayProfileByDayOfWeek(String folderPath, int bucketMinutes,
+                                                                             DateRange range) throws IOException {
+        validBucketMinutes(bucketMinutes);
+        return aggregateFolder(folderPath, false, List.of(), EnumSet.of(AnalyticMetric.INTRADAY_PROFILE), range)
+                .map(aggregator -> aggregator.intradayProfileByDayOfWeek(bucketMinutes))
+                .orElse(Collections.emptyMap());
     }
 
-    public String mostSoldProductByVolume(String folderPath, boolean isAll, List<Path> passedFiles) {
-        try {
-            List<Path> files;
-
-            if (!isAll) {
-                files = Files.list(Paths.get(folderPath))
-                        .filter(Files::isRegularFile)
-                        .toList();
-            } else {
-                files = passedFiles;
-            }
+    public Map<YearMonth, List<IntradayBucketDto>> intradayProfileByMonth(String folderPath, int bucketMinutes,
+                                                                         DateRange range) throws IOException {
+        validBucketMinutes(bucketMinutes);
+        return aggregateFolder(folderPath, false, List.of(), EnumSet.of(AnalyticMetric.INTRADAY_PROFILE), range)
+                .map(aggregator -> aggregator.intradayProfileByMonth(bucketMinutes))
+                .orElse(Collections.emptyMap());
+    }
 
-            if (files.isEmpty()) {
-                logger.warn("No files found in the folder: {}", folderPath);
-                return null;
-            }
+    /**
+     * Rejects a bucket width the per-day histograms cannot be folded into: it must divide a
+     * day and be a multiple of the configured width.
+     */
+    private void validBucketMinutes(int bucketMinutes) {
+        int dayBucketMinutes = singleFileService.intradayBucketMinutes();
+        if (bucketMinutes < 1 || IntradayHistogram.MINUTES_PER_DAY % bucketMinutes != 0
+                || bucketMinutes % dayBucketMinutes != 0) {
+            throw new InvalidRequestException("'bucketMinutes' must divide a day and be a multiple of "
+                    + dayBucketMinutes + ", was " + bucketMinutes);
+        }
+    }
 
-            Map<String, Integer> productVolumeMap = new HashMap<>();
+    /**
+     * Sales of one staff member on each day in range. Only the days the staff member sold
+     * on are visited; see {@link #drillDownIndex(String)} for where the index comes from.
+     */
+    public DrillDownDto staffDrillDown(String folderPath, long staffId, DateRange range) throws IOException {
+        return drillDown(staffId, drillDownIndex(folderPath).staffSales(staffId, range), Amounts::toBigDecimal);
+    }
 
-            for (Path file : files) {
-                try {
-                    singleFileService.loadTransactions(file.toString());
-                    Map<String, Integer> fileProductVolumeMap = singleFileService.productVolumeInADay();
-                    fileProductVolumeMap.forEach((productId, quantity) ->
-                            productVolumeMap.merge(productId, quantity, Integer::sum));
-                } catch (IOException e) {
-                    logger.error("Error processing file: {}", file, e);
-                }
-            }
+    /**
+     * Quantity sold of one product on each day in range, visiting only the days it sold on.
+     */
+    public DrillDownDto productDrillDown(String folderPath, long productId, DateRange range) throws IOException {
+        return drillDown(productId, drillDownIndex(folderPath).productQuantities(productId, range),
+                BigDecimal::valueOf);
+    }
 
-            Optional<Map.Entry<String, Integer>> mostSoldProduct = productVolumeMap.entrySet()
-                    .stream()
-                    .max(Map.Entry.comparingByValue());
+    private static DrillDownDto drillDown(long key, SortedMap<String, Long> daily, LongFunction<BigDecimal> value) {
+        List<DailyValueDto> days = new ArrayList<>(daily.size());
+        long total = 0;
+        for (Map.Entry<String, Long> day : daily.entrySet()) {
+            days.add(new DailyValueDto(day.getKey(), value.apply(day.getValue())));
+            total = Amounts.add(total, day.getValue());
+        }
+        return new DrillDownDto(String.valueOf(key), value.apply(total), days.size(), days);
+    }
 
-            if (mostSoldProduct.isPresent()) {
-                String productId = mostSoldProduct.get().getKey();
-                int totalQuantity = mostSoldProduct.get().getValue();
-                logger.info("Most sold product ID: {}, Total quantity sold: {}", productId, totalQuantity);
-                return productId;
-            }
+    /**
+     * The drill-down index of a folder: its rollup's when the folder is watched, otherwise
+     * the one built for the folder's current files, which is rebuilt from the day partials,
+     * mostly cached, once a file is added, changed or removed. Ingestion errors of the
+     * indexed days are charged as for any other query.
+     */
+    private DrillDownIndex drillDownIndex(String folderPath) throws IOException {
+        ErrorBudget budget = singleFileService.newErrorBudget();
+        Optional<FolderRollup> rollup = rollupStore.get(folderPath).filter(rolledUp -> !rolledUp.isEmpty());
+        if (rollup.isPresent()) {
+            DrillDownIndex index = rollup.get().drillDownIndex();
+            budget.charge(index.errors());
+            return index;
+        }
 
-        } catch (IOException e) {
-            logger.error("Error reading folder: {}", folderPath, e);
+        List<Path> files = requireFiles(folderPath, listFiles(folderPath));
+        Set<FileStamp> stamps = new HashSet<>();
+        for (Path file : files) {
+            stamps.add(FileStamp.of(file));
+        }
+        Path folder = Paths.get(folderPath);
+        Optional<DrillDownIndex> indexed = drillDownIndexStore.get(folder, stamps);
+        if (indexed.isPresent()) {
+            budget.charge(indexed.get().errors());
+            return indexed.get();
         }
 
-        return null;
+        long start = System.nanoTime();
+        Map<Path, DayAggregate> days = new HashMap<>();
+        forEachDay(files, AnalyticMetric.exact(), DateRange.ALL, budget, days::put);
+        DrillDownIndex index = DrillDownIndex.of(days);
+        drillDownIndexStore.put(folder, stamps, index);
+        logger.debug("Indexed {} days of {} for drill-downs in {} ms", index.dayCount(), folderPath,
+                (System.nanoTime() - start) / 1_000_000);
+        return index;
     }
 
-    public Map<YearMonth, String> highestSalesStaffByMonth(String folderPath, boolean isAll, List<Path> passedFiles) {
-        try {
-            List<Path> files;
-
-            if (!isAll) {
-                files = Files.list(Paths.get(folderPath))
-                        .filter(Files::isRegularFile)
-                        .toList();
-            } else {
-                files = passedFiles;
-            }
+    private static <T> List<RankedEntryDto> rank(List<T> ranked, Function<T, String> key, Function<T, BigDecimal> value) {
+        List<RankedEntryDto> entries = new ArrayList<>(ranked.size());
+        for (T entry : ranked) {
+            entries.add(new RankedEntryDto(entries.size() + 1, key.apply(entry), value.apply(entry)));
+        }
+        return entries;
+    }
 
-            if (files.isEmpty()) {
-                logger.warn("No files found in the folder: {}", folderPath);
-                return Collections.emptyMap();
-            }
+    /**
+     * Computes the full per-day partial of each file, in parallel and through the cache.
+     * Every day is kept whatever the error policy: malformed lines are skipped and files
+     * that cannot be read map to an empty day, both recorded in the day's errors.
+     */
+    public Map<Path, DayAggregate> analyzeDays(List<Path> files) {
+        ErrorBudget budget = ErrorBudget.unlimited();
+        Map<Path, CompletableFuture<DayAggregate>> days = new LinkedHashMap<>();
+        files.forEach(file -> days.put(file, analyzeFile(file, AnalyticMetric.exact(), DateRange.ALL, budget)));
+
+        Map<Path, DayAggregate> result = new LinkedHashMap<>();
+        days.forEach((file, day) -> result.put(file, day.join()));
+        return result;
+    }
 
-            // Map to store total sales volume by staff ID for each month
-            Map<YearMonth, Map<String, BigDecimal>> monthStaffSalesMap = new HashMap<>();
-
-            // Process each file
-            for (Path file : files) {
-                try {
-                    // Load transactions from the file
-                    singleFileService.loadTransactions(file.toString());
-                    // Update the month-staff sales map with data from this file
-                    updateMonthStaffSalesMap(singleFileService.getTransactions(), monthStaffSalesMap);
-                } catch (IOException e) {
-                    logger.error("Error processing file: {}", file, e);
-                }
-            }
+    /**
+     * Charges the errors of a result built earlier, such as the current analysis of a
+     * watched folder, to a fresh budget, so it passes or fails the error policy as a new
+     * query on the folder would.
+     *
+     * @throws com.victor.transaction_analytic.exception.MalformedDataException under the
+     *         fail policy, or past the malformed line cap
+     */
+    public void chargeErrors(IngestionErrors errors) {
+        if (errors != null) {
+            singleFileService.newErrorBudget().charge(errors);
+        }
+    }
 
-            // Find the highest sales staff ID for each month
-            Map<YearMonth, String> highestSalesStaffMap = new HashMap<>();
-            for (Map.Entry<YearMonth, Map<String, BigDecimal>> entry : monthStaffSalesMap.entrySet()) {
-                YearMonth month = entry.getKey();
-                Map<String, BigDecimal> staffSalesMap = entry.getValue();
-
-                Optional<Map.Entry<String, BigDecimal>> maxStaffEntry = staffSalesMap.entrySet()
-                        .stream()
-                        .max(Map.Entry.comparingByValue());
-
-                if (maxStaffEntry.isPresent()) {
-                    String staffId = maxStaffEntry.get().getKey();
-                    BigDecimal totalSales = maxStaffEntry.get().getValue();
-                    highestSalesStaffMap.put(month, staffId);
-                    logger.info("Highest sales staff for {}: {}, Total sales: {}", month, staffId, totalSales);
-                }
+    /**
+     * Answers from the folder's rollup when it has one that covers the query, otherwise
+     * from the listed files, or the passed ones when {@code isAll}. Empty when there is
+     * nothing to analyse.
+     */
+    private Optional<TransactionAggregator> aggregateFolder(String folderPath, boolean isAll, List<Path> passedFiles,
+                                                            Set<AnalyticMetric> metrics, DateRange range) throws IOException {
+        ErrorBudget budget = singleFileService.newErrorBudget();
+        if (!isAll) {
+            Optional<TransactionAggregator> rolledUp = rollupStore.query(folderPath, metrics, range);
+            if (rolledUp.isPresent()) {
+                logger.debug("Answered {} for {} from its rollup", metrics, folderPath);
+                budget.charge(rolledUp.get().errors());
+                return rolledUp;
             }
+        }
 
-            return highestSalesStaffMap;
-
-        } catch (IOException e) {
-            logger.error("Error reading folder: {}", folderPath, e);
+        List<Path> files = isAll ? prune(passedFiles, range) : listFiles(folderPath, range);
+        if (files.isEmpty()) {
+            logger.warn("No files found in the folder: {}", folderPath);
+            return Optional.empty();
         }
+        return Optional.of(aggregate(files, metrics, range, budget));
+    }
 
-        return Collections.emptyMap();
+    /**
+     * Reads every file exactly once on the analytic executor and merges the per-day
+     * partials on the calling thread, so no state is shared between workers or requests.
+     */
+    private TransactionAggregator aggregate(List<Path> files, Set<AnalyticMetric> metrics, DateRange range,
+                                            ErrorBudget budget) throws IOException {
+        TransactionAggregator aggregator = new TransactionAggregator(metrics, singleFileService.sketchSettings());
+        forEachDay(files, metrics, range, budget, (file, day) -> merge(aggregator, day));
+        return aggregator;
     }
 
-    private void updateMonthStaffSalesMap(List<Transaction> transactions, Map<YearMonth, Map<String, BigDecimal>> monthStaffSalesMap) {
-        for (Transaction transaction : transactions) {
-            YearMonth month = YearMonth.from(transaction.getTransactionTime());
-            String staffId = String.valueOf(transaction.getTransactionId()); // Assuming transaction ID is the staff ID
-            BigDecimal saleAmount = transaction.getSaleAmount();
+    /**
+     * The exact, mergeable partial of a folder for scatter-gather, from its rollup when
+     * it has one that covers the range.
+     */
+    public ShardPartial partial(String folderPath, DateRange range) throws IOException {
+        ShardPartial partial = new ShardPartial();
+        ErrorBudget budget = singleFileService.newErrorBudget();
+        Optional<FolderRollup> rollup = range.isUnbounded()
+                ? rollupStore.get(folderPath).filter(rolledUp -> !rolledUp.isEmpty())
+                : Optional.empty();
+        if (rollup.isPresent()) {
+            rollup.get().days().forEach(partial::add);
+            budget.charge(partial.errors());
+            return partial;
+        }
 
-            // Get or create the staff sales map for the month
-            Map<String, BigDecimal> staffSalesMap = monthStaffSalesMap.computeIfAbsent(month, k -> new HashMap<>());
+        List<Path> files = prune(requireFiles(folderPath, listFiles(folderPath)), range);
+        forEachDay(files, AnalyticMetric.exact(), range, budget, partial::add);
+        return partial;
+    }
 
-            // Update the total sales volume for the staff ID
-            staffSalesMap.merge(staffId, saleAmount, BigDecimal::add);
+    /**
+     * Analyses the files in parallel and hands their days to the action on the calling
+     * thread, in listing order. The first file that fails the request cancels the files
+     * not started yet.
+     */
+    private void forEachDay(List<Path> files, Set<AnalyticMetric> metrics, DateRange range, ErrorBudget budget,
+                            BiConsumer<Path, DayAggregate> action) throws IOException {
+        List<CompletableFuture<DayAggregate>> days = files.stream()
+                .map(file -> analyzeFile(file, metrics, range, budget))
+                .toList();
+        try {
+            for (int i = 0; i < files.size(); i++) {
+                action.accept(files.get(i), join(days.get(i)));
+            }
+        } catch (IOException | RuntimeException e) {
+            days.forEach(day -> day.cancel(false));
+            throw e;
         }
     }
 
-    public int highestHourByAverageTransactionVolume(String folderPath, boolean isAll, List<Path> passedFiles) {
+    /**
+     * Waits for a day and rethrows what failed it as thrown inside the task.
+     */
+    private static DayAggregate join(CompletableFuture<DayAggregate> day) throws IOException {
         try {
-            List<Path> files;
-
-            if (!isAll) {
-                files = Files.list(Paths.get(folderPath))
-                        .filter(Files::isRegularFile)
-                        .toList();
-            } else {
-                files = passedFiles;
+            return day.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException io) {
+                throw io.getCause();
             }
-
-            if (files.isEmpty()) {
-                logger.warn("No files found in the folder: {}", folderPath);
-                return -1;
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
             }
+            throw e;
+        }
+    }
 
-            // Map to store hour and total transaction volume
-            Map<Integer, BigDecimal> hourTotalVolumeMap = new HashMap<>();
-            // Map to store hour and transaction count
-            Map<Integer, Integer> hourTransactionCountMap = new HashMap<>();
-
-            // Process each file
-            for (Path file : files) {
-                try {
-                    // Load transactions from the file
-                    singleFileService.loadTransactions(file.toString());
-                    // Update the hour maps with data from this file
-                    updateHourMaps(singleFileService.getTransactions(), hourTotalVolumeMap, hourTransactionCountMap);
-                } catch (IOException e) {
-                    logger.error("Error processing file: {}", file, e);
+    private void merge(TransactionAggregator aggregator, DayAggregate day) {
+        long start = System.nanoTime();
+        aggregator.merge(day);
+        pipelineMetrics.record(PipelineMetrics.Stage.MERGE, System.nanoTime() - start);
+    }
+
+    /**
+     * Answers from a binary segment's footer when it suffices, otherwise serves the day's
+     * partial from the cache when the file is unchanged. An exact cache miss parses the
+     * file with its {@link #cacheableMetrics cacheable metrics}, so the cached partial can
+     * answer later exact requests; an approximate one is parsed for the request alone and
+     * not cached. Only a file whose name has no date, under a bounded range, has its rows
+     * filtered by date and bypasses both. Malformed lines of a cached day are charged to
+     * the budget as if the file had been parsed again.
+     */
+    private CompletableFuture<DayAggregate> analyzeFile(Path file, Set<AnalyticMetric> metrics, DateRange range,
+                                                        ErrorBudget budget) {
+        boolean rowFilter = range.needsRowFilter(file);
+        CompletableFuture<DayAggregate> day;
+        Optional<DayAggregate> fromFooter;
+        try {
+            fromFooter = rowFilter ? Optional.empty() : singleFileService.analyzeFromFooter(file, metrics);
+        } catch (IOException e) {
+            fromFooter = Optional.empty();
+        }
+
+        if (rowFilter) {
+            day = parseFile(file, metrics, range, budget);
+        } else if (fromFooter.isPresent()) {
+            day = CompletableFuture.completedFuture(fromFooter.get()).thenApply(footerDay -> {
+                budget.charge(footerDay.errors());
+                return footerDay;
+            });
+        } else if (!dayAggregateCache.isEnabled()) {
+            day = parseFile(file, metrics, DateRange.ALL, budget);
+        } else {
+            try {
+                FileStamp stamp = FileStamp.of(file);
+                Optional<DayAggregate> cached = dayAggregateCache.get(stamp);
+                boolean hit = cached.isPresent() && cached.get().hasOptInPartsFor(withoutCachedParts(metrics));
+                boolean approximate = metrics.stream().anyMatch(AnalyticMetric::isApproximate);
+                pipelineMetrics.cacheLookup(hit);
+                if (hit) {
+                    day = CompletableFuture.completedFuture(cached.get()).thenApply(cachedDay -> {
+                        budget.charge(cachedDay.errors());
+                        return cachedDay;
+                    });
+                } else if (approximate) {
+                    // Sketches bound memory only if the exact maps are neither parsed nor cached
+                    day = parseFile(file, metrics, DateRange.ALL, budget);
+                } else {
+                    day = parseFile(file, cacheableMetrics(metrics, cached), DateRange.ALL, budget).thenApply(parsed -> {
+                        dayAggregateCache.put(stamp, parsed);
+                        return parsed;
+                    });
                 }
+            } catch (IOException e) {
+                day = CompletableFuture.failedFuture(new UncheckedIOException(e));
             }
+        }
 
-            // Calculate the average transaction volume for each hour
-            Map<Integer, BigDecimal> hourAverageVolumeMap = new HashMap<>();
-            for (Map.Entry<Integer, BigDecimal> entry : hourTotalVolumeMap.entrySet()) {
-                int hour = entry.getKey();
-                BigDecimal totalVolume = entry.getValue();
-                int transactionCount = hourTransactionCountMap.get(hour);
-                BigDecimal averageVolume = totalVolume.divide(BigDecimal.valueOf(transactionCount), 2, RoundingMode.HALF_UP);
-                hourAverageVolumeMap.put(hour, averageVolume);
+        return day.exceptionally(e -> {
+            Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+            if (!(cause instanceof UncheckedIOException) || !budget.skipsMalformedLines()) {
+                throw e instanceof CompletionException completion ? completion : new CompletionException(e);
             }
+            logger.error("Error processing file: {}", file, cause.getCause());
+            return DayAggregate.empty(file.getFileName().toString(),
+                    IngestionErrors.unreadableFile(file.getFileName().toString(), String.valueOf(cause.getCause())));
+        });
+    }
 
-            // Find the hour with the highest average transaction volume
-            Optional<Map.Entry<Integer, BigDecimal>> maxHourEntry = hourAverageVolumeMap.entrySet()
-                    .stream()
-                    .max(Map.Entry.comparingByValue());
+    /**
+     * The requested metrics a cached day does not answer from its exact parts. Its exact
+     * product volumes answer approximate top products better than a sketch would.
+     */
+    private static Set<AnalyticMetric> withoutCachedParts(Set<AnalyticMetric> metrics) {
+        Set<AnalyticMetric> needed = EnumSet.copyOf(metrics);
+        needed.remove(AnalyticMetric.APPROXIMATE_PRODUCT_VOLUME);
+        return needed;
+    }
 
-            if (maxHourEntry.isPresent()) {
-                int hour = maxHourEntry.get().getKey();
-                BigDecimal averageVolume = maxHourEntry.get().getValue();
-                logger.info("Highest hour by average transaction volume: {}:00, Average volume: {}", hour, averageVolume);
-                return hour;
-            }
+    /**
+     * Every exact metric, plus the intraday profile when it is requested now or already
+     * held by the stale cache entry, so a re-parse never drops what the cache could answer
+     * before. Approximate metrics are never cached.
+     */
+    private static Set<AnalyticMetric> cacheableMetrics(Set<AnalyticMetric> metrics, Optional<DayAggregate> cached) {
+        Set<AnalyticMetric> cacheable = AnalyticMetric.exact();
+        if (metrics.contains(AnalyticMetric.INTRADAY_PROFILE)
+                || cached.map(day -> day.intradayProfile() != null).orElse(false)) {
+            cacheable.add(AnalyticMetric.INTRADAY_PROFILE);
+        }
+        return cacheable;
+    }
+
+    /**
+     * Submits one task per chunk of the file, so a large file in mmap mode is parsed by
+     * several workers, and combines the chunk partials into the day's partial.
+     */
+    private CompletableFuture<DayAggregate> parseFile(Path file, Set<AnalyticMetric> metrics, DateRange range,
+                                                      ErrorBudget budget) {
+        List<CompletableFuture<DayAggregate>> chunks;
+        try {
+            chunks = singleFileService.planChunks(file).stream()
+                    .map(chunk -> CompletableFuture.supplyAsync(() -> analyzeChunk(chunk, metrics, range, budget),
+                            analyticExecutor))
+                    .toList();
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(new UncheckedIOException(e));
+        }
+
+        return CompletableFuture.allOf(chunks.toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> {
+                    long start = System.nanoTime();
+                    DayAccumulator accumulator = new DayAccumulator(metrics);
+                    chunks.forEach(chunk -> accumulator.merge(chunk.join()));
+                    DayAggregate day = accumulator.build(file.getFileName().toString());
+                    pipelineMetrics.record(PipelineMetrics.Stage.MERGE, System.nanoTime() - start);
+                    return day;
+                });
+    }
 
+    private DayAggregate analyzeChunk(FileChunk chunk, Set<AnalyticMetric> metrics, DateRange range,
+                                      ErrorBudget budget) {
+        try {
+            return singleFileService.analyzeChunk(chunk, metrics, range, budget);
         } catch (IOException e) {
-            logger.error("Error reading folder: {}", folderPath, e);
+            throw new UncheckedIOException(e);
         }
+    }
 
-        return -1;
+    /**
+     * The day files of the folder, leaving out segments still being written.
+     */
+    public List<Path> listFiles(String folderPath) throws IOException {
+        try (Stream<Path> paths = Files.list(Paths.get(folderPath))) {
+            return paths.filter(Files::isRegularFile).filter(file -> !SegmentFile.isTemporary(file)).toList();
+        }
     }
 
-    private void updateHourMaps(List<Transaction> transactions, Map<Integer, BigDecimal> hourTotalVolumeMap, Map<Integer, Integer> hourTransactionCountMap) {
-        for (Transaction transaction : transactions) {
-            int hour = transaction.getTransactionTime().getHour();
-            BigDecimal saleAmount = transaction.getSaleAmount();
+    /**
+     * The listed files of the folder, or {@link FileNotFoundException} when there are none.
+     */
+    private static List<Path> requireFiles(String folderPath, List<Path> files) throws FileNotFoundException {
+        if (files.isEmpty()) {
+            logger.warn("No files found in the folder: {}", folderPath);
+            throw new FileNotFoundException("Folder not found");
+        }
+        return files;
+    }
+
+    /**
+     * Lists the folder and drops, by file name alone, every day outside the range, so
+     * pruned files are never opened.
+     */
+    public List<Path> listFiles(String folderPath, DateRange range) throws IOException {
+        return prune(listFiles(folderPath), range);
+    }
 
-            // Update total volume for the hour
-            hourTotalVolumeMap.merge(hour, saleAmount, BigDecimal::add);
-            // Update transaction count for the hour
-            hourTransactionCountMap.merge(hour, 1, Integer::sum);
+    private List<Path> prune(List<Path> files, DateRange range) {
+        if (range.isUnbounded()) {
+            return files;
         }
+        List<Path> kept = files.stream().filter(range::mayContain).toList();
+        logger.debug("Pruned {} of {} files outside {} to {}", files.size() - kept.size(), files.size(),
+                range.from(), range.to());
+        return kept;
     }
 
 }
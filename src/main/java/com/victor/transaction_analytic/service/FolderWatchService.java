@@ -0,0 +1,210 @@
+package com.victor.transaction_analytic.service;
+
+import com.victor.transaction_analytic.aggregation.AnalyticMetric;
+import com.victor.transaction_analytic.dto.TransactionAnalyticResponseDto;
+import com.victor.transaction_analytic.helper.SegmentFile;
+import com.victor.transaction_analytic.rollup.FolderRollup;
+import com.victor.transaction_analytic.rollup.RollupStore;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Keeps the analysis of registered folders continuously up to date. A single watcher
+ * thread folds created, modified and deleted day files into the folder's
+ * {@link FolderRollup} and republishes it, so reads are a field access or a copy of the
+ * rollup totals.
+ */
+@Service
+public class FolderWatchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FolderWatchService.class);
+
+    private final FolderTransactionAnalyticService folderAnalyticService;
+    private final RollupStore rollupStore;
+    private final Map<Path, WatchedFolder> watchedFolders = new ConcurrentHashMap<>();
+    private final Map<WatchKey, WatchedFolder> foldersByKey = new ConcurrentHashMap<>();
+
+    private WatchService watchService;
+    private Thread watcherThread;
+
+    private static class WatchedFolder {
+        private final Path folder;
+        private FolderRollup rollup = FolderRollup.empty();
+        private WatchKey key;
+        private volatile TransactionAnalyticResponseDto current;
+
+        private WatchedFolder(Path folder) {
+            this.folder = folder;
+        }
+    }
+
+    public FolderWatchService(FolderTransactionAnalyticService folderAnalyticService, RollupStore rollupStore) {
+        this.folderAnalyticService = folderAnalyticService;
+        this.rollupStore = rollupStore;
+    }
+
+    /**
+     * Starts watching the folder, analysing it fully once. Watching an already watched
+     * folder returns its current result.
+     */
+    public synchronized TransactionAnalyticResponseDto watch(String folderPath) throws IOException {
+        Path folder = Path.of(folderPath).toAbsolutePath().normalize();
+        WatchedFolder existing = watchedFolders.get(folder);
+        if (existing != null) {
+            return existing.current;
+        }
+
+        startWatcher();
+        WatchedFolder watched = new WatchedFolder(folder);
+        // Register before the initial scan so files dropped in meanwhile are not missed
+        watched.key = folder.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+        foldersByKey.put(watched.key, watched);
+
+        try {
+            synchronized (watched) {
+                publish(watched, FolderRollup.of(folderAnalyticService.analyzeDays(folderAnalyticService.listFiles(folderPath))));
+            }
+        } catch (IOException | RuntimeException e) {
+            // Events already queued for the key find it gone and are dropped
+            watched.key.cancel();
+            foldersByKey.remove(watched.key);
+            rollupStore.remove(folder);
+            throw e;
+        }
+        watchedFolders.put(folder, watched);
+        logger.info("Watching folder {} with {} files", folder, watched.rollup.days().size());
+        return watched.current;
+    }
+
+    public synchronized boolean unwatch(String folderPath) {
+        WatchedFolder watched = watchedFolders.remove(Path.of(folderPath).toAbsolutePath().normalize());
+        if (watched == null) {
+            return false;
+        }
+        watched.key.cancel();
+        foldersByKey.remove(watched.key);
+        rollupStore.remove(watched.folder);
+        logger.info("Stopped watching folder {}", watched.folder);
+        return true;
+    }
+
+    /**
+     * The analysis of a watched folder, kept current in the background. The rollup behind
+     * it keeps every day whatever the error policy, so its errors are charged on each read,
+     * as for the folder's other queries.
+     */
+    public Optional<TransactionAnalyticResponseDto> currentAnalysis(String folderPath) {
+        WatchedFolder watched = watchedFolders.get(Path.of(folderPath).toAbsolutePath().normalize());
+        TransactionAnalyticResponseDto current = watched == null ? null : watched.current;
+        if (current != null) {
+            folderAnalyticService.chargeErrors(current.errors());
+        }
+        return Optional.ofNullable(current);
+    }
+
+    public Set<Path> watchedFolders() {
+        return Collections.unmodifiableSet(watchedFolders.keySet());
+    }
+
+    private void startWatcher() throws IOException {
+        if (watchService != null) {
+            return;
+        }
+        watchService = FileSystems.getDefault().newWatchService();
+        watcherThread = new Thread(this::processEvents, "folder-watcher");
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+    }
+
+    private void processEvents() {
+        while (!Thread.currentThread().isInterrupted()) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+
+            WatchedFolder watched = foldersByKey.get(key);
+            if (watched != null) {
+                try {
+                    applyEvents(watched, key.pollEvents());
+                } catch (RuntimeException e) {
+                    logger.error("Error refreshing watched folder {}", watched.folder, e);
+                }
+            } else {
+                key.pollEvents();
+            }
+            key.reset();
+        }
+    }
+
+    /**
+     * Re-analyses only the files named in this batch of events (one day each, served from
+     * the cache when unchanged) and then republishes the folder result once.
+     */
+    private void applyEvents(WatchedFolder watched, List<WatchEvent<?>> events) {
+        Set<Path> changed = new LinkedHashSet<>();
+        boolean overflow = false;
+        for (WatchEvent<?> event : events) {
+            if (event.kind() == OVERFLOW) {
+                overflow = true;
+            } else if (!SegmentFile.isTemporary((Path) event.context())) {
+                changed.add(watched.folder.resolve((Path) event.context()));
+            }
+        }
+
+        synchronized (watched) {
+            if (foldersByKey.get(watched.key) != watched) {
+                // Unwatched, or its initial scan failed, while these events were queued
+                return;
+            }
+            if (overflow) {
+                try {
+                    publish(watched, FolderRollup.of(
+                            folderAnalyticService.analyzeDays(folderAnalyticService.listFiles(watched.folder.toString()))));
+                } catch (IOException e) {
+                    logger.error("Error rescanning watched folder {}", watched.folder, e);
+                }
+            } else {
+                List<Path> present = new ArrayList<>();
+                Set<Path> removed = new HashSet<>();
+                for (Path file : changed) {
+                    if (Files.isRegularFile(file)) {
+                        present.add(file);
+                    } else {
+                        removed.add(file);
+                    }
+                }
+                publish(watched, watched.rollup.update(folderAnalyticService.analyzeDays(present), removed));
+            }
+        }
+        logger.debug("Refreshed watched folder {} after {} changed files", watched.folder, changed.size());
+    }
+
+    /**
+     * Every endpoint answers unbounded queries for the folder from its rollup from now on.
+     */
+    private void publish(WatchedFolder watched, FolderRollup rollup) {
+        watched.rollup = rollup;
+        watched.current = rollup.aggregator(AnalyticMetric.exact()).toResponseDto();
+        rollupStore.put(watched.folder, rollup);
+    }
+
+    @PreDestroy
+    synchronized void stop() throws IOException {
+        if (watchService != null) {
+            watcherThread.interrupt();
+            watchService.close();
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.victor.transaction_analytic.service;
+
+import com.victor.transaction_analytic.aggregation.ShardPartial;
+import com.victor.transaction_analytic.config.AnalyticProperties;
+import com.victor.transaction_analytic.dto.ScatterGatherRequestDto.Shard;
+import com.victor.transaction_analytic.dto.ShardPartialDto;
+import com.victor.transaction_analytic.dto.TransactionAnalyticResponseDto;
+import com.victor.transaction_analytic.exception.InvalidRequestException;
+import com.victor.transaction_analytic.exception.ShardFailedException;
+import com.victor.transaction_analytic.helper.DateRange;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Scatter-gather analysis across stores. Every shard, a local folder or a folder of a peer
+ * instance, returns its {@link ShardPartial} instead of a final answer; the coordinator
+ * merges them and ranks once, so the result is exactly what one folder holding every
+ * store's files would give, with same-day files of different stores combined. Peers are
+ * asked first and work while the local folders are read. Any shard failing fails the
+ * analysis. Only configured peers are asked, and what a failing peer answered is logged
+ * rather than passed back to the caller.
+ */
+@Service
+public class ScatterGatherService {
+
+    public static final String PARTIAL_PATH = "/api/transaction-analysis/internal/partial";
+
+    private static final Logger logger = LoggerFactory.getLogger(ScatterGatherService.class);
+
+    private final FolderTransactionAnalyticService folderAnalyticService;
+    private final Set<String> peers;
+    private final RestClient restClient;
+    private final ExecutorService peerExecutor;
+
+    public ScatterGatherService(FolderTransactionAnalyticService folderAnalyticService,
+                                AnalyticProperties properties,
+                                RestClient.Builder restClientBuilder) {
+        AnalyticProperties.ScatterGather config = properties.getScatterGather();
+        this.folderAnalyticService = folderAnalyticService;
+        this.peers = config.getPeers().stream()
+                .filter(peer -> !peer.isBlank())
+                .map(ScatterGatherService::baseUrl)
+                .collect(Collectors.toSet());
+        for (String peer : peers) {
+            String scheme = URI.create(peer).getScheme();
+            if (!"http".equals(scheme) && !"https".equals(scheme)) {
+                throw new IllegalArgumentException("Peer must be an http(s) base URL: " + peer);
+            }
+        }
+
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(HttpClient.newBuilder()
+                .connectTimeout(config.getPeerConnectTimeout())
+                .build());
+        requestFactory.setReadTimeout(config.getPeerReadTimeout());
+        this.restClient = restClientBuilder.requestFactory(requestFactory).build();
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.peerExecutor = Executors.newFixedThreadPool(config.getPeerConcurrency(), runnable -> {
+            Thread thread = new Thread(runnable, "scatter-peer-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * The partial of a folder of this instance, as served to a coordinator.
+     */
+    public ShardPartialDto partial(String folderPath, DateRange range) throws IOException {
+        return folderAnalyticService.partial(folderPath, range).toDto();
+    }
+
+    public TransactionAnalyticResponseDto analyze(List<Shard> shards, DateRange range) throws IOException {
+        validate(shards);
+        List<CompletableFuture<ShardPartial>> remote = shards.stream()
+                .filter(shard -> shard.peer() != null)
+                .map(shard -> CompletableFuture.supplyAsync(() -> fetch(shard, range), peerExecutor))
+                .toList();
+
+        ShardPartial merged = new ShardPartial();
+        try {
+            for (Shard shard : shards) {
+                if (shard.peer() == null) {
+                    merged.merge(localPartial(shard.folderPath(), range));
+                }
+            }
+            for (CompletableFuture<ShardPartial> partial : remote) {
+                merged.merge(join(partial));
+            }
+        } catch (IOException | RuntimeException e) {
+            remote.forEach(partial -> partial.cancel(true));
+            throw e;
+        }
+
+        logger.info("Merged {} shards, {} of them on peers", shards.size(), remote.size());
+        return merged.aggregator().toResponseDto();
+    }
+
+    private ShardPartial localPartial(String folderPath, DateRange range) throws IOException {
+        try {
+            return folderAnalyticService.partial(folderPath, range);
+        } catch (FileNotFoundException | NoSuchFileException e) {
+            throw new FileNotFoundException("Folder not found: " + folderPath);
+        }
+    }
+
+    private ShardPartial fetch(Shard shard, DateRange range) {
+        URI uri = UriComponentsBuilder.fromUriString(shard.peer())
+                .path(PARTIAL_PATH)
+                .queryParam("folderPath", shard.folderPath())
+                .queryParamIfPresent("from", Optional.ofNullable(range.from()))
+                .queryParamIfPresent("to", Optional.ofNullable(range.to()))
+                .encode()
+                .build()
+                .toUri();
+        try {
+            ShardPartialDto partial = restClient.post().uri(uri).retrieve().body(ShardPartialDto.class);
+            if (partial == null) {
+                throw new ShardFailedException("Shard " + describe(shard) + " returned no partial", null);
+            }
+            logger.debug("Fetched the partial of {}", describe(shard));
+            return ShardPartial.of(partial);
+        } catch (RestClientResponseException e) {
+            logger.warn("Shard {} failed with {}: {}", describe(shard), e.getStatusCode().value(),
+                    e.getResponseBodyAsString());
+            throw new ShardFailedException("Shard " + describe(shard) + " failed with status "
+                    + e.getStatusCode().value(), e);
+        } catch (RestClientException e) {
+            throw new ShardFailedException("Shard " + describe(shard) + " failed: " + e.getMostSpecificCause(), e);
+        } catch (IllegalArgumentException e) {
+            throw new ShardFailedException("Shard " + describe(shard) + " returned an invalid partial: "
+                    + e.getMessage(), e);
+        }
+    }
+
+    private static ShardPartial join(CompletableFuture<ShardPartial> partial) {
+        try {
+            return partial.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException runtime ? runtime : e;
+        }
+    }
+
+    /**
+     * Rejects a request that would not merge to an exact result: no shards, or a shard
+     * listed twice, which would count its files twice. Rejects peers that are not
+     * configured as well.
+     */
+    private void validate(List<Shard> shards) {
+        if (shards == null || shards.isEmpty()) {
+            throw new InvalidRequestException("At least one shard is required");
+        }
+        Set<String> seen = new HashSet<>();
+        for (Shard shard : shards) {
+            if (shard.folderPath() == null || shard.folderPath().isBlank()) {
+                throw new InvalidRequestException("Every shard needs a 'folderPath'");
+            }
+            String key;
+            if (shard.peer() == null) {
+                key = Path.of(shard.folderPath()).toAbsolutePath().normalize().toString();
+            } else {
+                if (!peers.contains(baseUrl(shard.peer()))) {
+                    throw new InvalidRequestException("Peer is not configured: " + shard.peer());
+                }
+                key = baseUrl(shard.peer()) + " " + shard.folderPath();
+            }
+            if (!seen.add(key)) {
+                throw new InvalidRequestException("Shard listed twice: " + describe(shard));
+            }
+        }
+    }
+
+    private static String baseUrl(String peer) {
+        return peer.trim().replaceAll("/+$", "");
+    }
+
+    private static String describe(Shard shard) {
+        return shard.peer() == null ? shard.folderPath() : shard.peer() + " " + shard.folderPath();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        peerExecutor.shutdownNow();
+    }
+}
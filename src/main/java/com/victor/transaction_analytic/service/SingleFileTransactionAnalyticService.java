@@ -1,84 +1,264 @@
 package com.victor.transaction_analytic.service;
 
+import com.victor.transaction_analytic.aggregation.AnalyticMetric;
+import com.victor.transaction_analytic.aggregation.DayAccumulator;
+import com.victor.transaction_analytic.aggregation.DayAggregate;
+import com.victor.transaction_analytic.aggregation.DayProductVolumes;
+import com.victor.transaction_analytic.aggregation.IngestionErrors;
+import com.victor.transaction_analytic.aggregation.IntradayHistogram;
+import com.victor.transaction_analytic.aggregation.ProductDictionary;
+import com.victor.transaction_analytic.config.AnalyticProperties;
+import com.victor.transaction_analytic.helper.Amounts;
+import com.victor.transaction_analytic.helper.DateRange;
+import com.victor.transaction_analytic.helper.ErrorBudget;
+import com.victor.transaction_analytic.helper.FileChunk;
 import com.victor.transaction_analytic.helper.FileProcessor;
-import com.victor.transaction_analytic.model.Transaction;
+import com.victor.transaction_analytic.helper.ParseReport;
+import com.victor.transaction_analytic.helper.SegmentFile;
+import com.victor.transaction_analytic.helper.TransactionLineParser;
+import com.victor.transaction_analytic.metrics.PipelineMetrics;
+import com.victor.transaction_analytic.model.DaySegment;
+import com.victor.transaction_analytic.sketch.SketchSettings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.util.*;
+import java.util.function.Consumer;
 
+/**
+ * Stateless per-file analysis. Nothing is kept between calls, so the same instance can
+ * serve concurrent requests and be called from several worker threads at once.
+ */
 @Service
 public class SingleFileTransactionAnalyticService {
 
     private static final Logger logger = LoggerFactory.getLogger(SingleFileTransactionAnalyticService.class);
 
-    private List<Transaction> transactions;
+    private static final Set<AnalyticMetric> FOOTER_METRICS =
+            EnumSet.of(AnalyticMetric.DAILY_VOLUME, AnalyticMetric.DAILY_MAX_VALUE);
 
-    public void loadTransactions(String filePath) throws IOException {
-        transactions = FileProcessor.readTransactionsFromFile(filePath);
-        logger.info("Loaded {} transactions from file: {}", transactions.size(), Path.of(filePath).getFileName());
+    private final AnalyticProperties.Ingestion ingestion;
+    private final AnalyticProperties.Errors errors;
+    private final SketchSettings sketchSettings;
+    private final int intradayBucketMinutes;
+    private final PipelineMetrics pipelineMetrics;
+
+    public SingleFileTransactionAnalyticService(AnalyticProperties properties, PipelineMetrics pipelineMetrics) {
+        this.ingestion = properties.getIngestion();
+        this.errors = properties.getErrors();
+        this.sketchSettings = properties.getApproximate().toSketchSettings();
+        this.intradayBucketMinutes = bucketMinutes(properties.getIntraday().getBucketWidth());
+        this.pipelineMetrics = pipelineMetrics;
     }
 
-    public BigDecimal highestSalesValueInADay() {
-        if (transactions == null || transactions.isEmpty()) {
-            logger.warn("No transactions loaded. Ensure a file is loaded first.");
-            return BigDecimal.ZERO;
+    private static int bucketMinutes(Duration bucketWidth) {
+        if (!bucketWidth.equals(Duration.ofMinutes(bucketWidth.toMinutes()))) {
+            throw new IllegalArgumentException("Intraday bucket width must be whole minutes, was " + bucketWidth);
         }
+        return IntradayHistogram.validBucketMinutes((int) Math.min(bucketWidth.toMinutes(), Integer.MAX_VALUE));
+    }
+
+    public SketchSettings sketchSettings() {
+        return sketchSettings;
+    }
 
-        Optional<Transaction> maxTransaction = transactions.stream()
-                .max(Comparator.comparing(Transaction::getSaleAmount));
+    /**
+     * Width of the intraday buckets every day is read into, in minutes.
+     */
+    public int intradayBucketMinutes() {
+        return intradayBucketMinutes;
+    }
+
+    /**
+     * A fresh budget for one request under the configured error policy.
+     */
+    public ErrorBudget newErrorBudget() {
+        return new ErrorBudget(errors.getPolicy() == AnalyticProperties.ErrorPolicy.SKIP, errors.getMaxMalformedLines());
+    }
 
-        if (maxTransaction.isPresent()) {
-            BigDecimal maxSales = maxTransaction.get().getSaleAmount();
-            logger.info("Highest sales value: {} occurred on {}", maxSales, maxTransaction.get().getTransactionTime().toLocalDate());
-            return maxSales;
+    /**
+     * Splits a file into independently parseable chunks. Only mmap ingestion cuts large
+     * files; the plain reader always treats the file as a single chunk.
+     */
+    public List<FileChunk> planChunks(Path file) throws IOException {
+        if (ingestion.getMode() == AnalyticProperties.IngestionMode.MMAP && !SegmentFile.isSegmentFile(file)) {
+            return FileProcessor.splitAtLineBoundaries(file, ingestion.getChunkSize().toBytes());
         }
+        return List.of(new FileChunk(file, 0, Files.size(file)));
+    }
 
-        return BigDecimal.ZERO;
+    /**
+     * Reads the file once and reduces it to an immutable partial holding only the
+     * requested metrics.
+     */
+    public DayAggregate analyzeFile(Path file, Set<AnalyticMetric> metrics) throws IOException {
+        ErrorBudget budget = newErrorBudget();
+        DayAccumulator accumulator = new DayAccumulator(metrics);
+        for (FileChunk chunk : planChunks(file)) {
+            accumulator.merge(analyzeChunk(chunk, metrics, DateRange.ALL, budget));
+        }
+        return accumulator.build(file.getFileName().toString());
     }
 
-    public BigDecimal totalSalesVolumeInADay() {
-        if (transactions == null || transactions.isEmpty()) {
-            logger.warn("No transactions loaded. Ensure a file is loaded first.");
-            return BigDecimal.ZERO;
+    /**
+     * Daily volume and daily maximum of a binary segment are answered from its footer
+     * statistics alone, without reading any column.
+     */
+    public Optional<DayAggregate> analyzeFromFooter(Path file, Set<AnalyticMetric> metrics) throws IOException {
+        if (!SegmentFile.isSegmentFile(file) || !FOOTER_METRICS.containsAll(metrics)) {
+            return Optional.empty();
         }
+        SegmentFile.Footer footer = SegmentFile.readFooter(file);
+        DayAggregate empty = DayAggregate.empty(file.getFileName().toString());
+        return Optional.of(new DayAggregate(empty.fileName(), footer.totalAmount(), footer.maxAmount(),
+                empty.productVolumes(), empty.monthStaffSales(), empty.hourTotals(), empty.hourCounts(), null, null,
+                null, footer.errors()));
+    }
 
-        BigDecimal totalSalesVolume = transactions.stream()
-                .map(Transaction::getSaleAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    public DayAggregate analyzeChunk(FileChunk chunk, Set<AnalyticMetric> metrics) throws IOException {
+        return analyzeChunk(chunk, metrics, DateRange.ALL, newErrorBudget());
+    }
 
-        logger.info("Total sales volume for the day: {}", totalSalesVolume);
-        return totalSalesVolume;
+    /**
+     * Like {@link #analyzeChunk(FileChunk, Set)}, but only rows dated within the range are
+     * aggregated, and malformed lines are charged to the request's budget. Nothing is read
+     * once the budget is spent. Text is pushed line by line from the reader through the
+     * parser into the accumulator, so memory grows with the distinct keys of the day, not
+     * with its rows; binary segments are already columnar and are aggregated whole.
+     *
+     * @throws com.victor.transaction_analytic.exception.MalformedDataException when the
+     *         budget gives up on the data
+     */
+    public DayAggregate analyzeChunk(FileChunk chunk, Set<AnalyticMetric> metrics, DateRange range,
+                                     ErrorBudget budget) throws IOException {
+        budget.checkNotExhausted();
+        ParseReport report = new ParseReport(budget);
+        DayAccumulator accumulator = new DayAccumulator(metrics, ProductDictionary.forFile(chunk.file()), sketchSettings,
+                intradayBucketMinutes);
+
+        if (SegmentFile.isSegmentFile(chunk.file())) {
+            DaySegment segment = loadSegment(chunk);
+            // Lines the converter left out count as if this read had met them
+            IngestionErrors converted = SegmentFile.readFooter(chunk.file()).errors();
+            budget.charge(converted);
+            accumulator.addErrors(converted);
+            long start = System.nanoTime();
+            if (!range.isUnbounded()) {
+                segment = segment.restrictTo(range.fromEpochDay(), range.toEpochDay());
+            }
+            accumulator.accept(segment);
+            pipelineMetrics.record(PipelineMetrics.Stage.AGGREGATE, System.nanoTime() - start);
+        } else if (range.isUnbounded()) {
+            streamChunk(chunk, report, accumulator::accept);
+        } else {
+            int from = range.fromEpochDay();
+            int to = range.toEpochDay();
+            streamChunk(chunk, report, row -> {
+                int epochDay = row.epochDay();
+                if (epochDay >= from && epochDay <= to) {
+                    accumulator.accept(row);
+                }
+            });
+        }
+
+        accumulator.addErrors(report.errors());
+        return accumulator.build(chunk.file().getFileName().toString());
     }
 
-    public Map<String, Integer> productVolumeInADay() {
-        if (transactions == null || transactions.isEmpty()) {
-            logger.warn("No transactions loaded. Ensure a file is loaded first.");
-            return Collections.emptyMap();
+    /**
+     * Streams a text chunk into the sink: mapped in mmap mode, otherwise read through a
+     * buffer of {@code read-buffer-size}. Reading counts as I/O; parsing, and the
+     * aggregation it drives, as parse.
+     */
+    private void streamChunk(FileChunk chunk, ParseReport report, Consumer<TransactionLineParser> sink)
+            throws IOException {
+        long start = System.nanoTime();
+        long mapNanos = 0;
+        try {
+            if (ingestion.getMode() == AnalyticProperties.IngestionMode.MMAP) {
+                ByteBuffer mapped = FileProcessor.map(chunk);
+                mapNanos = System.nanoTime() - start;
+                FileProcessor.parseLines(mapped, chunk.file(), chunk.offset(), report, sink);
+            } else {
+                FileProcessor.streamLines(chunk, (int) ingestion.getReadBufferSize().toBytes(), report, sink);
+            }
+        } finally {
+            // Counted even when the error policy abandons the chunk halfway
+            long ioNanos = mapNanos + report.readNanos();
+            pipelineMetrics.fileOpened(chunk.length());
+            pipelineMetrics.record(PipelineMetrics.Stage.IO, ioNanos);
+            pipelineMetrics.record(PipelineMetrics.Stage.PARSE, System.nanoTime() - start - ioNanos);
+            pipelineMetrics.linesParsed(report.lines(), report.malformedLines());
         }
+        if (report.malformedLines() > 0) {
+            logger.warn("Skipped {} malformed lines of {} in {}", report.malformedLines(), report.lines(),
+                    chunk.file().getFileName());
+        }
+    }
 
-        Map<String, Integer> productVolumeMap = new HashMap<>();
+    /**
+     * Binary segments are decoded column by column, which counts as I/O.
+     */
+    private DaySegment loadSegment(FileChunk chunk) throws IOException {
+        long start = System.nanoTime();
+        DaySegment segment = SegmentFile.read(chunk.file());
+        pipelineMetrics.fileOpened(chunk.length());
+        pipelineMetrics.record(PipelineMetrics.Stage.IO, System.nanoTime() - start);
+        return segment;
+    }
 
-        for (Transaction transaction : transactions) {
-            String items = transaction.getItems();
-            String[] itemPairs = items.substring(1, items.length() - 1).split("\\|");
-            for (String pair : itemPairs) {
-                String[] parts = pair.split(":");
-                String productId = parts[0];
-                int quantity = Integer.parseInt(parts[1]);
-                productVolumeMap.merge(productId, quantity, Integer::sum);
+    public BigDecimal highestSalesValueInADay(DaySegment segment) {
+        if (segment.getRowCount() == 0) {
+            logger.warn("No transactions to analyze.");
+            return BigDecimal.ZERO;
+        }
+
+        long[] amounts = segment.getAmounts();
+        int maxRow = 0;
+        for (int i = 1; i < segment.getRowCount(); i++) {
+            if (amounts[i] > amounts[maxRow]) {
+                maxRow = i;
             }
         }
 
-        logger.info("Product volume for the day: {}", productVolumeMap);
-        return productVolumeMap;
+        BigDecimal maxSales = Amounts.toBigDecimal(amounts[maxRow]);
+        logger.debug("Highest sales value: {} occurred on {}", maxSales, LocalDate.ofEpochDay(segment.getEpochDays()[maxRow]));
+        return maxSales;
+    }
+
+    public BigDecimal totalSalesVolumeInADay(DaySegment segment) {
+        if (segment.getRowCount() == 0) {
+            logger.warn("No transactions to analyze.");
+            return BigDecimal.ZERO;
+        }
+
+        DayAccumulator accumulator = new DayAccumulator(EnumSet.of(AnalyticMetric.DAILY_VOLUME));
+        accumulator.accept(segment);
+        BigDecimal totalSalesVolume = Amounts.toBigDecimal(accumulator.build(null).totalVolume());
+
+        logger.debug("Total sales volume for the day: {}", totalSalesVolume);
+        return totalSalesVolume;
     }
 
-    public List<Transaction> getTransactions() {
-        return transactions;
+    public DayProductVolumes productVolumeInADay(DaySegment segment) {
+        if (segment.getRowCount() == 0) {
+            logger.warn("No transactions to analyze.");
+            return DayProductVolumes.empty();
+        }
+
+        DayAccumulator accumulator = new DayAccumulator(EnumSet.of(AnalyticMetric.PRODUCT_VOLUME));
+        accumulator.accept(segment);
+        DayProductVolumes productVolumeMap = accumulator.build(null).productVolumes();
+
+        logger.debug("Product volume for the day: {} products", productVolumeMap.size());
+        return productVolumeMap;
     }
 }
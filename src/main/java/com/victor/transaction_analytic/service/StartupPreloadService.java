@@ -0,0 +1,187 @@
+package com.victor.transaction_analytic.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.victor.transaction_analytic.aggregation.AnalyticMetric;
+import com.victor.transaction_analytic.aggregation.TransactionAggregator;
+import com.victor.transaction_analytic.config.AnalyticProperties;
+import com.victor.transaction_analytic.helper.DateRange;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Readies the instance for its first request: warms the parser and aggregation paths up
+ * on generated day files, then analyses, or watches, the configured folders. It runs as
+ * an application runner, so Spring keeps the readiness state at refusing traffic until it
+ * returns, and {@link com.victor.transaction_analytic.metrics.PreloadHealthIndicator}
+ * reports its progress. A folder that cannot be loaded is logged and skipped; it does not
+ * fail the startup.
+ */
+@Service
+public class StartupPreloadService implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(StartupPreloadService.class);
+
+    // Few products, so warm-up barely grows the shared product dictionary
+    private static final int WARM_UP_PRODUCTS = 64;
+    private static final LocalDate WARM_UP_START = LocalDate.of(2000, 1, 1);
+
+    public enum Phase {
+        PENDING,
+        WARMING_UP,
+        PRELOADING,
+        DONE
+    }
+
+    private final AnalyticProperties.Preload config;
+    private final SingleFileTransactionAnalyticService singleFileService;
+    private final FolderTransactionAnalyticService folderAnalyticService;
+    private final FolderWatchService folderWatchService;
+    private final ObjectMapper objectMapper;
+    private final Map<String, String> failures = new ConcurrentHashMap<>();
+    private volatile Phase phase = Phase.PENDING;
+    private volatile int foldersLoaded;
+
+    public StartupPreloadService(AnalyticProperties properties,
+                                 SingleFileTransactionAnalyticService singleFileService,
+                                 FolderTransactionAnalyticService folderAnalyticService,
+                                 FolderWatchService folderWatchService,
+                                 ObjectMapper objectMapper) {
+        this.config = properties.getPreload();
+        this.singleFileService = singleFileService;
+        this.folderAnalyticService = folderAnalyticService;
+        this.folderWatchService = folderWatchService;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long start = System.nanoTime();
+        try {
+            if (config.isWarmUp() && config.getWarmUpFiles() > 0) {
+                phase = Phase.WARMING_UP;
+                warmUp();
+            }
+            phase = Phase.PRELOADING;
+            config.getFolders().forEach(this::preload);
+        } finally {
+            phase = Phase.DONE;
+        }
+        logger.info("Startup preload finished in {} ms: {} of {} folders loaded",
+                (System.nanoTime() - start) / 1_000_000, foldersLoaded, config.getFolders().size());
+    }
+
+    public Phase phase() {
+        return phase;
+    }
+
+    public int foldersLoaded() {
+        return foldersLoaded;
+    }
+
+    public int folderCount() {
+        return config.getFolders().size();
+    }
+
+    /**
+     * Folders that could not be loaded, with the reason.
+     */
+    public Map<String, String> failures() {
+        return Collections.unmodifiableMap(failures);
+    }
+
+    private void preload(String folderPath) {
+        long start = System.nanoTime();
+        try {
+            if (config.isWatch()) {
+                folderWatchService.watch(folderPath);
+            } else {
+                folderAnalyticService.analyzeTransactions(folderPath, DateRange.ALL);
+            }
+            foldersLoaded++;
+            logger.info("Preloaded folder {} in {} ms", folderPath, (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            failures.put(folderPath, e.toString());
+            logger.warn("Could not preload folder {}: {}", folderPath, e.toString());
+        }
+    }
+
+    /**
+     * Each generated file goes through the configured ingestion mode, the line parser and
+     * every metric, the partials are merged and ranked, and the result is serialized.
+     * Nothing is cached.
+     */
+    private void warmUp() {
+        long start = System.nanoTime();
+        Set<AnalyticMetric> metrics = EnumSet.allOf(AnalyticMetric.class);
+        TransactionAggregator aggregator = new TransactionAggregator(metrics);
+        Random random = new Random(42);
+        Path folder = null;
+        try {
+            folder = Files.createTempDirectory("transaction-warm-up");
+            for (int i = 0; i < config.getWarmUpFiles(); i++) {
+                LocalDate date = WARM_UP_START.plusDays(i);
+                Path file = folder.resolve(date + ".txt");
+                Files.write(file, generateDay(date, config.getWarmUpRowsPerFile(), random));
+                try {
+                    aggregator.merge(singleFileService.analyzeFile(file, metrics));
+                } finally {
+                    Files.delete(file);
+                }
+            }
+            objectMapper.writeValueAsBytes(aggregator.toResponseDto());
+            objectMapper.writeValueAsBytes(aggregator.topProducts(10));
+            objectMapper.writeValueAsBytes(aggregator.topHoursByAverageVolume(10));
+            objectMapper.writeValueAsBytes(aggregator.approximateTopProducts(10));
+            objectMapper.writeValueAsBytes(aggregator.approximateDistinctCountsByMonth());
+            objectMapper.writeValueAsBytes(aggregator.intradayProfileByMonth(60));
+            logger.info("Warmed up on {} generated day files in {} ms", config.getWarmUpFiles(),
+                    (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            logger.warn("Warm-up failed; continuing without it", e);
+        } finally {
+            if (folder != null) {
+                try {
+                    Files.deleteIfExists(folder);
+                } catch (IOException e) {
+                    logger.debug("Could not delete warm-up folder {}", folder, e);
+                }
+            }
+        }
+    }
+
+    private static byte[] generateDay(LocalDate date, int rows, Random random) {
+        StringBuilder text = new StringBuilder(rows * 96);
+        for (int row = 0; row < rows; row++) {
+            int secondOfDay = random.nextInt(24 * 3600);
+            text.append(1 + random.nextInt(20)).append(',').append(date).append('T');
+            appendTwoDigits(text, secondOfDay / 3600).append(':');
+            appendTwoDigits(text, secondOfDay / 60 % 60).append(':');
+            appendTwoDigits(text, secondOfDay % 60).append(",[");
+            int items = 1 + random.nextInt(8);
+            for (int item = 0; item < items; item++) {
+                text.append(item == 0 ? "" : "|").append(1 + random.nextInt(WARM_UP_PRODUCTS))
+                        .append(':').append(1 + random.nextInt(9));
+            }
+            int thousandths = random.nextInt(1000);
+            text.append("],").append(random.nextInt(50_000)).append('.')
+                    .append(thousandths < 100 ? "0" : "").append(thousandths < 10 ? "0" : "").append(thousandths)
+                    .append('\n');
+        }
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static StringBuilder appendTwoDigits(StringBuilder text, int value) {
+        return text.append(value < 10 ? "0" : "").append(value);
+    }
+}
@@ -0,0 +1,122 @@
+package com.victor.transaction_analytic.sketch;
+
+/**
+ * Count-Min sketch over {@code long} keys: {@code depth} rows of {@code width} counters.
+ * An estimate never undercounts and, with probability {@code 1 - e^-depth}, overcounts by
+ * at most {@code e / width} of the total count added. Memory is fixed at construction and
+ * two sketches of the same shape merge by adding counters.
+ */
+public class CountMinSketch {
+
+    private static final long[] ROW_SEEDS = {
+            0x2545F4914F6CDD1DL, 0x9E3779B97F4A7C15L, 0xD6E8FEB86659FD93L, 0xA0761D6478BD642FL,
+            0xE7037ED1A0B428DBL, 0x8EBC6AF09C88C6E3L, 0x589965CC75374CC3L, 0x1D8E4E27C47D124FL
+    };
+
+    private final int width;
+    private final int depth;
+    private final long[] counters;
+    private long totalCount;
+
+    public CountMinSketch(int width, int depth) {
+        if (width < 1 || depth < 1) {
+            throw new IllegalArgumentException("Count-Min sketch needs a positive width and depth");
+        }
+        this.width = width;
+        this.depth = depth;
+        this.counters = new long[Math.multiplyExact(width, depth)];
+    }
+
+    /**
+     * Sized so that estimates exceed true counts by at most {@code epsilon} of the total
+     * with probability {@code confidence}.
+     */
+    public static CountMinSketch forError(double epsilon, double confidence) {
+        int width = (int) Math.ceil(Math.E / epsilon);
+        int depth = (int) Math.ceil(Math.log(1 / (1 - confidence)));
+        return new CountMinSketch(width, Math.max(depth, 1));
+    }
+
+    private CountMinSketch(CountMinSketch other) {
+        this.width = other.width;
+        this.depth = other.depth;
+        this.counters = other.counters.clone();
+        this.totalCount = other.totalCount;
+    }
+
+    public CountMinSketch copy() {
+        return new CountMinSketch(this);
+    }
+
+    /**
+     * Adds {@code count} to the key and returns the key's updated estimate. Uses the
+     * conservative update: a counter is only raised as far as the key's new estimate, which
+     * keeps colliding keys from inflating each other without weakening the upper bound.
+     */
+    public long add(long key, long count) {
+        long estimate = estimate(key) + count;
+        for (int row = 0; row < depth; row++) {
+            int index = index(key, row);
+            if (counters[index] < estimate) {
+                counters[index] = estimate;
+            }
+        }
+        totalCount += count;
+        return estimate;
+    }
+
+    public long estimate(long key) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters[index(key, row)]);
+        }
+        return estimate;
+    }
+
+    /**
+     * The most any estimate exceeds its true count by, with the sketch's confidence:
+     * {@code e / width} of the total count added.
+     */
+    public long errorBound() {
+        return (long) Math.ceil(Math.E / width * totalCount);
+    }
+
+    /**
+     * Each row hashes the key with its own seed, so rows collide independently.
+     */
+    private int index(long key, int row) {
+        long hash = Hashing.mix(key ^ (ROW_SEEDS[row % ROW_SEEDS.length] + row));
+        return row * width + (int) Math.floorMod(hash, (long) width);
+    }
+
+    public void merge(CountMinSketch other) {
+        if (other.width != width || other.depth != depth) {
+            throw new IllegalArgumentException("Cannot merge Count-Min sketches of different shapes");
+        }
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] += other.counters[i];
+        }
+        totalCount += other.totalCount;
+    }
+
+    public long totalCount() {
+        return totalCount;
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int depth() {
+        return depth;
+    }
+
+    public long estimatedSize() {
+        return 32 + counters.length * 8L;
+    }
+
+    @Override
+    public String toString() {
+        return "CountMinSketch{" + width + "x" + depth + ", total=" + totalCount + "}";
+    }
+}
@@ -0,0 +1,70 @@
+package com.victor.transaction_analytic.sketch;
+
+import com.victor.transaction_analytic.aggregation.MonthStaffSales;
+
+import java.time.YearMonth;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * HyperLogLog counters of distinct products and distinct staff per month, keyed by the
+ * same int month index as {@link MonthStaffSales}.
+ */
+public class DistinctCountsByMonth {
+
+    @FunctionalInterface
+    public interface MonthConsumer {
+        void accept(YearMonth month, HyperLogLog products, HyperLogLog staff);
+    }
+
+    private final double relativeError;
+    private final TreeMap<Integer, HyperLogLog[]> months = new TreeMap<>();
+
+    public DistinctCountsByMonth(double relativeError) {
+        this.relativeError = relativeError;
+    }
+
+    public static DistinctCountsByMonth create(SketchSettings settings) {
+        return new DistinctCountsByMonth(settings.distinctRelativeError());
+    }
+
+    public DistinctCountsByMonth copy() {
+        DistinctCountsByMonth copy = new DistinctCountsByMonth(relativeError);
+        months.forEach((month, counters) -> copy.months.put(month, new HyperLogLog[]{counters[0].copy(), counters[1].copy()}));
+        return copy;
+    }
+
+    /**
+     * The product counter of a month at index 0 and the staff counter at index 1, created
+     * on first use.
+     */
+    public HyperLogLog[] month(int epochMonth) {
+        return months.computeIfAbsent(epochMonth, month -> new HyperLogLog[]{
+                HyperLogLog.forRelativeError(relativeError), HyperLogLog.forRelativeError(relativeError)});
+    }
+
+    public void merge(DistinctCountsByMonth other) {
+        other.months.forEach((month, counters) -> {
+            HyperLogLog[] mine = month(month);
+            mine[0].merge(counters[0]);
+            mine[1].merge(counters[1]);
+        });
+    }
+
+    /**
+     * Visits the months in chronological order.
+     */
+    public void forEach(MonthConsumer consumer) {
+        for (Map.Entry<Integer, HyperLogLog[]> entry : months.entrySet()) {
+            consumer.accept(MonthStaffSales.toYearMonth(entry.getKey()), entry.getValue()[0], entry.getValue()[1]);
+        }
+    }
+
+    public long estimatedSize() {
+        long size = 48;
+        for (HyperLogLog[] counters : months.values()) {
+            size += 64 + counters[0].estimatedSize() + counters[1].estimatedSize();
+        }
+        return size;
+    }
+}
@@ -0,0 +1,18 @@
+package com.victor.transaction_analytic.sketch;
+
+final class Hashing {
+
+    private Hashing() {
+    }
+
+    /**
+     * SplitMix64 finalizer: spreads every input bit over the whole 64-bit result, which
+     * both sketches rely on since product and staff ids are small, dense integers.
+     */
+    static long mix(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,152 @@
+package com.victor.transaction_analytic.sketch;
+
+import com.victor.transaction_analytic.aggregation.TopK;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Approximate most frequent keys in fixed memory: a {@link CountMinSketch} of every count
+ * plus a table of at most {@code capacity} candidate keys with the highest estimates seen.
+ * A key replaces the weakest candidate once its estimate exceeds it. Merging adds the
+ * sketches and keeps the best of both candidate tables, re-estimated against the merged
+ * sketch.
+ */
+public class HeavyHitters {
+
+    private final CountMinSketch sketch;
+    private final long[] candidates;
+    private final long[] estimates;
+    private int size;
+    private int weakest;
+
+    public HeavyHitters(CountMinSketch sketch, int capacity) {
+        this.sketch = sketch;
+        this.candidates = new long[capacity];
+        this.estimates = new long[capacity];
+    }
+
+    public static HeavyHitters create(SketchSettings settings) {
+        return new HeavyHitters(CountMinSketch.forError(settings.countMinEpsilon(), settings.countMinConfidence()),
+                settings.heavyHitters());
+    }
+
+    public HeavyHitters copy() {
+        HeavyHitters copy = new HeavyHitters(sketch.copy(), candidates.length);
+        System.arraycopy(candidates, 0, copy.candidates, 0, size);
+        System.arraycopy(estimates, 0, copy.estimates, 0, size);
+        copy.size = size;
+        copy.weakest = weakest;
+        return copy;
+    }
+
+    public void add(long key, long count) {
+        long estimate = sketch.add(key, count);
+        if (size == candidates.length && estimate <= estimates[weakest]) {
+            return;
+        }
+
+        for (int i = 0; i < size; i++) {
+            if (candidates[i] == key) {
+                estimates[i] = estimate;
+                if (i == weakest) {
+                    findWeakest();
+                }
+                return;
+            }
+        }
+
+        if (size < candidates.length) {
+            candidates[size] = key;
+            estimates[size++] = estimate;
+        } else {
+            candidates[weakest] = key;
+            estimates[weakest] = estimate;
+        }
+        findWeakest();
+    }
+
+    public void merge(HeavyHitters other) {
+        if (other.candidates.length != candidates.length) {
+            throw new IllegalArgumentException("Cannot merge heavy hitters of different capacities");
+        }
+        sketch.merge(other.sketch);
+
+        TopK best = new TopK(candidates.length);
+        for (int i = 0; i < size; i++) {
+            best.offer(candidates[i], sketch.estimate(candidates[i]));
+        }
+        for (int i = 0; i < other.size; i++) {
+            if (!isCandidate(other.candidates[i])) {
+                best.offer(other.candidates[i], sketch.estimate(other.candidates[i]));
+            }
+        }
+
+        size = 0;
+        for (Map.Entry<Long, Long> entry : best.ranked()) {
+            candidates[size] = entry.getKey();
+            estimates[size++] = entry.getValue();
+        }
+        findWeakest();
+    }
+
+    /**
+     * The {@code k} candidates with the highest estimated counts, best first. Only the
+     * tracked candidates can be returned, so {@code k} is capped at the capacity.
+     */
+    public List<Map.Entry<Long, Long>> top(int k) {
+        TopK topK = new TopK(Math.max(1, Math.min(k, candidates.length)));
+        for (int i = 0; i < size; i++) {
+            topK.offer(candidates[i], sketch.estimate(candidates[i]));
+        }
+        return topK.ranked();
+    }
+
+    /**
+     * The tracked candidate keys, in no particular order.
+     */
+    public long[] candidates() {
+        return Arrays.copyOf(candidates, size);
+    }
+
+    /**
+     * The estimated count of any key, tracked or not.
+     */
+    public long estimate(long key) {
+        return sketch.estimate(key);
+    }
+
+    /**
+     * See {@link CountMinSketch#errorBound()}.
+     */
+    public long errorBound() {
+        return sketch.errorBound();
+    }
+
+    public long totalCount() {
+        return sketch.totalCount();
+    }
+
+    public long estimatedSize() {
+        return 48 + sketch.estimatedSize() + candidates.length * 16L;
+    }
+
+    private boolean isCandidate(long key) {
+        for (int i = 0; i < size; i++) {
+            if (candidates[i] == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void findWeakest() {
+        weakest = 0;
+        for (int i = 1; i < size; i++) {
+            if (estimates[i] < estimates[weakest]) {
+                weakest = i;
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.victor.transaction_analytic.sketch;
+
+/**
+ * Error bounds the sketches are sized from. Sketches can only be merged with sketches
+ * built from the same settings.
+ *
+ * @param countMinEpsilon      a Count-Min estimate exceeds the true count by at most this
+ *                             fraction of the total count...
+ * @param countMinConfidence   ...with this probability
+ * @param heavyHitters         number of candidate top products tracked per partial
+ * @param distinctRelativeError standard error of the HyperLogLog distinct counts
+ */
+public record SketchSettings(double countMinEpsilon, double countMinConfidence, int heavyHitters,
+                             double distinctRelativeError) {
+
+    public static final SketchSettings DEFAULT = new SketchSettings(0.001, 0.99, 100, 0.01);
+
+    public SketchSettings {
+        if (countMinEpsilon <= 0 || countMinEpsilon >= 1) {
+            throw new IllegalArgumentException("count-min epsilon must be in (0, 1), was " + countMinEpsilon);
+        }
+        if (countMinConfidence <= 0 || countMinConfidence >= 1) {
+            throw new IllegalArgumentException("count-min confidence must be in (0, 1), was " + countMinConfidence);
+        }
+        if (heavyHitters < 1) {
+            throw new IllegalArgumentException("heavy hitters must be at least 1, was " + heavyHitters);
+        }
+        if (distinctRelativeError <= 0 || distinctRelativeError >= 1) {
+            throw new IllegalArgumentException("distinct relative error must be in (0, 1), was " + distinctRelativeError);
+        }
+    }
+}
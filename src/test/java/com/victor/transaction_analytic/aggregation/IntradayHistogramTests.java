@@ -0,0 +1,89 @@
+package com.victor.transaction_analytic.aggregation;
+
+import com.victor.transaction_analytic.dto.IntradayBucketDto;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntradayHistogramTests {
+
+	private static final int WEDNESDAY = (int) LocalDate.of(2025, 1, 1).toEpochDay();
+	private static final int SATURDAY = (int) LocalDate.of(2025, 2, 1).toEpochDay();
+
+	@Test
+	void foldsFineBucketsIntoCoarserOnes() {
+		IntradayHistogram histogram = new IntradayHistogram(15);
+		long[] day = histogram.day(WEDNESDAY);
+		histogram.add(day, 9 * 3600, 1_000);
+		histogram.add(day, 9 * 3600 + 59 * 60, 2_001);
+		histogram.add(day, 10 * 3600, 500);
+
+		long[] hourly = histogram.fold(60, epochDay -> 0).get(0);
+
+		assertEquals(48, hourly.length);
+		assertEquals(3_001, hourly[9]);
+		assertEquals(2, hourly[24 + 9]);
+		assertEquals(500, hourly[10]);
+		assertEquals(1, hourly[24 + 10]);
+	}
+
+	@Test
+	void mergingAddsBucketsOfTheSameDay() {
+		IntradayHistogram first = new IntradayHistogram(15);
+		first.add(first.day(WEDNESDAY), 60, 1_000);
+		IntradayHistogram second = new IntradayHistogram(15);
+		second.add(second.day(WEDNESDAY), 120, 3_000);
+		second.add(second.day(SATURDAY), 120, 7_000);
+
+		IntradayHistogram merged = first.copy();
+		merged.merge(second);
+
+		Map<Integer, long[]> byDay = merged.fold(15, epochDay -> epochDay);
+		assertEquals(4_000, byDay.get(WEDNESDAY)[0]);
+		assertEquals(2, byDay.get(WEDNESDAY)[96]);
+		assertEquals(7_000, byDay.get(SATURDAY)[0]);
+		assertEquals(1_000, first.fold(15, epochDay -> epochDay).get(WEDNESDAY)[0]);
+		assertThrows(IllegalArgumentException.class, () -> merged.merge(new IntradayHistogram(30)));
+	}
+
+	@Test
+	void rejectsWidthsThatDoNotLineUp() {
+		assertThrows(IllegalArgumentException.class, () -> new IntradayHistogram(7));
+		IntradayHistogram histogram = new IntradayHistogram(15);
+		assertThrows(IllegalArgumentException.class, () -> histogram.fold(20, epochDay -> 0));
+		assertThrows(IllegalArgumentException.class, () -> histogram.fold(0, epochDay -> 0));
+	}
+
+	@Test
+	void profilesGroupDaysByWeekdayAndMonth() {
+		IntradayHistogram histogram = new IntradayHistogram(15);
+		histogram.add(histogram.day(WEDNESDAY), 16 * 3600, 1_000);
+		histogram.add(histogram.day(WEDNESDAY), 16 * 3600 + 10, 2_000);
+		histogram.add(histogram.day(SATURDAY), 16 * 3600, 4_000);
+		DayAggregate day = DayAggregate.empty("days.txt");
+		TransactionAggregator aggregator = new TransactionAggregator(AnalyticMetric.exact());
+		aggregator.merge(day);
+		TransactionAggregator profiled = new TransactionAggregator(EnumSet.of(AnalyticMetric.INTRADAY_PROFILE));
+		profiled.merge(new DayAggregate(null, 0, 0, day.productVolumes(), day.monthStaffSales(), day.hourTotals(),
+				day.hourCounts(), null, null, histogram, IngestionErrors.NONE));
+
+		List<IntradayBucketDto> overall = profiled.intradayProfile(60);
+		assertEquals(24, overall.size());
+		assertEquals(new IntradayBucketDto("16:00", 3, new BigDecimal("7.000"), new BigDecimal("2.33")), overall.get(16));
+		assertNull(overall.get(15).average());
+		assertEquals(List.of(DayOfWeek.WEDNESDAY, DayOfWeek.SATURDAY),
+				List.copyOf(profiled.intradayProfileByDayOfWeek(60).keySet()));
+		assertEquals(new BigDecimal("1.50"),
+				profiled.intradayProfileByMonth(60).get(YearMonth.of(2025, 1)).get(16).average());
+		assertEquals(2, profiled.intradayProfileByMonth(720).get(YearMonth.of(2025, 1)).size());
+		assertTrue(aggregator.intradayProfile(60).isEmpty());
+	}
+}
@@ -0,0 +1,68 @@
+package com.victor.transaction_analytic.aggregation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongLongHashMapTests {
+
+	@Test
+	void sumsLikeAHashMapAcrossGrowth() {
+		LongLongHashMap map = new LongLongHashMap(2);
+		Map<Long, Long> expected = new HashMap<>();
+		Random random = new Random(42);
+		for (int i = 0; i < 50_000; i++) {
+			long key = random.nextInt(5_000) - 100;
+			long delta = random.nextInt(10);
+			map.add(key, delta);
+			expected.merge(key, delta, Long::sum);
+		}
+
+		assertEquals(expected.size(), map.size());
+		expected.forEach((key, value) -> assertEquals(value, map.get(key, -1)));
+		assertEquals(-1, map.get(999_999, -1));
+	}
+
+	@Test
+	void keepsZeroKeySeparately() {
+		LongLongHashMap map = new LongLongHashMap();
+		assertFalse(map.containsKey(0));
+
+		map.add(0, 5);
+		map.add(0, 2);
+
+		assertTrue(map.containsKey(0));
+		assertEquals(7, map.get(0, -1));
+		assertEquals(1, map.size());
+	}
+
+	@Test
+	void addAllMergesEveryEntry() {
+		LongLongHashMap left = new LongLongHashMap();
+		left.add(1, 10);
+		left.add(0, 1);
+		LongLongHashMap right = new LongLongHashMap();
+		right.add(1, 5);
+		right.add(2, 3);
+		right.add(0, 1);
+
+		left.addAll(right);
+
+		assertEquals(3, left.size());
+		assertEquals(15, left.get(1, 0));
+		assertEquals(3, left.get(2, 0));
+		assertEquals(2, left.get(0, 0));
+	}
+
+	@Test
+	void sumsFailInsteadOfOverflowing() {
+		LongLongHashMap map = new LongLongHashMap();
+		map.add(1, Long.MAX_VALUE);
+
+		assertThrows(ArithmeticException.class, () -> map.add(1, 1));
+	}
+}
@@ -0,0 +1,149 @@
+package com.victor.transaction_analytic.aggregation;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductDictionaryTests {
+
+	private static final long FIRST_ID = 9_000_000_000L;
+
+	@Test
+	void threadsRacingOnTheSameIdsAgreeOnEveryCode() throws Exception {
+		ProductDictionary dictionary = new ProductDictionary();
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		List<Future<int[]>> results = new ArrayList<>();
+		try {
+			for (int thread = 0; thread < 8; thread++) {
+				int offset = thread;
+				results.add(executor.submit(() -> {
+					int[] codes = new int[20_000];
+					for (int i = 0; i < codes.length; i++) {
+						// Every thread walks the same ids from a different start
+						int index = (i + offset * 2_500) % codes.length;
+						codes[index] = dictionary.encode(FIRST_ID + index);
+					}
+					return codes;
+				}));
+			}
+			int[] expected = results.get(0).get();
+			for (Future<int[]> result : results) {
+				assertArrayEquals(expected, result.get());
+			}
+			HashSet<Integer> distinct = new HashSet<>();
+			for (int i = 0; i < expected.length; i++) {
+				assertTrue(distinct.add(expected[i]));
+				assertEquals(FIRST_ID + i, dictionary.decode(expected[i]));
+				assertTrue(expected[i] < dictionary.size());
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	void productVolumesMergeByCodeLikeAMap() {
+		ProductDictionary dictionary = new ProductDictionary();
+		ProductVolumes left = new ProductVolumes(dictionary);
+		ProductVolumes right = new ProductVolumes(dictionary);
+		Map<Long, Long> expected = new HashMap<>();
+		for (long id = 0; id < 3_000; id++) {
+			ProductVolumes side = id % 3 == 0 ? right : left;
+			side.add(id * 7, id % 5);
+			expected.merge(id * 7, id % 5, Long::sum);
+		}
+		right.add(7, 4);
+		expected.merge(7L, 4L, Long::sum);
+
+		left.addAll(right);
+
+		Map<Long, Long> actual = new HashMap<>();
+		left.forEach(actual::put);
+		assertEquals(expected, actual);
+		assertEquals(3_000, left.size());
+		// Product 0 sold nothing, yet it was seen
+		assertEquals(0, left.get(0, -1));
+		assertEquals(-1, left.get(-42, -1));
+	}
+
+	@Test
+	void totalsOfDifferentDictionariesMergeById() {
+		ProductVolumes left = new ProductVolumes();
+		left.add(7, 1);
+		left.add(8, 2);
+		LongLongHashMap quantities = new LongLongHashMap();
+		quantities.add(8, 3);
+		quantities.add(9, 4);
+		ProductVolumes right = new ProductVolumes();
+		right.add(9, 5);
+
+		left.addAll(DayProductVolumes.of(quantities, new ProductDictionary()));
+		left.addAll(right);
+
+		Map<Long, Long> actual = new HashMap<>();
+		left.compact().forEach(actual::put);
+		assertEquals(Map.of(7L, 1L, 8L, 5L, 9L, 9L), actual);
+	}
+
+	@Test
+	void eachFolderHasItsOwnDictionary() {
+		Path big = Path.of("build", "big-store");
+		Path small = Path.of("build", "small-store");
+		ProductDictionary bigDictionary = ProductDictionary.forFolder(big);
+		for (long id = 0; id < 50_000; id++) {
+			bigDictionary.encode(FIRST_ID + id);
+		}
+
+		assertSame(bigDictionary, ProductDictionary.forFile(big.resolve("2025-01-01.txt")));
+		assertSame(bigDictionary, ProductDictionary.forFolder(big.toAbsolutePath()));
+		ProductDictionary smallDictionary = ProductDictionary.forFile(small.resolve("2025-01-01.txt"));
+		assertNotSame(bigDictionary, smallDictionary);
+		assertTrue(ProductDictionary.folderCodes() >= bigDictionary.size());
+
+		// A small folder read after a big one is not sized by the big catalog
+		LongLongHashMap quantities = new LongLongHashMap();
+		quantities.add(FIRST_ID + 49_999, 1);
+		quantities.add(FIRST_ID + 1, 2);
+		ProductVolumes totals = new ProductVolumes();
+		totals.addAll(DayProductVolumes.of(quantities, smallDictionary));
+		assertEquals(2, smallDictionary.size());
+		assertTrue(totals.estimatedSize() < 1_000);
+		assertEquals(1, totals.get(FIRST_ID + 49_999, -1));
+	}
+
+	@Test
+	void dayVolumesStaySizedToTheDayWhateverTheCatalog() {
+		ProductDictionary dictionary = new ProductDictionary();
+		for (long id = 0; id < 50_000; id++) {
+			dictionary.encode(FIRST_ID + 100_000 + id);
+		}
+		LongLongHashMap quantities = new LongLongHashMap();
+		quantities.add(FIRST_ID + 149_999, 3);
+		quantities.add(FIRST_ID + 100_000, 2);
+		quantities.add(FIRST_ID + 100_000, 5);
+
+		DayProductVolumes day = DayProductVolumes.of(quantities, dictionary);
+
+		assertEquals(2, day.size());
+		assertTrue(day.estimatedSize() < 1_000);
+		assertEquals(7, day.get(FIRST_ID + 100_000, -1));
+		assertEquals(-1, day.get(FIRST_ID + 100_001, -1));
+		ProductVolumes totals = new ProductVolumes();
+		totals.addAll(day);
+		totals.addAll(day);
+		assertEquals(6, totals.get(FIRST_ID + 149_999, -1));
+		Map<Long, Long> compacted = new HashMap<>();
+		totals.compact().forEach(compacted::put);
+		assertEquals(Map.of(FIRST_ID + 100_000, 14L, FIRST_ID + 149_999, 6L), compacted);
+	}
+}
@@ -0,0 +1,101 @@
+package com.victor.transaction_analytic.aggregation;
+
+import com.victor.transaction_analytic.dto.ShardPartialDto;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardPartialTests {
+
+	private static final int JANUARY_2025 = 2025 * 12;
+
+	@Test
+	void sumsTheSameDayAcrossShardsBeforePickingTheHighest() {
+		ShardPartial north = new ShardPartial();
+		north.add(Path.of("2025-01-01.txt"), day(5_000, 900, 11, 4, 8, 7_000, 10));
+		north.add(Path.of("2025-01-02.txt"), day(7_000, 800, 12, 9, 8, 2_000, 10));
+		ShardPartial south = new ShardPartial();
+		south.add(Path.of("2025-01-01.txt"), day(4_000, 950, 12, 6, 3, 6_000, 11));
+
+		ShardPartial region = new ShardPartial();
+		region.merge(north);
+		region.merge(south);
+		TransactionAggregator aggregator = region.aggregator();
+
+		// 2025-01-01 sold 9.000 across both stores, more than either store's best day
+		assertEquals(new BigDecimal("9.000"), aggregator.highestSalesVolumeInADay());
+		assertEquals(new BigDecimal("0.950"), aggregator.highestSalesValueInADay());
+		assertEquals(Map.entry(12L, 15L), aggregator.mostSoldProduct().orElseThrow());
+		assertEquals("8", aggregator.highestSalesStaffByMonth().values().iterator().next().getKey());
+	}
+
+	@Test
+	void averagesHoursOverEveryShardsTransactions() {
+		ShardPartial north = new ShardPartial();
+		north.add(Path.of("2025-01-01.txt"), day(9_000, 900, 11, 1, 8, 9_000, 10));
+		ShardPartial south = new ShardPartial();
+		south.add(Path.of("2025-01-01.txt"), day(1_000, 100, 11, 1, 8, 1_000, 10, 8));
+		south.add(Path.of("2025-01-02.txt"), day(4_000, 400, 11, 1, 8, 4_000, 11));
+
+		ShardPartial region = new ShardPartial();
+		region.merge(north);
+		region.merge(south);
+
+		// Hour 10 averages 10.000 over 10 transactions, below hour 11's 4.000 over 2; north alone would say hour 10
+		assertEquals(11, region.aggregator().highestHourByAverageVolume().orElseThrow().getKey());
+	}
+
+	@Test
+	void survivesTheRoundTripThroughItsDto() {
+		ShardPartial partial = new ShardPartial();
+		partial.add(Path.of("2025-01-01.txt"), day(5_000, 900, 11, 4, 8, 7_000, 10));
+		partial.add(Path.of("2025-01-02.txt"), day(7_000, 800, 12, 9, 3, 2_000, 14));
+
+		ShardPartial copy = ShardPartial.of(partial.toDto());
+
+		ShardPartialDto expected = partial.toDto();
+		ShardPartialDto actual = copy.toDto();
+		assertEquals(expected.dailyVolumes(), actual.dailyVolumes());
+		assertEquals(expected.highestDailyValue(), actual.highestDailyValue());
+		assertEquals(expected.productVolumes(), actual.productVolumes());
+		assertEquals(expected.monthStaffSales(), actual.monthStaffSales());
+		assertArrayEquals(expected.hourTotals(), actual.hourTotals());
+		assertArrayEquals(expected.hourCounts(), actual.hourCounts());
+		assertEquals(partial.aggregator().toResponseDto(), copy.aggregator().toResponseDto());
+		assertEquals(partial.aggregator().topHoursByAverageVolume(24), copy.aggregator().topHoursByAverageVolume(24));
+	}
+
+	@Test
+	void anEmptyShardChangesNothing() {
+		ShardPartial partial = new ShardPartial();
+		partial.add(Path.of("2025-01-01.txt"), day(5_000, 900, 11, 4, 8, 7_000, 10));
+		ShardPartial withEmpty = ShardPartial.of(partial.toDto());
+		withEmpty.merge(ShardPartial.of(new ShardPartial().toDto()));
+
+		assertNull(new ShardPartial().toDto().highestDailyValue());
+		assertEquals(partial.aggregator().toResponseDto(), withEmpty.aggregator().toResponseDto());
+	}
+
+	private static DayAggregate day(long totalVolume, long maxValue, long productId, long quantity, long staffId,
+									long sales, int hour) {
+		return day(totalVolume, maxValue, productId, quantity, staffId, sales, hour, 2);
+	}
+
+	private static DayAggregate day(long totalVolume, long maxValue, long productId, long quantity, long staffId,
+									long sales, int hour, long transactions) {
+		ProductVolumes products = new ProductVolumes();
+		products.add(productId, quantity);
+		MonthStaffSales monthStaffSales = new MonthStaffSales();
+		monthStaffSales.add(JANUARY_2025, staffId, sales);
+		long[] hourTotals = new long[DayAggregate.HOURS_PER_DAY];
+		long[] hourCounts = new long[DayAggregate.HOURS_PER_DAY];
+		hourTotals[hour] = totalVolume;
+		hourCounts[hour] = transactions;
+		return new DayAggregate(null, totalVolume, maxValue, products.compact(), monthStaffSales, hourTotals, hourCounts,
+				null, null, null, IngestionErrors.NONE);
+	}
+}
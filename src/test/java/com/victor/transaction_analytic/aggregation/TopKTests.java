@@ -0,0 +1,46 @@
+package com.victor.transaction_analytic.aggregation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TopKTests {
+
+	@Test
+	void matchesAFullSortWithLowestKeyFirstOnTies() {
+		LongLongHashMap map = new LongLongHashMap();
+		Random random = new Random(7);
+		for (int i = 0; i < 10_000; i++) {
+			// Few distinct values, so many keys tie
+			map.add(random.nextInt(2_000), random.nextInt(5));
+		}
+
+		List<Map.Entry<Long, Long>> expected = new ArrayList<>();
+		map.forEach((key, value) -> expected.add(Map.entry(key, value)));
+		expected.sort(Comparator.<Map.Entry<Long, Long>>comparingLong(Map.Entry::getValue).reversed()
+				.thenComparingLong(Map.Entry::getKey));
+
+		assertEquals(expected.subList(0, 25), TopK.of(map, 25));
+	}
+
+	@Test
+	void returnsEverythingWhenKExceedsTheCandidates() {
+		TopK topK = new TopK(10);
+		topK.offer(3, 1);
+		topK.offer(1, 5);
+		topK.offer(2, 5);
+
+		assertEquals(List.of(Map.entry(1L, 5L), Map.entry(2L, 5L), Map.entry(3L, 1L)), topK.ranked());
+	}
+
+	@Test
+	void rejectsNonPositiveK() {
+		assertThrows(IllegalArgumentException.class, () -> new TopK(0));
+	}
+}
@@ -0,0 +1,120 @@
+package com.victor.transaction_analytic.aggregation;
+
+import com.victor.transaction_analytic.sketch.HeavyHitters;
+import com.victor.transaction_analytic.sketch.SketchSettings;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionAggregatorTests {
+
+	private static final int PRODUCTS = 50_000;
+	private static final int DAYS = 30;
+	private static final int SALES_PER_DAY = 20_000;
+	private static final Set<AnalyticMetric> APPROXIMATE = EnumSet.of(AnalyticMetric.APPROXIMATE_PRODUCT_VOLUME);
+
+	@Test
+	void sketchedDaysFindTheTopProductsOfSkewedSalesWithinTheBound() {
+		Sales sales = new Sales(new Random(1));
+		TransactionAggregator aggregator = new TransactionAggregator(APPROXIMATE, SketchSettings.DEFAULT);
+		sales.days.forEach(day -> aggregator.merge(sketched(day)));
+
+		List<Map.Entry<Long, Long>> top = aggregator.approximateTopProducts(10);
+		long bound = aggregator.approximateErrorBound();
+
+		assertTrue(bound > 0);
+		assertEquals(sales.top(1).get(0).getKey(), top.get(0).getKey());
+		for (Map.Entry<Long, Long> product : top) {
+			long exact = sales.totals.get(product.getKey(), 0);
+			assertTrue(product.getValue() >= exact && product.getValue() <= exact + bound,
+					product + " is not within " + bound + " above " + exact);
+		}
+		Set<Long> found = new HashSet<>(top.stream().map(Map.Entry::getKey).toList());
+		sales.top(5).forEach(product -> assertTrue(found.contains(product.getKey()), product + " was missed"));
+	}
+
+	@Test
+	void ranksByTheExactSumsOfDaysThatCarryThem() {
+		Sales sales = new Sales(new Random(2));
+		TransactionAggregator aggregator = new TransactionAggregator(APPROXIMATE, SketchSettings.DEFAULT);
+		sales.days.forEach(day -> aggregator.merge(exact(day)));
+
+		assertEquals(sales.top(10), aggregator.approximateTopProducts(10));
+		assertEquals(0, aggregator.approximateErrorBound());
+	}
+
+	@Test
+	void mixesExactAndSketchedDaysWithoutUndercounting() {
+		Sales sales = new Sales(new Random(3));
+		TransactionAggregator sketchedOnly = new TransactionAggregator(APPROXIMATE, SketchSettings.DEFAULT);
+		TransactionAggregator mixed = new TransactionAggregator(APPROXIMATE, SketchSettings.DEFAULT);
+		for (int i = 0; i < DAYS; i++) {
+			sketchedOnly.merge(sketched(sales.days.get(i)));
+			mixed.merge(i % 2 == 0 ? exact(sales.days.get(i)) : sketched(sales.days.get(i)));
+		}
+
+		long bound = mixed.approximateErrorBound();
+		assertTrue(bound < sketchedOnly.approximateErrorBound());
+		assertEquals(sales.top(1).get(0).getKey(), mixed.approximateTopProducts(1).get(0).getKey());
+		for (Map.Entry<Long, Long> product : mixed.approximateTopProducts(10)) {
+			long exact = sales.totals.get(product.getKey(), 0);
+			assertTrue(product.getValue() >= exact && product.getValue() <= exact + bound);
+		}
+	}
+
+	private static DayAggregate exact(LongLongHashMap day) {
+		DayAggregate empty = DayAggregate.empty("day.txt");
+		return new DayAggregate(empty.fileName(), 0, 0, DayProductVolumes.of(day, new ProductDictionary()),
+				empty.monthStaffSales(), empty.hourTotals(), empty.hourCounts(), null, null, null, empty.errors());
+	}
+
+	private static DayAggregate sketched(LongLongHashMap day) {
+		HeavyHitters sketch = HeavyHitters.create(SketchSettings.DEFAULT);
+		day.forEach(sketch::add);
+		DayAggregate empty = DayAggregate.empty("day.txt");
+		return new DayAggregate(empty.fileName(), 0, 0, empty.productVolumes(), empty.monthStaffSales(),
+				empty.hourTotals(), empty.hourCounts(), sketch, null, null, empty.errors());
+	}
+
+	/**
+	 * Daily quantities of a catalog whose popularity follows a Zipf law, the long tail
+	 * retail sales usually have, under six-digit product ids in random order.
+	 */
+	private static final class Sales {
+
+		private final List<LongLongHashMap> days = new ArrayList<>();
+		private final LongLongHashMap totals = new LongLongHashMap();
+
+		private Sales(Random random) {
+			double[] cumulative = new double[PRODUCTS];
+			double sum = 0;
+			for (int rank = 0; rank < PRODUCTS; rank++) {
+				sum += 1 / Math.pow(rank + 1, 1.1);
+				cumulative[rank] = sum;
+			}
+			List<Long> ids = new ArrayList<>();
+			for (int i = 0; i < PRODUCTS; i++) {
+				ids.add(100_000L + 17L * i);
+			}
+			Collections.shuffle(ids, random);
+
+			for (int d = 0; d < DAYS; d++) {
+				LongLongHashMap day = new LongLongHashMap();
+				for (int s = 0; s < SALES_PER_DAY; s++) {
+					int rank = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+					long productId = ids.get(rank >= 0 ? rank : -rank - 1);
+					long quantity = 1 + random.nextInt(5);
+					day.add(productId, quantity);
+					totals.add(productId, quantity);
+				}
+				days.add(day);
+			}
+		}
+
+		private List<Map.Entry<Long, Long>> top(int k) {
+			return TopK.of(totals, k);
+		}
+	}
+}
@@ -0,0 +1,147 @@
+package com.victor.transaction_analytic.cache;
+
+import com.victor.transaction_analytic.aggregation.AnalyticMetric;
+import com.victor.transaction_analytic.aggregation.DayAggregate;
+import com.victor.transaction_analytic.config.AnalyticProperties;
+import com.victor.transaction_analytic.metrics.PipelineMetrics;
+import com.victor.transaction_analytic.service.SingleFileTransactionAnalyticService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.YearMonth;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DayAggregateCacheTests {
+
+	private static final String TEXT = """
+			9,2025-01-01T12:40:45,[857749:6|804084:5|505009:2],5676.010
+			garbage
+			2,2025-01-01T16:37:00,[432879:1],4601.380
+			7,2025-01-01T09:17:54,[865779:1|10792:9],39642.009
+			""";
+
+	@TempDir
+	Path folder;
+
+	private final AnalyticProperties properties = new AnalyticProperties();
+	private final SingleFileTransactionAnalyticService singleFileService =
+			new SingleFileTransactionAnalyticService(properties, new PipelineMetrics(new SimpleMeterRegistry()));
+
+	@Test
+	void entryIsDroppedWhenTheFileChangesSize() throws IOException {
+		Path file = Files.writeString(folder.resolve("2025-01-01.txt"), TEXT);
+		DayAggregateCache cache = new DayAggregateCache(properties);
+		FileStamp stamp = FileStamp.of(file);
+		cache.put(stamp, analyze(file));
+		assertTrue(cache.get(stamp).isPresent());
+
+		Files.writeString(file, "1,2025-01-01T10:00:00,[1:1],1.000\n", StandardOpenOption.APPEND);
+
+		assertNotEquals(stamp, FileStamp.of(file));
+		assertTrue(cache.get(FileStamp.of(file)).isEmpty());
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	void entryIsDroppedWhenTheFileIsTouched() throws IOException {
+		Path file = Files.writeString(folder.resolve("2025-01-01.txt"), TEXT);
+		DayAggregateCache cache = new DayAggregateCache(properties);
+		FileStamp stamp = FileStamp.of(file);
+		cache.put(stamp, analyze(file));
+
+		Files.setLastModifiedTime(file, FileTime.fromMillis(stamp.lastModified() + 60_000));
+
+		assertEquals(stamp.size(), FileStamp.of(file).size());
+		assertTrue(cache.get(FileStamp.of(file)).isEmpty());
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	void evictsTheLeastRecentlyUsedDay() throws IOException {
+		properties.getCache().setMaxEntries(2);
+		DayAggregateCache cache = new DayAggregateCache(properties);
+		List<FileStamp> stamps = new ArrayList<>();
+		for (String day : List.of("2025-01-01", "2025-01-02", "2025-01-03")) {
+			Path file = Files.writeString(folder.resolve(day + ".txt"), TEXT);
+			stamps.add(FileStamp.of(file));
+		}
+		cache.put(stamps.get(0), analyze(stamps.get(0).path()));
+		cache.put(stamps.get(1), analyze(stamps.get(1).path()));
+		cache.get(stamps.get(0));
+		cache.put(stamps.get(2), analyze(stamps.get(2).path()));
+
+		assertEquals(2, cache.size());
+		assertTrue(cache.get(stamps.get(0)).isPresent());
+		assertTrue(cache.get(stamps.get(1)).isEmpty());
+		assertTrue(cache.get(stamps.get(2)).isPresent());
+	}
+
+	@Test
+	void snapshotRoundTripsEveryPersistedPart() throws IOException {
+		properties.getCache().setSnapshotPath(folder.resolve("snapshot/cache.bin").toString());
+		Map<FileStamp, DayAggregate> written = new LinkedHashMap<>();
+		for (String day : List.of("2025-01-01", "2025-01-02")) {
+			Path file = Files.writeString(folder.resolve(day + ".txt"), TEXT.replace("2025-01-01", day));
+			written.put(FileStamp.of(file), analyze(file));
+		}
+		DayAggregateCache cache = new DayAggregateCache(properties);
+		written.forEach(cache::put);
+		cache.writeSnapshot();
+
+		Map<FileStamp, DayAggregate> read = DayAggregateSnapshot.read(Path.of(properties.getCache().getSnapshotPath()));
+		assertEquals(written.keySet(), read.keySet());
+		written.forEach((stamp, day) -> assertSameDay(day, read.get(stamp)));
+
+		DayAggregateCache restored = new DayAggregateCache(properties);
+		restored.restoreSnapshot();
+		assertEquals(2, restored.size());
+		written.forEach((stamp, day) -> assertSameDay(day, restored.get(stamp).orElseThrow()));
+	}
+
+	@Test
+	void unreadableSnapshotIsIgnored() throws IOException {
+		Path snapshot = Files.writeString(folder.resolve("cache.bin"), "not a snapshot");
+		properties.getCache().setSnapshotPath(snapshot.toString());
+
+		assertThrows(IOException.class, () -> DayAggregateSnapshot.read(snapshot));
+		DayAggregateCache cache = new DayAggregateCache(properties);
+		cache.restoreSnapshot();
+		assertEquals(0, cache.size());
+	}
+
+	private DayAggregate analyze(Path file) throws IOException {
+		return singleFileService.analyzeFile(file, AnalyticMetric.exact());
+	}
+
+	private static void assertSameDay(DayAggregate expected, DayAggregate actual) {
+		assertEquals(expected.fileName(), actual.fileName());
+		assertEquals(expected.totalVolume(), actual.totalVolume());
+		assertEquals(expected.maxValue(), actual.maxValue());
+		assertEquals(products(expected), products(actual));
+		assertEquals(staffSales(expected), staffSales(actual));
+		assertArrayEquals(expected.hourTotals(), actual.hourTotals());
+		assertArrayEquals(expected.hourCounts(), actual.hourCounts());
+		assertEquals(expected.errors(), actual.errors());
+	}
+
+	private static Map<Long, Long> products(DayAggregate day) {
+		Map<Long, Long> products = new HashMap<>();
+		day.productVolumes().forEach(products::put);
+		return products;
+	}
+
+	private static Map<YearMonth, Map<Long, Long>> staffSales(DayAggregate day) {
+		Map<YearMonth, Map<Long, Long>> months = new HashMap<>();
+		day.monthStaffSales().forEach((month, staffSales) ->
+				staffSales.forEach((staffId, sales) -> months.computeIfAbsent(month, ignored -> new HashMap<>()).put(staffId, sales)));
+		return months;
+	}
+}
@@ -0,0 +1,51 @@
+package com.victor.transaction_analytic.helper;
+
+import com.victor.transaction_analytic.exception.InvalidRequestException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DateRangeTests {
+
+	private static final DateRange JANUARY = DateRange.of(null, null, YearMonth.of(2025, 1));
+
+	@Test
+	void prunesDatedFilesByName() {
+		assertFalse(JANUARY.mayContain(Path.of("2024-12-31.txt")));
+		assertTrue(JANUARY.mayContain(Path.of("2025-01-01.txt")));
+		assertTrue(JANUARY.mayContain(Path.of("2025-01-31.txt")));
+		assertFalse(JANUARY.mayContain(Path.of("2025-02-01.txt")));
+		assertTrue(JANUARY.mayContain(Path.of("archive.txt")));
+	}
+
+	@Test
+	void filtersRowsOnlyOfUndatedFiles() {
+		assertFalse(JANUARY.needsRowFilter(Path.of("2025-01-01.txt")));
+		assertFalse(JANUARY.needsRowFilter(Path.of("2025-01-15.txt")));
+		assertFalse(JANUARY.needsRowFilter(Path.of("2025-01-31.txt")));
+		assertTrue(JANUARY.needsRowFilter(Path.of("archive.txt")));
+		assertFalse(DateRange.ALL.needsRowFilter(Path.of("archive.txt")));
+	}
+
+	@Test
+	void leavesOpenBoundsOpen() {
+		DateRange fromMarch = DateRange.of(LocalDate.of(2025, 3, 1), null, null);
+
+		assertFalse(fromMarch.mayContain(Path.of("2025-02-28.txt")));
+		assertTrue(fromMarch.mayContain(Path.of("2099-12-31.txt")));
+		assertEquals(Integer.MAX_VALUE, fromMarch.toEpochDay());
+		assertSame(DateRange.ALL, DateRange.of(null, null, null));
+	}
+
+	@Test
+	void rejectsContradictoryParameters() {
+		assertThrows(InvalidRequestException.class,
+				() -> DateRange.of(LocalDate.of(2025, 2, 1), LocalDate.of(2025, 1, 1), null));
+		assertThrows(InvalidRequestException.class,
+				() -> DateRange.of(LocalDate.of(2025, 1, 1), null, YearMonth.of(2025, 1)));
+	}
+}
@@ -0,0 +1,70 @@
+package com.victor.transaction_analytic.helper;
+
+import com.victor.transaction_analytic.aggregation.IngestionErrors;
+import com.victor.transaction_analytic.exception.MalformedDataException;
+import com.victor.transaction_analytic.model.DaySegment;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ErrorBudgetTests {
+
+	private static final String GOOD_LINE = "9,2025-01-01T12:40:45,[857749:6],5676.010\n";
+	private static final Path FILE = Path.of("2025-01-01.txt");
+
+	@Test
+	void skipsMalformedLinesAndSamplesThem() {
+		ParseReport report = new ParseReport(new ErrorBudget(true, 100));
+
+		DaySegment segment = parse(GOOD_LINE + "garbage\n" + GOOD_LINE, report);
+
+		assertEquals(2, segment.getRowCount());
+		assertEquals(3, report.lines());
+		IngestionErrors errors = report.errors();
+		assertEquals(1, errors.malformedLines());
+		assertEquals(1, errors.samples().size());
+		assertEquals("2025-01-01.txt", errors.samples().get(0).file());
+		assertEquals(GOOD_LINE.length(), errors.samples().get(0).offset());
+		assertEquals("garbage", errors.samples().get(0).line());
+	}
+
+	@Test
+	void keepsOnlyTheFirstSamples() {
+		ParseReport report = new ParseReport(new ErrorBudget(true, 100));
+
+		parse("bad\n".repeat(IngestionErrors.SAMPLE_LIMIT + 5), report);
+
+		assertEquals(IngestionErrors.SAMPLE_LIMIT + 5, report.errors().malformedLines());
+		assertEquals(IngestionErrors.SAMPLE_LIMIT, report.errors().samples().size());
+		IngestionErrors merged = report.errors().plus(report.errors());
+		assertEquals(2 * (IngestionErrors.SAMPLE_LIMIT + 5), merged.malformedLines());
+		assertEquals(IngestionErrors.SAMPLE_LIMIT, merged.samples().size());
+	}
+
+	@Test
+	void failPolicyThrowsOnTheFirstMalformedLine() {
+		ParseReport report = new ParseReport(new ErrorBudget(false, 100));
+
+		MalformedDataException e = assertThrows(MalformedDataException.class,
+				() -> parse(GOOD_LINE + "garbage\n" + GOOD_LINE, report));
+		assertTrue(e.getMessage().contains("2025-01-01.txt"));
+	}
+
+	@Test
+	void abortsOnceTheCapIsExceededAcrossChunks() {
+		ErrorBudget budget = new ErrorBudget(true, 3);
+
+		parse("bad\nbad\n", new ParseReport(budget));
+		budget.checkNotExhausted();
+		assertThrows(MalformedDataException.class, () -> parse("bad\nbad\n", new ParseReport(budget)));
+		assertThrows(MalformedDataException.class, budget::checkNotExhausted);
+	}
+
+	private static DaySegment parse(String text, ParseReport report) {
+		return FileProcessor.parseDaySegment(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)), FILE, 0, report);
+	}
+}
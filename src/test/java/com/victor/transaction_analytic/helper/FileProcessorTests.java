@@ -0,0 +1,73 @@
+package com.victor.transaction_analytic.helper;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileProcessorTests {
+
+	private static final String TEXT = """
+			9,2025-01-01T12:40:45,[857749:6|804084:5|505009:2],5676.010
+			garbage
+			2,2025-01-01T16:37,[432879:1],4601.38
+			7,2025-01-01T09:17:54,[865779:1|10792:9|471499:8|722628:3|263611:5|408499:8|870059:3],39642.009
+			1,2025-01-01T00:00:01,[1:1],0.5""";
+
+	@TempDir
+	Path folder;
+
+	@Test
+	void streamingThroughATinyBufferMatchesParsingInMemory() throws IOException {
+		Path file = Files.writeString(folder.resolve("2025-01-01.txt"), TEXT);
+		List<String> inMemory = new ArrayList<>();
+		ParseReport inMemoryReport = new ParseReport();
+		FileProcessor.parseLines(ByteBuffer.wrap(TEXT.getBytes(StandardCharsets.UTF_8)), file, 0, inMemoryReport,
+				row -> inMemory.add(describe(row)));
+
+		for (int bufferSize : new int[]{1, 7, 64, 4096}) {
+			List<String> streamed = new ArrayList<>();
+			ParseReport report = new ParseReport();
+			FileProcessor.streamLines(new FileChunk(file, 0, Files.size(file)), bufferSize, report,
+					row -> streamed.add(describe(row)));
+
+			assertEquals(inMemory, streamed, "buffer of " + bufferSize);
+			assertEquals(5, report.lines());
+			assertEquals(1, report.malformedLines());
+			assertEquals(inMemoryReport.errors(), report.errors());
+		}
+		assertEquals(4, inMemory.size());
+	}
+
+	@Test
+	void streamsOnlyTheChunk() throws IOException {
+		Path file = Files.writeString(folder.resolve("2025-01-01.txt"), TEXT);
+		List<FileChunk> chunks = FileProcessor.splitAtLineBoundaries(file, 60);
+		assertTrue(chunks.size() > 1);
+
+		List<Long> staffIds = new ArrayList<>();
+		ParseReport report = new ParseReport();
+		for (FileChunk chunk : chunks) {
+			FileProcessor.streamLines(chunk, 16, report, row -> staffIds.add(row.staffId()));
+		}
+
+		assertEquals(List.of(9L, 2L, 7L, 1L), staffIds);
+		assertEquals(TEXT.indexOf("garbage"), report.errors().samples().get(0).offset());
+	}
+
+	private static String describe(TransactionLineParser row) {
+		StringBuilder items = new StringBuilder();
+		for (int i = 0; i < row.itemCount(); i++) {
+			items.append(row.productId(i)).append(':').append(row.quantity(i)).append(' ');
+		}
+		return row.staffId() + " " + row.epochDay() + " " + row.secondOfDay() + " " + items + row.amount();
+	}
+}
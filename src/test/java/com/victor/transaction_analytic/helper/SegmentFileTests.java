@@ -0,0 +1,108 @@
+package com.victor.transaction_analytic.helper;
+
+import com.victor.transaction_analytic.model.DaySegment;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentFileTests {
+
+	private static final String TEXT = """
+			9,2025-01-01T12:40:45,[857749:6|804084:5|505009:2],5676.010
+			garbage
+			2,2025-01-01T16:37,[432879:1],4601.38
+			7,2025-01-01T09:17:54,[865779:1|10792:9|471499:8|722628:3|263611:5|408499:8|870059:3],39642.009
+			1,2025-01-01T00:00:01,[1:1],0.5
+			""";
+
+	@TempDir
+	Path folder;
+
+	@Test
+	void readsBackWhatItWrote() throws IOException {
+		DaySegment written = FileProcessor.readDaySegment(Files.writeString(folder.resolve("2025-01-01.txt"), TEXT));
+		Path file = folder.resolve("2025-01-01.seg");
+
+		SegmentFile.write(written, 1, file);
+		DaySegment read = SegmentFile.read(file);
+
+		assertEquals(4, read.getRowCount());
+		assertEquals(written.getItemCount(), read.getItemCount());
+		assertArrayEquals(written.getStaffIds(), read.getStaffIds());
+		assertArrayEquals(written.getEpochDays(), read.getEpochDays());
+		assertArrayEquals(written.getSecondsOfDay(), read.getSecondsOfDay());
+		assertArrayEquals(written.getAmounts(), read.getAmounts());
+		assertArrayEquals(written.getItemOffsets(), read.getItemOffsets());
+		assertArrayEquals(written.getProductIds(), read.getProductIds());
+		assertArrayEquals(written.getQuantities(), read.getQuantities());
+		assertFalse(Files.exists(folder.resolve("2025-01-01.seg.tmp")));
+	}
+
+	@Test
+	void keepsItsStatisticsAndMalformedLinesInTheFooter() throws IOException {
+		DaySegment segment = FileProcessor.readDaySegment(Files.writeString(folder.resolve("2025-01-01.txt"), TEXT));
+		Path file = folder.resolve("2025-01-01.seg");
+		SegmentFile.write(segment, 1, file);
+
+		SegmentFile.Footer footer = SegmentFile.readFooter(file);
+
+		assertEquals(SegmentFile.computeFooter(segment, 1), footer);
+		assertEquals(4, footer.rowCount());
+		assertEquals(500, footer.minAmount());
+		assertEquals(39_642_009, footer.maxAmount());
+		assertEquals(1, footer.errors().malformedLines());
+	}
+
+	@Test
+	void rejectsCorruptAndTruncatedFiles() throws IOException {
+		DaySegment segment = FileProcessor.readDaySegment(Files.writeString(folder.resolve("2025-01-01.txt"), TEXT));
+		Path file = folder.resolve("2025-01-01.seg");
+		SegmentFile.write(segment, 0, file);
+		byte[] bytes = Files.readAllBytes(file);
+
+		byte[] badFooter = bytes.clone();
+		badFooter[badFooter.length - 1] ^= 1;
+		Files.write(file, badFooter);
+		assertThrows(IOException.class, () -> SegmentFile.readFooter(file));
+
+		byte[] oldVersion = bytes.clone();
+		oldVersion[4] = 1;
+		Files.write(file, oldVersion);
+		assertThrows(IOException.class, () -> SegmentFile.readFooter(file));
+		assertThrows(IOException.class, () -> SegmentFile.read(file));
+
+		byte[] truncated = new byte[bytes.length - 60];
+		System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+		Files.write(file, truncated);
+		assertThrows(IOException.class, () -> SegmentFile.read(file));
+	}
+
+	@Test
+	void converterCountsMalformedLinesAndSkipsSegmentsInProgress() throws IOException {
+		Path source = Files.createDirectory(folder.resolve("text"));
+		Files.writeString(source.resolve("2025-01-01.txt"), TEXT);
+		Files.writeString(source.resolve("2025-01-02.seg.tmp"), "half written");
+		Path target = folder.resolve("segments");
+
+		assertEquals(1, SegmentConverter.convertFolder(source, target));
+		assertEquals(1, SegmentFile.readFooter(target.resolve("2025-01-01.seg")).malformedLines());
+		assertFalse(SegmentFile.isTemporary(target.resolve("2025-01-01.seg")));
+		assertTrue(SegmentFile.isTemporary(source.resolve("2025-01-02.seg.tmp")));
+	}
+
+	@Test
+	void converterRejectsTheSourceFolderAsTarget() throws IOException {
+		Path source = Files.createDirectory(folder.resolve("text"));
+		Files.writeString(source.resolve("2025-01-01.txt"), TEXT);
+
+		assertThrows(IllegalArgumentException.class,
+				() -> SegmentConverter.convertFolder(source, folder.resolve("text/../text")));
+		assertFalse(Files.exists(source.resolve("2025-01-01.seg")));
+	}
+
+}
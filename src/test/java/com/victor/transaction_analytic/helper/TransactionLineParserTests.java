@@ -0,0 +1,62 @@
+package com.victor.transaction_analytic.helper;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionLineParserTests {
+
+	private final TransactionLineParser parser = new TransactionLineParser();
+
+	@Test
+	void parsesEveryField() {
+		assertTrue(parse("9,2025-01-01T12:40:45,[857749:6|804084:5|505009:2],5676.010"));
+
+		assertEquals(9, parser.staffId());
+		assertEquals(2025, parser.year());
+		assertEquals(1, parser.month());
+		assertEquals(1, parser.dayOfMonth());
+		assertEquals(LocalDate.of(2025, 1, 1).toEpochDay(), parser.epochDay());
+		assertEquals(12 * 3600 + 40 * 60 + 45, parser.secondOfDay());
+		assertEquals(3, parser.itemCount());
+		assertEquals(804084, parser.productId(1));
+		assertEquals(5, parser.quantity(1));
+		assertEquals(5676010, parser.amount());
+	}
+
+	@Test
+	void acceptsTimestampsWithoutSecondsAndShortFractions() {
+		assertTrue(parse("2,2025-07-01T16:37,[432879:1],4601.38\r"));
+
+		assertEquals(16 * 3600 + 37 * 60, parser.secondOfDay());
+		assertEquals(LocalDate.of(2025, 7, 1).toEpochDay(), parser.epochDay());
+		assertEquals(4601380, parser.amount());
+	}
+
+	@Test
+	void reportsMalformedLinesInsteadOfThrowing() {
+		assertFalse(parse("x,2025-01-01T12:40:45,[1:1],1.0"));
+		assertEquals("staff id is not a number", parser.error());
+
+		assertFalse(parse("1,2025-02-29T12:40:45,[1:1],1.0"));
+		assertEquals("timestamp is out of range", parser.error());
+
+		assertFalse(parse("1,2025-01-01T12:40:45,[1:1|2],1.0"));
+		assertEquals("missing ':' in item", parser.error());
+
+		assertFalse(parse("1,2025-01-01T12:40:45,[1:1],1.0001"));
+		assertEquals("sale amount has more than 3 decimal places", parser.error());
+
+		assertFalse(parse("1,2025-01-01T12:40:45,[1:1],"));
+		assertEquals("sale amount is not a number", parser.error());
+
+		assertFalse(parse(""));
+	}
+
+	private boolean parse(String line) {
+		return parser.parse(line.getBytes(StandardCharsets.UTF_8));
+	}
+}
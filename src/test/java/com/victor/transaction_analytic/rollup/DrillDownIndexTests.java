@@ -0,0 +1,58 @@
+package com.victor.transaction_analytic.rollup;
+
+import com.victor.transaction_analytic.aggregation.DayAggregate;
+import com.victor.transaction_analytic.aggregation.IngestionErrors;
+import com.victor.transaction_analytic.aggregation.MonthStaffSales;
+import com.victor.transaction_analytic.aggregation.ProductVolumes;
+import com.victor.transaction_analytic.helper.DateRange;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DrillDownIndexTests {
+
+	private static final int JANUARY_2025 = 2025 * 12;
+
+	private final DrillDownIndex index = DrillDownIndex.of(Map.of(
+			Path.of("2025-01-30.txt"), day(11, 4, 8, 7_000),
+			Path.of("2025-01-31.txt"), day(12, 9, 8, 2_000),
+			Path.of("2025-02-01.txt"), day(11, 1, 9, 9_500),
+			Path.of("2025-02-01.bin"), day(11, 2, 8, 500),
+			Path.of("extra.txt"), day(11, 5, 8, 100)));
+
+	@Test
+	void listsTheDaysOfOneKeyInDayOrder() {
+		assertEquals(Map.of("2025-01-30", 4L, "2025-02-01", 3L, "extra.txt", 5L),
+				index.productQuantities(11, DateRange.ALL));
+		assertEquals(Map.of("2025-01-30", 7_000L, "2025-01-31", 2_000L, "2025-02-01", 500L, "extra.txt", 100L),
+				index.staffSales(8, DateRange.ALL));
+		assertEquals("2025-01-30", index.staffSales(8, DateRange.ALL).firstKey());
+		assertEquals(4, index.dayCount());
+	}
+
+	@Test
+	void restrictsToTheRangeAndSkipsUndatedDays() {
+		assertEquals(Map.of("2025-02-01", 3L),
+				index.productQuantities(11, DateRange.of(null, null, YearMonth.of(2025, 2))));
+		assertEquals(Map.of("2025-01-31", 2_000L),
+				index.staffSales(8, new DateRange(LocalDate.of(2025, 1, 31), LocalDate.of(2025, 1, 31))));
+		assertEquals(Map.of("2025-01-30", 7_000L, "2025-01-31", 2_000L),
+				index.staffSales(8, new DateRange(null, LocalDate.of(2025, 1, 31))));
+		assertTrue(index.productQuantities(11, new DateRange(LocalDate.of(2025, 3, 1), null)).isEmpty());
+		assertTrue(index.productQuantities(404, DateRange.ALL).isEmpty());
+	}
+
+	private static DayAggregate day(long productId, long quantity, long staffId, long sales) {
+		ProductVolumes products = new ProductVolumes();
+		products.add(productId, quantity);
+		MonthStaffSales monthStaffSales = new MonthStaffSales();
+		monthStaffSales.add(JANUARY_2025, staffId, sales);
+		return new DayAggregate(null, 0, 0, products.compact(), monthStaffSales, new long[DayAggregate.HOURS_PER_DAY],
+				new long[DayAggregate.HOURS_PER_DAY], null, null, null, IngestionErrors.NONE);
+	}
+}
@@ -0,0 +1,146 @@
+package com.victor.transaction_analytic.rollup;
+
+import com.victor.transaction_analytic.aggregation.AnalyticMetric;
+import com.victor.transaction_analytic.aggregation.DayAggregate;
+import com.victor.transaction_analytic.aggregation.IngestionErrors;
+import com.victor.transaction_analytic.aggregation.MonthStaffSales;
+import com.victor.transaction_analytic.aggregation.ProductVolumes;
+import com.victor.transaction_analytic.aggregation.TransactionAggregator;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FolderRollupTests {
+
+	private static final int JANUARY_2025 = 2025 * 12;
+
+	@Test
+	void answersLikeMergingEveryDay() {
+		Map<Path, DayAggregate> days = Map.of(
+				Path.of("2025-01-01.txt"), day(5_000, 900, 11, 4, 8, 7_000),
+				Path.of("2025-01-02.txt"), day(7_000, 800, 12, 9, 8, 2_000),
+				Path.of("2025-01-03.txt"), day(6_000, 950, 11, 1, 3, 9_500));
+
+		assertSameAnswers(merged(days.values().stream().toList()), FolderRollup.of(days).aggregator(AnalyticMetric.exact()));
+	}
+
+	@Test
+	void addsNewDaysAndSubtractsReplacedOrRemovedOnes() {
+		Path first = Path.of("2025-01-01.txt");
+		Path second = Path.of("2025-01-02.txt");
+		Path third = Path.of("2025-01-03.txt");
+		DayAggregate firstDay = day(5_000, 900, 11, 4, 8, 7_000);
+		DayAggregate secondDay = day(7_000, 800, 12, 9, 8, 2_000);
+		DayAggregate replacedSecondDay = day(1_000, 100, 13, 2, 3, 1_000);
+		DayAggregate thirdDay = day(6_000, 950, 11, 1, 3, 9_500);
+
+		FolderRollup rollup = FolderRollup.of(Map.of(first, firstDay))
+				.update(Map.of(second, secondDay, third, thirdDay), Set.of());
+		assertSameAnswers(merged(List.of(firstDay, secondDay, thirdDay)), rollup.aggregator(AnalyticMetric.exact()));
+
+		rollup = rollup.update(Map.of(second, replacedSecondDay), Set.of(third));
+		assertEquals(Set.of(first, second), rollup.days().keySet());
+		assertSameAnswers(merged(List.of(firstDay, replacedSecondDay)), rollup.aggregator(AnalyticMetric.exact()));
+	}
+
+	@Test
+	void replacesADayInPlaceLikeAFreshScan() {
+		Path first = Path.of("2025-01-01.txt");
+		Path second = Path.of("2025-01-02.txt");
+		DayAggregate firstDay = day(5_000, 900, 11, 4, 8, 7_000);
+		DayAggregate secondDay = day(7_000, 800, 11, 9, 8, 2_000);
+		// Same keys, lower figures: the totals are adjusted and the maxima recomputed
+		DayAggregate replacedSecondDay = day(1_000, 100, 11, 2, 8, 1_000);
+
+		FolderRollup rollup = FolderRollup.of(Map.of(first, firstDay, second, secondDay))
+				.update(Map.of(second, replacedSecondDay), Set.of());
+
+		assertSameAnswers(FolderRollup.of(Map.of(first, firstDay, second, replacedSecondDay))
+				.aggregator(AnalyticMetric.exact()), rollup.aggregator(AnalyticMetric.exact()));
+		assertSameAnswers(merged(List.of(firstDay)), rollup.update(Map.of(), Set.of(second))
+				.aggregator(AnalyticMetric.exact()));
+	}
+
+	@Test
+	void dropsTotalsTakenBackToZeroAndLeavesThePreviousRollupIntact() {
+		Path first = Path.of("2025-01-01.txt");
+		Path second = Path.of("2025-01-02.txt");
+		DayAggregate firstDay = day(5_000, 900, 11, 4, 8, 7_000);
+		// Its product, staff member and month appear on no other day
+		DayAggregate secondDay = day(7_000, 800, 12, 9, 9, 2_000, JANUARY_2025 + 1);
+		FolderRollup both = FolderRollup.of(Map.of(first, firstDay, second, secondDay));
+
+		FolderRollup updated = both.update(Map.of(), Set.of(second));
+
+		assertSameAnswers(merged(List.of(firstDay)), updated.aggregator(AnalyticMetric.exact()));
+		assertEquals(List.of(Map.entry(11L, 4L)), updated.aggregator(AnalyticMetric.exact()).topProducts(10));
+		assertSameAnswers(merged(List.of(firstDay, secondDay)), both.aggregator(AnalyticMetric.exact()));
+	}
+
+	@Test
+	void subtractsTheErrorsOfDroppedDays() {
+		Path first = Path.of("2025-01-01.txt");
+		Path second = Path.of("2025-01-02.txt");
+		Path third = Path.of("2025-01-03.txt");
+		DayAggregate firstDay = day(5_000, 900, 11, 4, 8, 7_000);
+		DayAggregate secondDay = withErrors(day(7_000, 800, 12, 9, 8, 2_000),
+				IngestionErrors.unreadableFile("2025-01-02.txt", "truncated"));
+		DayAggregate thirdDay = withErrors(day(6_000, 950, 11, 1, 3, 9_500),
+				new IngestionErrors(3, 0, List.of(new IngestionErrors.Sample("2025-01-03.txt", 0L, "bad", "x"))));
+		FolderRollup rollup = FolderRollup.of(Map.of(first, firstDay, second, secondDay, third, thirdDay));
+
+		FolderRollup withoutSecond = rollup.update(Map.of(), Set.of(second));
+		assertEquals(merged(List.of(firstDay, thirdDay)).errors(),
+				withoutSecond.aggregator(AnalyticMetric.exact()).errors());
+
+		FolderRollup clean = withoutSecond.update(Map.of(third, day(6_000, 950, 11, 1, 3, 9_500)), Set.of());
+		assertEquals(IngestionErrors.NONE, clean.aggregator(AnalyticMetric.exact()).errors());
+	}
+
+	@Test
+	void rejectsApproximateMetrics() {
+		assertThrows(IllegalArgumentException.class,
+				() -> FolderRollup.empty().aggregator(Set.of(AnalyticMetric.APPROXIMATE_PRODUCT_VOLUME)));
+	}
+
+	private static TransactionAggregator merged(List<DayAggregate> days) {
+		TransactionAggregator aggregator = new TransactionAggregator(AnalyticMetric.exact());
+		days.forEach(aggregator::merge);
+		return aggregator;
+	}
+
+	private static void assertSameAnswers(TransactionAggregator expected, TransactionAggregator actual) {
+		assertEquals(expected.toResponseDto(), actual.toResponseDto());
+		assertEquals(expected.topProducts(10), actual.topProducts(10));
+		assertEquals(expected.topStaffByMonth(10), actual.topStaffByMonth(10));
+		assertEquals(expected.topHoursByAverageVolume(24), actual.topHoursByAverageVolume(24));
+	}
+
+	private static DayAggregate day(long totalVolume, long maxValue, long productId, long quantity, long staffId, long sales) {
+		return day(totalVolume, maxValue, productId, quantity, staffId, sales, JANUARY_2025);
+	}
+
+	private static DayAggregate day(long totalVolume, long maxValue, long productId, long quantity, long staffId,
+									long sales, int epochMonth) {
+		ProductVolumes products = new ProductVolumes();
+		products.add(productId, quantity);
+		MonthStaffSales monthStaffSales = new MonthStaffSales();
+		monthStaffSales.add(epochMonth, staffId, sales);
+		long[] hourTotals = new long[DayAggregate.HOURS_PER_DAY];
+		long[] hourCounts = new long[DayAggregate.HOURS_PER_DAY];
+		hourTotals[(int) (staffId % DayAggregate.HOURS_PER_DAY)] = totalVolume;
+		hourCounts[(int) (staffId % DayAggregate.HOURS_PER_DAY)] = 2;
+		return new DayAggregate(null, totalVolume, maxValue, products.compact(), monthStaffSales, hourTotals, hourCounts,
+				null, null, null, IngestionErrors.NONE);
+	}
+
+	private static DayAggregate withErrors(DayAggregate day, IngestionErrors errors) {
+		return new DayAggregate(null, day.totalVolume(), day.maxValue(), day.productVolumes(), day.monthStaffSales(),
+				day.hourTotals(), day.hourCounts(), null, null, null, errors);
+	}
+}
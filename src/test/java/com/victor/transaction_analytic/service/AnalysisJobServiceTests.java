@@ -0,0 +1,134 @@
+package com.victor.transaction_analytic.service;
+
+import com.victor.transaction_analytic.config.AnalyticProperties;
+import com.victor.transaction_analytic.dto.AnalysisJobDto;
+import com.victor.transaction_analytic.dto.AnalysisJobDto.Status;
+import com.victor.transaction_analytic.dto.TransactionAnalyticResponseDto;
+import com.victor.transaction_analytic.helper.DateRange;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnalysisJobServiceTests {
+
+	private final CountDownLatch release = new CountDownLatch(1);
+	private final AtomicInteger scans = new AtomicInteger();
+	private AnalysisJobService jobService;
+
+	@AfterEach
+	void shutdown() {
+		release.countDown();
+		jobService.shutdown();
+	}
+
+	@Test
+	void identicalSubmissionsShareOneScan() throws Exception {
+		jobService = jobService(1, 4, Duration.ofMinutes(10));
+
+		AnalysisJobDto first = jobService.submit("/data/store", DateRange.ALL);
+		AnalysisJobDto second = jobService.submit("/data/../data/store", DateRange.ALL);
+		AnalysisJobDto otherRange = jobService.submit("/data/store",
+				new DateRange(LocalDate.of(2025, 1, 1), null));
+
+		assertEquals(first.id(), second.id());
+		assertEquals(2, second.requests());
+		assertNotEquals(first.id(), otherRange.id());
+		release.countDown();
+		assertEquals(Status.SUCCEEDED, awaitFinished(first.id()).status());
+		awaitFinished(otherRange.id());
+		assertEquals(2, scans.get());
+	}
+
+	@Test
+	void rejectsBeyondTheQueueWithoutRetainingTheJob() {
+		jobService = jobService(1, 1, Duration.ofMinutes(10));
+		jobService.submit("/data/a", DateRange.ALL);
+		jobService.submit("/data/b", DateRange.ALL);
+
+		assertThrows(RejectedExecutionException.class, () -> jobService.submit("/data/c", DateRange.ALL));
+		assertEquals(2, jobService.retainedJobCount());
+	}
+
+	@Test
+	void everyIdHandedOutCanBeFetchedEvenWhenItsJobIsRejected() throws Exception {
+		jobService = jobService(1, 1, Duration.ofMinutes(10));
+		jobService.submit("/data/a", DateRange.ALL);
+		jobService.submit("/data/b", DateRange.ALL);
+
+		ExecutorService submitters = Executors.newFixedThreadPool(8);
+		try {
+			for (int round = 0; round < 50; round++) {
+				String folderPath = "/data/full-" + round;
+				List<Future<AnalysisJobDto>> submissions = new ArrayList<>();
+				for (int i = 0; i < 8; i++) {
+					submissions.add(submitters.submit(() -> jobService.submit(folderPath, DateRange.ALL)));
+				}
+				List<String> joinedIds = new ArrayList<>();
+				for (Future<AnalysisJobDto> submission : submissions) {
+					try {
+						joinedIds.add(submission.get(10, TimeUnit.SECONDS).id());
+					} catch (ExecutionException e) {
+						assertInstanceOf(RejectedExecutionException.class, e.getCause());
+					}
+				}
+				for (String id : joinedIds) {
+					assertEquals(Status.FAILED, jobService.status(id).orElseThrow().status());
+				}
+			}
+		} finally {
+			submitters.shutdownNow();
+		}
+	}
+
+	@Test
+	void purgesFinishedJobsAfterTheirTtl() throws Exception {
+		jobService = jobService(1, 1, Duration.ofMillis(1));
+		release.countDown();
+		AnalysisJobDto job = jobService.submit("/data/store", DateRange.ALL);
+		Thread.sleep(200);
+
+		assertTrue(jobService.status(job.id()).isEmpty());
+		assertEquals(0, jobService.retainedJobCount());
+	}
+
+	private AnalysisJobService jobService(int workers, int queueCapacity, Duration resultTtl) {
+		AnalyticProperties properties = new AnalyticProperties();
+		properties.getJobs().setWorkers(workers);
+		properties.getJobs().setQueueCapacity(queueCapacity);
+		properties.getJobs().setResultTtl(resultTtl);
+		FolderTransactionAnalyticService blockingScans =
+				new FolderTransactionAnalyticService(null, null, null, null, null, null) {
+					@Override
+					public TransactionAnalyticResponseDto analyzeTransactions(String folderPath, DateRange range,
+																			  ProgressListener listener) {
+						scans.incrementAndGet();
+						try {
+							release.await(10, TimeUnit.SECONDS);
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+						}
+						return null;
+					}
+				};
+		return new AnalysisJobService(blockingScans, properties);
+	}
+
+	private AnalysisJobDto awaitFinished(String id) throws InterruptedException {
+		for (int i = 0; i < 500; i++) {
+			AnalysisJobDto job = jobService.status(id).orElseThrow();
+			if (job.finishedAt() != null) {
+				return job;
+			}
+			Thread.sleep(10);
+		}
+		throw new AssertionError("Job " + id + " did not finish");
+	}
+}
@@ -0,0 +1,324 @@
+package com.victor.transaction_analytic.service;
+
+import com.victor.transaction_analytic.cache.DayAggregateCache;
+import com.victor.transaction_analytic.config.AnalyticProperties;
+import com.victor.transaction_analytic.dto.AnalysisProgressDto;
+import com.victor.transaction_analytic.dto.RankedEntryDto;
+import com.victor.transaction_analytic.dto.TransactionAnalyticResponseDto;
+import com.victor.transaction_analytic.exception.InvalidRequestException;
+import com.victor.transaction_analytic.helper.Amounts;
+import com.victor.transaction_analytic.helper.DateRange;
+import com.victor.transaction_analytic.helper.FileProcessor;
+import com.victor.transaction_analytic.helper.SegmentConverter;
+import com.victor.transaction_analytic.metrics.PipelineMetrics;
+import com.victor.transaction_analytic.model.Transaction;
+import com.victor.transaction_analytic.rollup.DrillDownIndexStore;
+import com.victor.transaction_analytic.rollup.RollupStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FolderTransactionAnalyticServiceTests {
+
+	@TempDir
+	Path folder;
+
+	private final AnalyticProperties properties = new AnalyticProperties();
+	private final DayAggregateCache cache = new DayAggregateCache(properties);
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final FolderTransactionAnalyticService service = service(properties, cache, Runnable::run, registry);
+
+	@Test
+	void fusedSinglePassMatchesThePerMetricReference() throws Exception {
+		writeDays(folder, 40, new Random(1));
+		properties.getCache().setEnabled(false);
+
+		TransactionAnalyticResponseDto result = service.analyzeTransactions(folder.toString(), DateRange.ALL);
+
+		assertEquals(reference(folder), result);
+		// Every file was opened once for all five metrics
+		assertEquals(40, registry.get("transaction.analytic.files.opened").counter().count());
+	}
+
+	@Test
+	void readsWholeBoundaryDaysAndFiltersUndatedFilesByRow() throws Exception {
+		Files.writeString(folder.resolve("2025-01-31.txt"), "1,2025-01-31T23:59:59,[5:1],40.000\n");
+		Files.writeString(folder.resolve("2025-02-01.txt"), "1,2025-02-01T00:00:00,[5:1],50.000\n");
+		Files.writeString(folder.resolve("archive.txt"),
+				"1,2025-01-15T10:00:00,[6:1],10.000\n1,2025-02-15T10:00:00,[6:1],90.000\n");
+
+		DateRange january = DateRange.of(null, null, YearMonth.of(2025, 1));
+		assertEquals(new BigDecimal("40.000"), service.analyzeTransactions(folder.toString(), january)
+				.highestSalesVolumeInADay());
+		assertEquals(new BigDecimal("10.000"), service.highestSaleValueInADay(folder.toString(), false, List.of(),
+				DateRange.of(LocalDate.of(2025, 1, 15), LocalDate.of(2025, 1, 15), null)));
+		DateRange february = DateRange.of(LocalDate.of(2025, 2, 1), LocalDate.of(2025, 2, 28), null);
+		assertEquals(new BigDecimal("90.000"), service.analyzeTransactions(folder.toString(), february)
+				.highestSalesVolumeInADay());
+	}
+
+	@Test
+	void answersARangeWithoutFilesWithTheEmptyResult() throws Exception {
+		Files.writeString(folder.resolve("2025-01-01.txt"), "1,2025-01-01T10:00:00,[5:2],10.000\n");
+		DateRange march = DateRange.of(null, null, YearMonth.of(2025, 3));
+
+		TransactionAnalyticResponseDto result = service.analyzeTransactions(folder.toString(), march);
+
+		assertEquals(0, service.highestSalesVolumeInADay(folder.toString(), false, List.of(), march)
+				.compareTo(result.highestSalesVolumeInADay()));
+		assertNull(result.mostSoldProductByVolume());
+		assertTrue(result.highestSalesStaffByMonth().isEmpty());
+		assertTrue(service.partial(folder.toString(), march).isEmpty());
+	}
+
+	@Test
+	void stillRejectsAFolderWithoutFiles() {
+		assertThrows(FileNotFoundException.class, () -> service.analyzeTransactions(folder.toString(), DateRange.ALL));
+	}
+
+	@Test
+	void rejectsABucketWidthTheDaysCannotFold() {
+		assertThrows(InvalidRequestException.class,
+				() -> service.intradayProfile(folder.toString(), 7, DateRange.ALL));
+	}
+
+	@Test
+	void answersApproximatelyWithoutFillingTheCacheAndExactlyOnceItIsWarm() throws Exception {
+		Files.writeString(folder.resolve("2025-01-01.txt"), "1,2025-01-01T10:00:00,[5:2|6:1],10.000\n");
+		Files.writeString(folder.resolve("2025-01-02.txt"), "1,2025-01-02T10:00:00,[6:4],10.000\n");
+
+		List<RankedEntryDto> cold = service.topProductsByVolume(folder.toString(), 2, true, DateRange.ALL);
+		assertEquals(0, cache.size());
+		assertEquals("6", cold.get(0).key());
+		assertTrue(cold.get(0).value().compareTo(BigDecimal.valueOf(5)) >= 0);
+		assertTrue(cold.get(0).value().compareTo(BigDecimal.valueOf(5).add(cold.get(0).errorBound())) <= 0);
+
+		List<RankedEntryDto> exact = service.topProductsByVolume(folder.toString(), 2, false, DateRange.ALL);
+		assertEquals(2, cache.size());
+		assertNull(exact.get(0).errorBound());
+
+		List<RankedEntryDto> warm = service.topProductsByVolume(folder.toString(), 2, true, DateRange.ALL);
+		assertEquals(List.of(new RankedEntryDto(1, "6", BigDecimal.valueOf(5), BigDecimal.ZERO),
+				new RankedEntryDto(2, "5", BigDecimal.valueOf(2), BigDecimal.ZERO)), warm);
+	}
+
+	@Test
+	void answersFromSegmentsAsFromTheirText() throws Exception {
+		Path text = Files.createDirectory(folder.resolve("text"));
+		Files.writeString(text.resolve("2025-01-01.txt"),
+				"1,2025-01-01T10:00:00,[5:2|6:1],10.000\ngarbage\n2,2025-01-01T11:30:00,[6:4],12.500\n");
+		Files.writeString(text.resolve("2025-01-02.txt"), "1,2025-01-02T09:00:00,[7:9],30.000\n");
+		Files.writeString(text.resolve("2025-02-01.txt"), "3,2025-02-01T18:00:00,[5:1],5.000\n");
+		Path segments = folder.resolve("segments");
+		SegmentConverter.convertFolder(text, segments);
+		Files.writeString(segments.resolve("2025-01-03.seg.tmp"), "half written");
+
+		for (DateRange range : List.of(DateRange.ALL, DateRange.of(null, null, YearMonth.of(2025, 1)))) {
+			TransactionAnalyticResponseDto fromText = service.analyzeTransactions(text.toString(), range);
+			TransactionAnalyticResponseDto fromSegments = service.analyzeTransactions(segments.toString(), range);
+			assertEquals(fromText.highestSalesVolumeInADay(), fromSegments.highestSalesVolumeInADay());
+			assertEquals(fromText.highestSalesValueInADay(), fromSegments.highestSalesValueInADay());
+			assertEquals(fromText.mostSoldProductByVolume(), fromSegments.mostSoldProductByVolume());
+			assertEquals(fromText.highestSalesStaffByMonth(), fromSegments.highestSalesStaffByMonth());
+			assertEquals(fromText.highestHourByAverageTransactionVolume(),
+					fromSegments.highestHourByAverageTransactionVolume());
+			assertEquals(1, fromSegments.errors().malformedLines());
+		}
+		assertEquals(service.highestSalesVolumeInADay(text.toString(), false, List.of(), DateRange.ALL),
+				service.highestSalesVolumeInADay(segments.toString(), false, List.of(), DateRange.ALL));
+	}
+
+	@Test
+	void parallelExecutorMatchesSequentialAndServesConcurrentRequests() throws Exception {
+		writeDays(folder, 40, new Random(2));
+		properties.getCache().setEnabled(false);
+		TransactionAnalyticResponseDto sequential = service.analyzeTransactions(folder.toString(), DateRange.ALL);
+
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+		ExecutorService clients = Executors.newFixedThreadPool(4);
+		try {
+			FolderTransactionAnalyticService parallel =
+					service(properties, new DayAggregateCache(properties), pool, new SimpleMeterRegistry());
+			assertEquals(sequential, parallel.analyzeTransactions(folder.toString(), DateRange.ALL));
+
+			List<Future<TransactionAnalyticResponseDto>> requests = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				requests.add(clients.submit(() -> parallel.analyzeTransactions(folder.toString(), DateRange.ALL)));
+			}
+			for (Future<TransactionAnalyticResponseDto> request : requests) {
+				assertEquals(sequential, request.get(30, TimeUnit.SECONDS));
+			}
+		} finally {
+			clients.shutdownNow();
+			pool.shutdownNow();
+		}
+	}
+
+	@Test
+	void mmapChunksMatchReadMode() throws Exception {
+		writeDays(folder, 10, new Random(3));
+		properties.getCache().setEnabled(false);
+		TransactionAnalyticResponseDto read = service.analyzeTransactions(folder.toString(), DateRange.ALL);
+
+		properties.getIngestion().setMode(AnalyticProperties.IngestionMode.MMAP);
+		properties.getIngestion().setChunkSize(DataSize.ofKilobytes(1));
+		SimpleMeterRegistry mmapRegistry = new SimpleMeterRegistry();
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+		try {
+			FolderTransactionAnalyticService mmap =
+					service(properties, new DayAggregateCache(properties), pool, mmapRegistry);
+			assertEquals(read, mmap.analyzeTransactions(folder.toString(), DateRange.ALL));
+		} finally {
+			pool.shutdownNow();
+		}
+		// Files of about 12 KB were each cut into several chunks
+		assertTrue(mmapRegistry.get("transaction.analytic.files.opened").counter().count() > 50);
+	}
+
+	@Test
+	void rereadsADayWhoseFileChanged() throws Exception {
+		writeDays(folder, 3, new Random(4));
+		TransactionAnalyticResponseDto before = service.analyzeTransactions(folder.toString(), DateRange.ALL);
+		assertEquals(before, service.analyzeTransactions(folder.toString(), DateRange.ALL));
+		assertEquals(3, registry.get("transaction.analytic.cache.requests").tag("result", "hit").counter().count());
+
+		Path day = folder.resolve("2025-01-02.txt");
+		Files.writeString(day, "1,2025-01-02T10:00:00,[1:1],99999999.000\n", StandardOpenOption.APPEND);
+		TransactionAnalyticResponseDto after = service.analyzeTransactions(folder.toString(), DateRange.ALL);
+
+		assertEquals(new BigDecimal("99999999.000"), after.highestSalesValueInADay());
+		assertEquals(reference(folder), after);
+		assertEquals(4, registry.get("transaction.analytic.cache.requests").tag("result", "miss").counter().count());
+	}
+
+	@Test
+	void streamsProgressForEveryFileInListingOrder() throws Exception {
+		writeDays(folder, 12, new Random(5));
+		List<AnalysisProgressDto> progress = new ArrayList<>();
+
+		TransactionAnalyticResponseDto result =
+				service.analyzeTransactions(folder.toString(), DateRange.ALL, Duration.ZERO, progress::add);
+
+		assertEquals(service.listFiles(folder.toString()).stream().map(file -> file.getFileName().toString()).toList(),
+				progress.stream().map(AnalysisProgressDto::file).toList());
+		for (int i = 0; i < progress.size(); i++) {
+			assertEquals(i + 1, progress.get(i).filesProcessed());
+			assertEquals(12, progress.get(i).totalFiles());
+			assertNotNull(progress.get(i).partial());
+		}
+		assertEquals(result, progress.get(11).partial());
+		assertEquals(service.analyzeTransactions(folder.toString(), DateRange.ALL), result);
+	}
+
+	@Test
+	void stopsReadingFilesWhenTheListenerFails() throws Exception {
+		// More files than the streaming window reaches by the time the second one is reported
+		int window = 2 * Runtime.getRuntime().availableProcessors();
+		writeDays(folder, window + 3, new Random(6));
+		properties.getCache().setEnabled(false);
+		List<AnalysisProgressDto> progress = new ArrayList<>();
+
+		IOException failure = assertThrows(IOException.class,
+				() -> service.analyzeTransactions(folder.toString(), DateRange.ALL, null, file -> {
+					progress.add(file);
+					if (progress.size() == 2) {
+						throw new IOException("client went away");
+					}
+				}));
+
+		assertEquals("client went away", failure.getMessage());
+		assertEquals(2, progress.size());
+		assertNull(progress.get(0).partial());
+		assertTrue(registry.get("transaction.analytic.files.opened").counter().count() < window + 3);
+	}
+
+	/**
+	 * Writes a day file per date from 2025-01-01 of 200 random transactions, 20 staff and
+	 * 300 products, with amounts to the thousandth.
+	 */
+	static void writeDays(Path folder, int days, Random random) throws IOException {
+		for (int d = 0; d < days; d++) {
+			LocalDate date = LocalDate.of(2025, 1, 1).plusDays(d);
+			StringBuilder lines = new StringBuilder();
+			for (int i = 0; i < 200; i++) {
+				StringJoiner items = new StringJoiner("|", "[", "]");
+				for (int item = 1 + random.nextInt(4); item > 0; item--) {
+					items.add((1 + random.nextInt(300)) + ":" + (1 + random.nextInt(9)));
+				}
+				lines.append(1 + random.nextInt(20)).append(',')
+						.append(date.atTime(LocalTime.ofSecondOfDay(random.nextInt(86_400)))).append(',')
+						.append(items).append(',')
+						.append(random.nextInt(10_000)).append('.').append(String.format("%03d", random.nextInt(1000)))
+						.append('\n');
+			}
+			Files.writeString(folder.resolve(date + ".txt"), lines);
+		}
+	}
+
+	/**
+	 * The five metrics computed one after another from the parsed transactions of every
+	 * file, the way the service did before the single pass.
+	 */
+	static TransactionAnalyticResponseDto reference(Path folder) throws IOException {
+		long highestVolume = 0;
+		long highestValue = 0;
+		Map<Long, Long> products = new HashMap<>();
+		Map<YearMonth, Map<Long, Long>> staffByMonth = new HashMap<>();
+		long[] hourTotals = new long[24];
+		long[] hourCounts = new long[24];
+		try (Stream<Path> files = Files.list(folder)) {
+			for (Path file : files.toList()) {
+				long volume = 0;
+				for (Transaction transaction : FileProcessor.readTransactionsFromFile(file.toString())) {
+					volume += transaction.getSaleAmount();
+					highestValue = Math.max(highestValue, transaction.getSaleAmount());
+					for (int i = 0; i < transaction.getItemCount(); i++) {
+						products.merge(transaction.getProductId(i), (long) transaction.getQuantity(i), Long::sum);
+					}
+					staffByMonth.computeIfAbsent(YearMonth.from(transaction.getTransactionTime()), month -> new HashMap<>())
+							.merge(transaction.getTransactionId(), transaction.getSaleAmount(), Long::sum);
+					hourTotals[transaction.getTransactionTime().getHour()] += transaction.getSaleAmount();
+					hourCounts[transaction.getTransactionTime().getHour()]++;
+				}
+				highestVolume = Math.max(highestVolume, volume);
+			}
+		}
+		Map<YearMonth, String> bestStaff = new HashMap<>();
+		staffByMonth.forEach((month, staff) -> bestStaff.put(month,
+				String.valueOf(Collections.max(staff.entrySet(), Map.Entry.comparingByValue()).getKey())));
+		int bestHour = 0;
+		for (int hour = 1; hour < 24; hour++) {
+			if ((double) hourTotals[hour] / hourCounts[hour] > (double) hourTotals[bestHour] / hourCounts[bestHour]) {
+				bestHour = hour;
+			}
+		}
+		return new TransactionAnalyticResponseDto(Amounts.toBigDecimal(highestVolume), Amounts.toBigDecimal(highestValue),
+				String.valueOf(Collections.max(products.entrySet(), Map.Entry.comparingByValue()).getKey()),
+				bestStaff, bestHour, null);
+	}
+
+	static FolderTransactionAnalyticService service(AnalyticProperties properties, DayAggregateCache cache,
+													Executor executor, MeterRegistry registry) {
+		PipelineMetrics pipelineMetrics = new PipelineMetrics(registry);
+		return new FolderTransactionAnalyticService(new SingleFileTransactionAnalyticService(properties, pipelineMetrics),
+				executor, cache, pipelineMetrics, new RollupStore(), new DrillDownIndexStore());
+	}
+}
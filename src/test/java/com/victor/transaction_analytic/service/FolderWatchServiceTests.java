@@ -0,0 +1,114 @@
+package com.victor.transaction_analytic.service;
+
+import com.victor.transaction_analytic.aggregation.DayAggregate;
+import com.victor.transaction_analytic.cache.DayAggregateCache;
+import com.victor.transaction_analytic.config.AnalyticProperties;
+import com.victor.transaction_analytic.dto.TransactionAnalyticResponseDto;
+import com.victor.transaction_analytic.exception.MalformedDataException;
+import com.victor.transaction_analytic.metrics.PipelineMetrics;
+import com.victor.transaction_analytic.rollup.DrillDownIndexStore;
+import com.victor.transaction_analytic.rollup.RollupStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FolderWatchServiceTests {
+
+	@TempDir
+	Path folder;
+
+	private final AnalyticProperties properties = new AnalyticProperties();
+	private final RollupStore rollupStore = new RollupStore();
+	private final AtomicBoolean failScans = new AtomicBoolean();
+	private FolderWatchService watchService;
+
+	@AfterEach
+	void stop() throws IOException {
+		watchService.stop();
+	}
+
+	@Test
+	void foldsNewAndReplacedDaysIntoTheRollup() throws Exception {
+		Files.writeString(folder.resolve("2025-01-01.txt"), "1,2025-01-01T10:00:00,[5:2],10.000\n");
+		watchService = watchService();
+
+		TransactionAnalyticResponseDto initial = watchService.watch(folder.toString());
+		assertEquals(new BigDecimal("10.000"), initial.highestSalesVolumeInADay());
+
+		Files.writeString(folder.resolve("2025-01-02.txt"), "1,2025-01-02T10:00:00,[5:1],30.000\n");
+		awaitVolume("30.000");
+		Files.writeString(folder.resolve("2025-01-02.txt"), "1,2025-01-02T10:00:00,[5:1],20.000\n");
+		awaitVolume("20.000");
+		assertEquals(2, rollupStore.get(folder.toString()).orElseThrow().days().size());
+	}
+
+	@Test
+	void aFailedInitialScanLeavesNothingWatched() throws Exception {
+		watchService = watchService();
+		failScans.set(true);
+
+		assertThrows(UncheckedIOException.class, () -> watchService.watch(folder.toString()));
+		failScans.set(false);
+		Files.writeString(folder.resolve("2025-01-01.txt"), "1,2025-01-01T10:00:00,[5:2],10.000\n");
+		Thread.sleep(500);
+
+		assertTrue(watchService.watchedFolders().isEmpty());
+		assertTrue(watchService.currentAnalysis(folder.toString()).isEmpty());
+		assertTrue(rollupStore.get(folder.toString()).isEmpty());
+	}
+
+	@Test
+	void chargesTheCurrentAnalysisToTheErrorPolicy() throws Exception {
+		Files.writeString(folder.resolve("2025-01-01.txt"), "1,2025-01-01T10:00:00,[5:2],10.000\ngarbage\n");
+		properties.getErrors().setPolicy(AnalyticProperties.ErrorPolicy.FAIL);
+		watchService = watchService();
+
+		watchService.watch(folder.toString());
+
+		assertThrows(MalformedDataException.class, () -> watchService.currentAnalysis(folder.toString()));
+		properties.getErrors().setPolicy(AnalyticProperties.ErrorPolicy.SKIP);
+		assertEquals(1, watchService.currentAnalysis(folder.toString()).orElseThrow().errors().malformedLines());
+		properties.getErrors().setMaxMalformedLines(0);
+		assertThrows(MalformedDataException.class, () -> watchService.currentAnalysis(folder.toString()));
+	}
+
+	private void awaitVolume(String volume) throws InterruptedException {
+		for (int i = 0; i < 300; i++) {
+			TransactionAnalyticResponseDto current = watchService.currentAnalysis(folder.toString()).orElseThrow();
+			if (new BigDecimal(volume).equals(current.highestSalesVolumeInADay())) {
+				return;
+			}
+			Thread.sleep(20);
+		}
+		fail("The rollup never reached a highest daily volume of " + volume);
+	}
+
+	private FolderWatchService watchService() {
+		properties.getCache().setEnabled(false);
+		PipelineMetrics pipelineMetrics = new PipelineMetrics(new SimpleMeterRegistry());
+		FolderTransactionAnalyticService folderService = new FolderTransactionAnalyticService(
+				new SingleFileTransactionAnalyticService(properties, pipelineMetrics), Runnable::run,
+				new DayAggregateCache(properties), pipelineMetrics, rollupStore, new DrillDownIndexStore()) {
+			@Override
+			public Map<Path, DayAggregate> analyzeDays(List<Path> files) {
+				if (failScans.get()) {
+					throw new UncheckedIOException(new IOException("Disk went away"));
+				}
+				return super.analyzeDays(files);
+			}
+		};
+		return new FolderWatchService(folderService, rollupStore);
+	}
+}
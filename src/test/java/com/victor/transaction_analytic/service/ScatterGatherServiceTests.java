@@ -0,0 +1,115 @@
+package com.victor.transaction_analytic.service;
+
+import com.sun.net.httpserver.HttpServer;
+import com.victor.transaction_analytic.cache.DayAggregateCache;
+import com.victor.transaction_analytic.config.AnalyticProperties;
+import com.victor.transaction_analytic.dto.ScatterGatherRequestDto.Shard;
+import com.victor.transaction_analytic.exception.InvalidRequestException;
+import com.victor.transaction_analytic.exception.ShardFailedException;
+import com.victor.transaction_analytic.helper.DateRange;
+import com.victor.transaction_analytic.metrics.PipelineMetrics;
+import com.victor.transaction_analytic.rollup.DrillDownIndexStore;
+import com.victor.transaction_analytic.rollup.RollupStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.web.client.RestClient;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScatterGatherServiceTests {
+
+	@TempDir
+	Path folder;
+
+	private final AnalyticProperties properties = new AnalyticProperties();
+	private final AtomicInteger peerRequests = new AtomicInteger();
+	private HttpServer peer;
+	private ScatterGatherService scatterGatherService;
+
+	@AfterEach
+	void stop() {
+		if (peer != null) {
+			peer.stop(0);
+		}
+		if (scatterGatherService != null) {
+			scatterGatherService.shutdown();
+		}
+	}
+
+	@Test
+	void mergesSameDayFilesOfLocalStores() throws Exception {
+		Path first = Files.createDirectory(folder.resolve("store-1"));
+		Path second = Files.createDirectory(folder.resolve("store-2"));
+		Files.writeString(first.resolve("2025-01-01.txt"), "1,2025-01-01T10:00:00,[5:2],10.000\n");
+		Files.writeString(second.resolve("2025-01-01.txt"), "2,2025-01-01T11:00:00,[6:1],15.000\n");
+		scatterGatherService = scatterGatherService();
+
+		BigDecimal volume = scatterGatherService.analyze(List.of(new Shard(null, first.toString()),
+				new Shard(null, second.toString())), DateRange.ALL).highestSalesVolumeInADay();
+
+		assertEquals(new BigDecimal("25.000"), volume);
+	}
+
+	@Test
+	void rejectsPeersThatAreNotConfigured() throws Exception {
+		startPeer();
+		scatterGatherService = scatterGatherService();
+
+		assertThrows(InvalidRequestException.class, () -> scatterGatherService.analyze(
+				List.of(new Shard(peerUrl(), "/data/store-1")), DateRange.ALL));
+		assertThrows(InvalidRequestException.class, () -> scatterGatherService.analyze(
+				List.of(new Shard("http://169.254.169.254", "/latest")), DateRange.ALL));
+		assertEquals(0, peerRequests.get());
+	}
+
+	@Test
+	void doesNotPassAFailingPeersBodyBack() throws Exception {
+		startPeer();
+		properties.getScatterGather().setPeers(List.of(peerUrl() + "/"));
+		scatterGatherService = scatterGatherService();
+
+		ShardFailedException failure = assertThrows(ShardFailedException.class, () -> scatterGatherService.analyze(
+				List.of(new Shard(peerUrl(), "/data/store-1")), DateRange.ALL));
+
+		assertEquals(1, peerRequests.get());
+		assertTrue(failure.getMessage().contains("500"));
+		assertFalse(failure.getMessage().contains("internal detail"));
+	}
+
+	private void startPeer() throws IOException {
+		peer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		peer.createContext("/", exchange -> {
+			peerRequests.incrementAndGet();
+			byte[] body = "internal detail".getBytes(StandardCharsets.UTF_8);
+			exchange.sendResponseHeaders(500, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		});
+		peer.start();
+	}
+
+	private String peerUrl() {
+		return "http://127.0.0.1:" + peer.getAddress().getPort();
+	}
+
+	private ScatterGatherService scatterGatherService() {
+		PipelineMetrics pipelineMetrics = new PipelineMetrics(new SimpleMeterRegistry());
+		FolderTransactionAnalyticService folderService = new FolderTransactionAnalyticService(
+				new SingleFileTransactionAnalyticService(properties, pipelineMetrics), Runnable::run,
+				new DayAggregateCache(properties), pipelineMetrics, new RollupStore(), new DrillDownIndexStore());
+		return new ScatterGatherService(folderService, properties, RestClient.builder());
+	}
+}
@@ -0,0 +1,106 @@
+package com.victor.transaction_analytic.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.victor.transaction_analytic.cache.DayAggregateCache;
+import com.victor.transaction_analytic.config.AnalyticProperties;
+import com.victor.transaction_analytic.dto.TransactionAnalyticResponseDto;
+import com.victor.transaction_analytic.helper.DateRange;
+import com.victor.transaction_analytic.metrics.PipelineMetrics;
+import com.victor.transaction_analytic.metrics.PreloadHealthIndicator;
+import com.victor.transaction_analytic.rollup.DrillDownIndexStore;
+import com.victor.transaction_analytic.rollup.RollupStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.DefaultApplicationArguments;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StartupPreloadServiceTests {
+
+	@TempDir
+	Path folder;
+
+	private final AnalyticProperties properties = new AnalyticProperties();
+	private final CountDownLatch preloadStarted = new CountDownLatch(1);
+	private final CountDownLatch releasePreload = new CountDownLatch(1);
+
+	@Test
+	void readinessStaysDownUntilThePreloadIsDone() throws Exception {
+		Files.writeString(folder.resolve("2025-01-01.txt"), "1,2025-01-01T10:00:00,[5:2],10.000\n");
+		properties.getPreload().setFolders(List.of(folder.toString()));
+		properties.getPreload().setWarmUpFiles(2);
+		properties.getPreload().setWarmUpRowsPerFile(100);
+		StartupPreloadService preloadService = preloadService();
+		PreloadHealthIndicator indicator = new PreloadHealthIndicator(preloadService);
+		assertEquals(Status.DOWN, indicator.health().getStatus());
+		assertEquals(StartupPreloadService.Phase.PENDING, indicator.health().getDetails().get("phase"));
+
+		Thread startup = new Thread(() -> preloadService.run(new DefaultApplicationArguments()));
+		startup.start();
+		assertTrue(preloadStarted.await(30, TimeUnit.SECONDS));
+		Health preloading = indicator.health();
+		assertEquals(Status.DOWN, preloading.getStatus());
+		assertEquals(StartupPreloadService.Phase.PRELOADING, preloading.getDetails().get("phase"));
+		assertEquals(0, preloading.getDetails().get("loaded"));
+
+		releasePreload.countDown();
+		startup.join(30_000);
+		Health done = indicator.health();
+		assertEquals(Status.UP, done.getStatus());
+		assertEquals(StartupPreloadService.Phase.DONE, done.getDetails().get("phase"));
+		assertEquals(1, done.getDetails().get("loaded"));
+	}
+
+	@Test
+	void aFolderThatFailsToLoadIsReportedWithoutKeepingTheInstanceDown() {
+		String missing = folder.resolve("missing").toString();
+		properties.getPreload().setFolders(List.of(missing));
+		properties.getPreload().setWarmUp(false);
+		releasePreload.countDown();
+		StartupPreloadService preloadService = preloadService();
+
+		preloadService.run(new DefaultApplicationArguments());
+
+		Health health = new PreloadHealthIndicator(preloadService).health();
+		assertEquals(Status.UP, health.getStatus());
+		assertEquals(0, health.getDetails().get("loaded"));
+		assertTrue(((Map<?, ?>) health.getDetails().get("failed")).containsKey(missing));
+	}
+
+	/**
+	 * A preload whose folder analysis waits for the test to release it.
+	 */
+	private StartupPreloadService preloadService() {
+		PipelineMetrics pipelineMetrics = new PipelineMetrics(new SimpleMeterRegistry());
+		SingleFileTransactionAnalyticService singleFileService =
+				new SingleFileTransactionAnalyticService(properties, pipelineMetrics);
+		RollupStore rollupStore = new RollupStore();
+		FolderTransactionAnalyticService folderService = new FolderTransactionAnalyticService(singleFileService,
+				Runnable::run, new DayAggregateCache(properties), pipelineMetrics, rollupStore, new DrillDownIndexStore()) {
+			@Override
+			public TransactionAnalyticResponseDto analyzeTransactions(String folderPath, DateRange range)
+					throws IOException {
+				preloadStarted.countDown();
+				try {
+					releasePreload.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return super.analyzeTransactions(folderPath, range);
+			}
+		};
+		return new StartupPreloadService(properties, singleFileService, folderService,
+				new FolderWatchService(folderService, rollupStore), new ObjectMapper().findAndRegisterModules());
+	}
+}
@@ -0,0 +1,53 @@
+package com.victor.transaction_analytic.sketch;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HeavyHittersTests {
+
+	private static final SketchSettings SETTINGS = new SketchSettings(0.001, 0.99, 20, 0.01);
+
+	@Test
+	void findsTheHeaviestKeysAmongALongTail() {
+		HeavyHitters hitters = HeavyHitters.create(SETTINGS);
+		addTraffic(hitters, new Random(1));
+
+		List<Map.Entry<Long, Long>> top = hitters.top(3);
+
+		assertEquals(List.of(1_000_001L, 1_000_002L, 1_000_003L), top.stream().map(Map.Entry::getKey).toList());
+		// Count-Min never undercounts and stays within epsilon of the total
+		assertTrue(top.get(0).getValue() >= 30_000);
+		assertTrue(top.get(0).getValue() <= 30_000 + 0.001 * hitters.totalCount());
+	}
+
+	@Test
+	void mergedPartialsFindTheSameHeavyKeys() {
+		HeavyHitters left = HeavyHitters.create(SETTINGS);
+		HeavyHitters right = HeavyHitters.create(SETTINGS);
+		addTraffic(left, new Random(2));
+		addTraffic(right, new Random(3));
+
+		HeavyHitters merged = left.copy();
+		merged.merge(right);
+
+		assertEquals(List.of(1_000_001L, 1_000_002L, 1_000_003L),
+				merged.top(3).stream().map(Map.Entry::getKey).toList());
+		assertEquals(left.totalCount() + right.totalCount(), merged.totalCount());
+	}
+
+	private static void addTraffic(HeavyHitters hitters, Random random) {
+		for (int i = 0; i < 100_000; i++) {
+			hitters.add(random.nextInt(1_000_000), 1 + random.nextInt(9));
+		}
+		for (int i = 0; i < 10_000; i++) {
+			hitters.add(1_000_001, 3);
+			hitters.add(1_000_002, 2);
+			hitters.add(1_000_003, 1);
+		}
+	}
+}
@@ -0,0 +1,46 @@
+package com.victor.transaction_analytic.sketch;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HyperLogLogTests {
+
+	@Test
+	void estimatesWithinThreeStandardErrors() {
+		HyperLogLog counter = HyperLogLog.forRelativeError(0.01);
+		for (long value = 0; value < 200_000; value++) {
+			counter.add(value);
+			// Duplicates must not change the estimate
+			counter.add(value / 2);
+		}
+
+		assertEquals(200_000, counter.estimate(), 200_000 * 0.03);
+	}
+
+	@Test
+	void countsSmallSetsExactlyEnough() {
+		HyperLogLog counter = HyperLogLog.forRelativeError(0.01);
+		for (long staff = 1; staff <= 9; staff++) {
+			counter.add(staff);
+		}
+
+		assertEquals(9, counter.estimate());
+	}
+
+	@Test
+	void mergeEqualsCountingTheUnion() {
+		HyperLogLog left = new HyperLogLog(12);
+		HyperLogLog right = new HyperLogLog(12);
+		HyperLogLog union = new HyperLogLog(12);
+		for (long value = 0; value < 50_000; value++) {
+			(value % 3 == 0 ? left : right).add(value);
+			union.add(value);
+		}
+
+		left.merge(right);
+
+		assertEquals(union.estimate(), left.estimate());
+		assertThrows(IllegalArgumentException.class, () -> left.merge(new HyperLogLog(10)));
+	}
+}